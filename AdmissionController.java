@@ -0,0 +1,86 @@
+package org.example;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admits documents against a heap budget instead of a thread count.
+ * Each document reserves its estimated heap cost before it is processed and
+ * releases it afterwards. Waiters are admitted in arrival order, so a large
+ * document is not starved by a stream of small ones; a document estimated
+ * above the whole budget is admitted once nothing else is running.
+ * Waiting uses a ReentrantLock condition rather than a monitor, so a virtual
+ * thread waiting for admission unmounts from its carrier instead of pinning it.
+ */
+final class AdmissionController {
+
+    private final long budgetBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Deque<Object> waiting = new ArrayDeque<>();
+    private long reservedBytes;
+    private long peakReservedBytes;
+    private int running;
+
+    AdmissionController(long budgetBytes) {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("Heap budget must be positive: " + budgetBytes);
+        }
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Block until the cost fits in the budget; returns the bytes actually reserved
+     */
+    long acquire(long costBytes) throws InterruptedException {
+        long cost = Math.min(Math.max(costBytes, 0), budgetBytes);
+        Object ticket = new Object();
+        lock.lock();
+        try {
+            waiting.addLast(ticket);
+            try {
+                while (waiting.peekFirst() != ticket || (running > 0 && reservedBytes + cost > budgetBytes)) {
+                    changed.await();
+                }
+            } catch (InterruptedException e) {
+                waiting.remove(ticket);
+                changed.signalAll();
+                throw e;
+            }
+            waiting.removeFirst();
+            reservedBytes += cost;
+            peakReservedBytes = Math.max(peakReservedBytes, reservedBytes);
+            running++;
+            changed.signalAll();
+            return cost;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(long reserved) {
+        lock.lock();
+        try {
+            reservedBytes -= reserved;
+            running--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    long getPeakReservedBytes() {
+        lock.lock();
+        try {
+            return peakReservedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
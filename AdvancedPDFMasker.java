@@ -1,21 +1,23 @@
 package org.example;
 
-import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.font.PDFont;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.pdfbox.text.TextPosition;
+import org.apache.pdfbox.util.Matrix;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.awt.geom.Rectangle2D;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Ultra-Precise PDF Masker with advanced positioning algorithms
@@ -26,9 +28,17 @@ public class AdvancedPDFMasker {
 
     // Configuration for masking patterns
     private static final Map<String, String> MASKING_PATTERNS = new HashMap<>();
-    private static final String MASK_CHARACTER = "█"; // Using block character for better coverage
+    // Solid square for coverage; the block character is not in WinAnsiEncoding, so it comes from ZapfDingbats
+    private static final String MASK_CHARACTER = "■";
+    private static final Standard14Fonts.FontName MASK_FONT = Standard14Fonts.FontName.ZAPF_DINGBATS;
     private static final float POSITION_TOLERANCE = 1.0f; // Ultra-precise tolerance
-    private static final boolean DEBUG_MODE = true; // Enable detailed debugging
+    private static final MaskingLog LOG = MaskingLog.forClass(AdvancedPDFMasker.class);
+
+    // Patterns are compiled once; labels feed a shared prefilter so pages without labels skip the regexes
+    private static final Map<String, Pattern> COMPILED_PATTERNS = new HashMap<>();
+    private static final Map<String, Integer> PATTERN_OWNERS = new HashMap<>();
+    private static final Set<String> UNLABELLED_PATTERNS = new HashSet<>();
+    private static final LabelAutomaton LABEL_PREFILTER;
 
     static {
         // Define field patterns to search and mask
@@ -38,6 +48,219 @@ public class AdvancedPDFMasker {
         MASKING_PATTERNS.put("SSN:", "(?i)ssn\\s*:?\\s*([0-9]{3}-?[0-9]{2}-?[0-9]{4})");
         MASKING_PATTERNS.put("Address:", "(?i)address\\s*:?\\s*([a-zA-Z0-9\\s,.-]{10,100})");
         MASKING_PATTERNS.put("DOB:", "(?i)(?:dob|date of birth)\\s*:?\\s*([0-9]{1,2}[/-][0-9]{1,2}[/-][0-9]{2,4})");
+
+        List<String> labels = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        for (Map.Entry<String, String> entry : MASKING_PATTERNS.entrySet()) {
+            int owner = PATTERN_OWNERS.size();
+            COMPILED_PATTERNS.put(entry.getKey(), Pattern.compile(entry.getValue()));
+            PATTERN_OWNERS.put(entry.getKey(), owner);
+
+            List<String> literals = LabelAutomaton.leadingLiterals(entry.getValue());
+            if (literals == null) {
+                UNLABELLED_PATTERNS.add(entry.getKey());
+            } else {
+                for (String literal : literals) {
+                    labels.add(literal);
+                    owners.add(owner);
+                }
+            }
+        }
+        LABEL_PREFILTER = new LabelAutomaton(labels, owners);
+    }
+
+    // Bounds strategies run in this order; the chain stops at the first result this confident
+    private static final List<String> DEFAULT_STRATEGY_ORDER = Arrays.asList(
+            UltraPrecisionPDFMaskerConfig.PositioningStrategy.INDEX_BASED,
+            UltraPrecisionPDFMaskerConfig.PositioningStrategy.CHARACTER_SEQUENCE,
+            UltraPrecisionPDFMaskerConfig.PositioningStrategy.CONTEXT_BASED,
+            UltraPrecisionPDFMaskerConfig.PositioningStrategy.PATTERN_BASED);
+    private static final double DEFAULT_CONFIDENCE_THRESHOLD = 100.0;
+
+    // Page-parallel mode: pages per fork-join leaf, and main-memory cache per worker document
+    private static final int PAGES_PER_TASK = 8;
+    private static final long DEFAULT_WORKER_MEMORY_BYTES = 64L * 1024 * 1024;
+
+    // Field patterns compiled for the selected matching mode
+    private final Map<String, RuleMatcher> fieldMatchers = new HashMap<>();
+
+    private List<String> strategyOrder = DEFAULT_STRATEGY_ORDER;
+    private double confidenceThreshold = DEFAULT_CONFIDENCE_THRESHOLD;
+    private boolean compareAllStrategies = false;
+    private int parallelism = 1;
+    private long workerMemoryBytes = DEFAULT_WORKER_MEMORY_BYTES;
+    private PipelineConfig pipelineConfig;
+    private volatile StagedPipeline.Stats pipelineStats;
+    private DocumentLoader documentLoader = DocumentLoader.DEFAULT
+            .withResourceCache(new ExtractionResourceCache(ExtractionResourceCache.DEFAULT_BYTES));
+    private SaveMode saveMode = SaveMode.FULL_REWRITE;
+    private MaskStyle maskStyle = MaskStyle.RECTANGLES_AND_GLYPHS;
+    private final Map<String, StrategyStats> strategyStats = new LinkedHashMap<>();
+    private MaskingMetrics metrics = new MaskingMetrics();
+    private boolean failOnBudgetExceeded;
+
+    public AdvancedPDFMasker() {
+        this(MatchingMode.BACKTRACKING);
+    }
+
+    public AdvancedPDFMasker(MatchingMode matchingMode) {
+        MatchingEngine engine = MatchingEngine.forMode(matchingMode);
+        for (Map.Entry<String, Pattern> entry : COMPILED_PATTERNS.entrySet()) {
+            fieldMatchers.put(entry.getKey(), engine.compile(entry.getKey(), entry.getValue()));
+        }
+        for (String strategy : DEFAULT_STRATEGY_ORDER) {
+            strategyStats.put(strategy, new StrategyStats(strategy));
+        }
+    }
+
+    /**
+     * Order in which bounds strategies are tried; strategies left out are never run
+     */
+    public void setStrategyOrder(List<String> strategies) {
+        for (String strategy : strategies) {
+            if (!DEFAULT_STRATEGY_ORDER.contains(strategy)) {
+                throw new IllegalArgumentException("Unknown positioning strategy: " + strategy);
+            }
+        }
+        this.strategyOrder = new ArrayList<>(strategies);
+    }
+
+    /**
+     * Score at which a strategy result is accepted without trying the rest of the chain
+     */
+    public void setConfidenceThreshold(double confidenceThreshold) {
+        this.confidenceThreshold = confidenceThreshold;
+    }
+
+    /**
+     * Run every strategy for every match and log the full score comparison (debugging only)
+     */
+    public void setCompareAllStrategies(boolean compareAllStrategies) {
+        this.compareAllStrategies = compareAllStrategies;
+    }
+
+    /**
+     * Number of page workers; 1 (the default) masks sequentially on the calling thread
+     */
+    public void setParallelism(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + workers);
+        }
+        this.parallelism = workers;
+    }
+
+    /**
+     * Main-memory budget for each worker's document handle; beyond it PDFBox uses temp files
+     */
+    public void setWorkerMemoryBytes(long workerMemoryBytes) {
+        if (workerMemoryBytes <= 0) {
+            throw new IllegalArgumentException("Worker memory must be positive: " + workerMemoryBytes);
+        }
+        this.workerMemoryBytes = workerMemoryBytes;
+    }
+
+    /**
+     * Where document bytes live while masking; HEAP_ONLY (the default) keeps everything on the heap
+     */
+    public void setMemoryMode(MemoryMode memoryMode) {
+        this.documentLoader = documentLoader.withMode(memoryMode);
+    }
+
+    /**
+     * Heap allowed for the document's stream buffers: a hard limit in HEAP_ONLY mode,
+     * the spill-to-temp-file threshold otherwise; 0 or less means unlimited.
+     * Page workers use setWorkerMemoryBytes instead.
+     */
+    public void setMemoryBudgetBytes(long budgetBytes) {
+        this.documentLoader = documentLoader.withBudget(budgetBytes);
+    }
+
+    /**
+     * Heap budget for fonts, images and other resources kept parsed while documents are read,
+     * least recently used evicted first; 0 or less uses PDFBox's per-document cache instead
+     */
+    public void setResourceCacheBytes(long bytes) {
+        this.documentLoader = documentLoader.withResourceCache(bytes > 0 ? new ExtractionResourceCache(bytes) : null);
+    }
+
+    /**
+     * RECTANGLES_ONLY draws the white covers without mask glyphs, for the smallest output
+     */
+    public void setMaskStyle(MaskStyle maskStyle) {
+        this.maskStyle = maskStyle;
+    }
+
+    /**
+     * INCREMENTAL appends only the masked pages and their new resources to a copy of the
+     * original; encrypted documents, or output over the input file, fall back to a full rewrite
+     */
+    public void setSaveMode(SaveMode saveMode) {
+        this.saveMode = saveMode;
+    }
+
+    /**
+     * Run maskPDF as a staged pipeline with the given thread counts; null turns it off.
+     * Takes precedence over setParallelism. Matching is part of extraction here, because
+     * bounds location reads the stripper's per-page glyph buffers, so there is no match
+     * stage and a config asking for more than one match thread is rejected.
+     */
+    public void setPipelineConfig(PipelineConfig pipelineConfig) {
+        if (pipelineConfig != null && pipelineConfig.getMatchThreads() != 1) {
+            throw new IllegalArgumentException("AdvancedPDFMasker matches in its extract stage and has no match"
+                    + " stage; set extract threads instead of " + pipelineConfig.getMatchThreads() + " match threads");
+        }
+        this.pipelineConfig = pipelineConfig;
+    }
+
+    /**
+     * Fail a document, without writing it, when a rule is abandoned at its matching budget
+     * on any page; by default the document is written and the rule counted in the summary
+     * line and in MaskingMetrics.getBudgetExceeded, though values of that rule may stay unmasked
+     */
+    public void setFailOnBudgetExceeded(boolean failOnBudgetExceeded) {
+        this.failOnBudgetExceeded = failOnBudgetExceeded;
+    }
+
+    /**
+     * Stage counters of the current or last pipeline run, or null if none ran
+     */
+    public StagedPipeline.Stats getPipelineStats() {
+        return pipelineStats;
+    }
+
+    /**
+     * Attempts, wins and time spent per strategy since this masker was created
+     */
+    public Collection<StrategyStats> getStrategyStats() {
+        return Collections.unmodifiableCollection(strategyStats.values());
+    }
+
+    /**
+     * Stage timers and counters of every document this masker has processed
+     */
+    public MaskingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Record into the given metrics instead, e.g. one instance shared by several maskers
+     */
+    public void setMetrics(MaskingMetrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
+    }
+
+    /**
+     * Accuracy, coverage and efficiency of the bounds strategies as measured so far
+     */
+    public UltraPrecisionPDFMaskerConfig.PrecisionMetrics getPrecisionMetrics() {
+        return UltraPrecisionPDFMaskerConfig.PrecisionMetrics.from(metrics);
+    }
+
+    /**
+     * Field labels masked when the caller names none
+     */
+    static Set<String> supportedFields() {
+        return Collections.unmodifiableSet(MASKING_PATTERNS.keySet());
     }
 
     /**
@@ -73,91 +296,206 @@ public class AdvancedPDFMasker {
      * Ultra-precise text position tracker with multiple matching strategies
      */
     private class UltraPreciseTextStripper extends PDFTextStripper {
-        private List<EnhancedTextPosition> textPositions;
+        private final GlyphStore glyphs = new GlyphStore(); // reused across pages
         private Map<String, List<PrecisionBounds>> fieldBounds;
         private Set<String> fieldsToMask;
         private String fullPageText;
+        private final PageGlyphIndex glyphIndex = new PageGlyphIndex();
+        private final PageGlyphIndex.PageTextCapture textOutput = new PageGlyphIndex.PageTextCapture();
+        private PageHandler pageHandler;
+        private int[] unicodeLengths = new int[64];
+        private NormalizedGlyphStream foldedGlyphs;   // lower-cased, for label/value lookups
+        private NormalizedGlyphStream exactGlyphs;    // case-sensitive, for Strategy 2
+        private long pageStartNanos;
+        private MaskingEvents.PageExtraction extractionEvent; // only while a recording enables it
+        private SpatialGrid glyphGrid;                // built on the first geometric lookup
+        private final Map<String, BoundsStrategy> strategies = new HashMap<>();
+        private final MaskingSummary summary;         // document being masked; null outside maskPDF
 
         public UltraPreciseTextStripper(Set<String> fieldsToMask) throws IOException {
+            this(fieldsToMask, null);
+        }
+
+        UltraPreciseTextStripper(Set<String> fieldsToMask, MaskingSummary summary) throws IOException {
             super();
-            this.textPositions = new ArrayList<>();
-            this.fieldBounds = new ConcurrentHashMap<>();
+            this.summary = summary;
+            this.fieldBounds = new LinkedHashMap<>();
             this.fieldsToMask = fieldsToMask;
             this.setSortByPosition(true);
+
+            strategies.put(UltraPrecisionPDFMaskerConfig.PositioningStrategy.INDEX_BASED,
+                    match -> findBoundsByTextIndex(match.startIndex, match.endIndex, match.valueMatch));
+            strategies.put(UltraPrecisionPDFMaskerConfig.PositioningStrategy.CHARACTER_SEQUENCE,
+                    match -> findBoundsByCharacterSequence(match.valueMatch));
+            strategies.put(UltraPrecisionPDFMaskerConfig.PositioningStrategy.CONTEXT_BASED,
+                    match -> findBoundsByContext(match.fullMatch, match.valueMatch));
+            strategies.put(UltraPrecisionPDFMaskerConfig.PositioningStrategy.PATTERN_BASED,
+                    match -> findBoundsByPattern(match.fieldName, match.valueMatch));
+        }
+
+        /**
+         * Walk the whole document once; the handler runs as each page finishes, while
+         * that page's text, glyphs and indexes are current. Buffers are recycled per page.
+         */
+        public void extractPages(PDDocument doc, PageHandler handler) throws IOException {
+            extractPages(doc, 0, Integer.MAX_VALUE, handler);
+        }
+
+        /**
+         * Same as extractPages, restricted to the zero-based page range [fromPage, toPage)
+         */
+        public void extractPages(PDDocument doc, int fromPage, int toPage, PageHandler handler) throws IOException {
+            setStartPage(fromPage + 1);
+            setEndPage(toPage);
+            pageHandler = handler;
+            try {
+                writeText(doc, Writer.nullWriter());
+            } finally {
+                pageHandler = null;
+            }
         }
 
         @Override
-        protected void writeString(String string, List<TextPosition> textPositions) throws IOException {
-            for (TextPosition textPosition : textPositions) {
-                EnhancedTextPosition enhancedPos = new EnhancedTextPosition(textPosition);
-                this.textPositions.add(enhancedPos);
+        public void writeText(PDDocument doc, Writer outputStream) throws IOException {
+            // Capture each page's text so glyph offsets match fullPageText
+            textOutput.setOut(outputStream);
+            try {
+                super.writeText(doc, textOutput);
+            } finally {
+                textOutput.setOut(Writer.nullWriter());
             }
-            super.writeString(string, textPositions);
         }
 
         @Override
-        public String getText(PDDocument doc) throws IOException {
-            textPositions.clear();
+        protected void startPage(PDPage page) throws IOException {
+            glyphs.clear();
             fieldBounds.clear();
-            fullPageText = super.getText(doc);
-            return fullPageText;
+            glyphIndex.reset();
+            textOutput.startPage();
+            foldedGlyphs = null;
+            exactGlyphs = null;
+            glyphGrid = null;
+            pageStartNanos = System.nanoTime();
+            MaskingEvents.PageExtraction event = new MaskingEvents.PageExtraction();
+            if (event.isEnabled()) {
+                event.begin();
+                extractionEvent = event;
+            }
+            super.startPage(page);
+        }
+
+        @Override
+        protected void endPage(PDPage page) throws IOException {
+            super.endPage(page);
+            fullPageText = textOutput.pageText();
+            glyphIndex.alignTo(fullPageText.length());
+            metrics.recordSince(MaskingMetrics.Stage.EXTRACT, pageStartNanos);
+            if (extractionEvent != null) {
+                MaskingEvents.commit(extractionEvent, getCurrentPageNo() - 1, glyphs.size());
+                extractionEvent = null;
+            }
+            if (pageHandler != null) {
+                pageHandler.onPage(getCurrentPageNo() - 1, page);
+            }
+        }
+
+        @Override
+        protected void writeString(String string, List<TextPosition> textPositions) throws IOException {
+            int firstGlyph = glyphs.size();
+            if (unicodeLengths.length < textPositions.size()) {
+                unicodeLengths = new int[Math.max(textPositions.size(), unicodeLengths.length * 2)];
+            }
+            for (int i = 0; i < textPositions.size(); i++) {
+                unicodeLengths[i] = glyphs.textLength(glyphs.add(textPositions.get(i)));
+            }
+
+            int textStart = textOutput.getCount();
+            glyphIndex.alignTo(textStart);
+            super.writeString(string, textPositions);
+            glyphIndex.appendRun(textOutput.getCount() - textStart, firstGlyph, unicodeLengths, textPositions.size());
         }
 
         /**
          * Advanced multi-strategy field identification with precision algorithms
          */
         public void analyzeAndIdentifyFields() {
-            debugLog("=== ULTRA-PRECISE FIELD ANALYSIS ===");
-            debugLog("Page text length: " + fullPageText.length());
-            debugLog("Text positions captured: " + textPositions.size());
-            debugLog("First 300 chars: " + fullPageText.substring(0, Math.min(300, fullPageText.length())));
+            LOG.trace("Field analysis: {0} characters, {1} glyphs", fullPageText.length(), glyphs.size());
+            long analysisStart = System.nanoTime();
+            long boundsNanos = 0;
+
+            // One linear pass finds every label; the value regexes only run at those anchors
+            LabelAutomaton.Hits labelHits = LABEL_PREFILTER.scan(fullPageText);
 
             for (String fieldName : fieldsToMask) {
                 if (MASKING_PATTERNS.containsKey(fieldName)) {
-                    Pattern pattern = Pattern.compile(MASKING_PATTERNS.get(fieldName));
-                    Matcher matcher = pattern.matcher(fullPageText);
+                    int[] anchors = UNLABELLED_PATTERNS.contains(fieldName)
+                            ? null
+                            : labelHits.startsFor(PATTERN_OWNERS.get(fieldName));
+                    if (anchors != null && anchors.length == 0) {
+                        LOG.trace("No label for field {0} on this page, skipping pattern", fieldName);
+                        continue;
+                    }
+
+                    MaskingEvents.RuleEvaluation ruleEvent = MaskingEvents.beginRuleEvaluation();
+                    int matchCount = 0;
 
-                    debugLog("\n--- Analyzing field: " + fieldName + " ---");
-                    debugLog("Pattern: " + MASKING_PATTERNS.get(fieldName));
+                    RuleMatcher.Session matcher = fieldMatchers.get(fieldName).session(fullPageText);
+                    AnchoredMatcher anchored = new AnchoredMatcher(matcher, anchors);
 
-                    while (matcher.find()) {
+                    LOG.trace(() -> "Analyzing field " + fieldName + " with pattern " + MASKING_PATTERNS.get(fieldName));
+
+                    while (anchored.find()) {
                         String fullMatch = matcher.group(0);
                         String valueMatch = matcher.group(1).trim();
                         int startIndex = matcher.start(1);
                         int endIndex = matcher.end(1);
 
-                        debugLog("Match found - Full: '" + fullMatch + "', Value: '" + valueMatch + "'");
-                        debugLog("Text indices: " + startIndex + " to " + endIndex);
-
-                        // Strategy 1: Precise index-based positioning
-                        PrecisionBounds bounds1 = findBoundsByTextIndex(startIndex, endIndex, valueMatch);
-
-                        // Strategy 2: Character sequence matching
-                        PrecisionBounds bounds2 = findBoundsByCharacterSequence(valueMatch);
+                        LOG.trace(() -> "Match for " + fieldName + " at text indices " + startIndex + " to " + endIndex);
 
-                        // Strategy 3: Contextual positioning (using surrounding text)
-                        PrecisionBounds bounds3 = findBoundsByContext(fullMatch, valueMatch);
-
-                        // Strategy 4: Pattern-based positioning
-                        PrecisionBounds bounds4 = findBoundsByPattern(fieldName, valueMatch);
-
-                        // Select the best bounds using precision scoring
-                        PrecisionBounds bestBounds = selectBestBounds(bounds1, bounds2, bounds3, bounds4, valueMatch);
+                        // Ordered strategy chain, stops at the first confident result
+                        matchCount++;
+                        metrics.recordMatches(fieldName, 1);
+                        long boundsStart = System.nanoTime();
+                        PrecisionBounds bestBounds = locateBounds(
+                                new FieldMatch(fieldName, fullMatch, valueMatch, startIndex, endIndex));
+                        long boundsElapsed = System.nanoTime() - boundsStart;
+                        metrics.recordNanos(MaskingMetrics.Stage.BOUNDS, boundsElapsed);
+                        boundsNanos += boundsElapsed;
 
                         if (bestBounds != null) {
                             fieldBounds.computeIfAbsent(fieldName, k -> new ArrayList<>()).add(bestBounds);
-                            debugLog("✓ Selected bounds: " + bestBounds + " (Strategy: " + bestBounds.strategy + ")");
+                            LOG.trace(() -> "Selected bounds: " + bestBounds + ", glyphs under mask: "
+                                    + glyphsInside(bestBounds.x, bestBounds.y, bestBounds.width, bestBounds.height).length);
                         } else {
-                            debugLog("✗ No suitable bounds found for: " + valueMatch);
+                            LOG.trace("No suitable bounds found for a {0} match", fieldName);
+                        }
+                    }
+
+                    if (matcher.isAbandoned()) {
+                        metrics.recordBudgetExceeded();
+                        if (summary != null) {
+                            summary.recordBudgetExceeded(fieldName);
                         }
                     }
+                    MaskingEvents.commit(ruleEvent, getCurrentPageNo() - 1, fieldName, matchCount);
                 }
             }
 
-            debugLog("\n=== ANALYSIS COMPLETE ===");
-            debugLog("Total fields identified: " + fieldBounds.size());
-            for (Map.Entry<String, List<PrecisionBounds>> entry : fieldBounds.entrySet()) {
-                debugLog("  " + entry.getKey() + ": " + entry.getValue().size() + " instances");
+            // Label scan and regexes; bounds location is timed separately
+            metrics.recordNanos(MaskingMetrics.Stage.MATCH, System.nanoTime() - analysisStart - boundsNanos);
+
+            // Diagnostics only; the overlap search is skipped unless it is logged
+            if (LOG.isTraceEnabled()) {
+                for (Map.Entry<String, List<PrecisionBounds>> entry : fieldBounds.entrySet()) {
+                    LOG.trace("Field {0}: {1} instances", entry.getKey(), entry.getValue().size());
+                }
+
+                List<PrecisionBounds> masks = new ArrayList<>();
+                fieldBounds.values().forEach(masks::addAll);
+                int overlaps = UltraPrecisionPDFMaskerConfig.GeometricAnalyzer.findOverlappingPairs(masks).size();
+                if (overlaps > 0) {
+                    LOG.trace("Overlapping masks on this page: {0} pairs", overlaps);
+                }
             }
         }
 
@@ -165,34 +503,19 @@ public class AdvancedPDFMasker {
          * Strategy 1: Find bounds using precise text index positions
          */
         private PrecisionBounds findBoundsByTextIndex(int startIndex, int endIndex, String targetText) {
-            debugLog("Strategy 1: Index-based search (" + startIndex + "-" + endIndex + ")");
+            LOG.trace("Strategy 1: Index-based search ({0}-{1})", startIndex, endIndex);
 
             try {
-                // Build character map from text positions
-                Map<Integer, EnhancedTextPosition> charMap = new HashMap<>();
-                StringBuilder reconstructedText = new StringBuilder();
-
-                for (EnhancedTextPosition pos : textPositions) {
-                    int currentIndex = reconstructedText.length();
-                    reconstructedText.append(pos.getUnicode());
-                    charMap.put(currentIndex, pos);
-                }
-
-                // Find positions within the target range
-                List<EnhancedTextPosition> targetPositions = new ArrayList<>();
-                for (int i = startIndex; i < endIndex && i < reconstructedText.length(); i++) {
-                    if (charMap.containsKey(i)) {
-                        targetPositions.add(charMap.get(i));
-                    }
-                }
+                // Offsets come straight from the page index, separators included
+                int[] targetPositions = glyphIndex.glyphsInRange(startIndex, endIndex);
 
-                if (!targetPositions.isEmpty()) {
+                if (targetPositions.length > 0) {
                     PrecisionBounds bounds = calculateUltraPreciseBounds(targetPositions, targetText, "Index-Based");
-                    debugLog("Strategy 1 result: " + bounds);
+                    LOG.trace("Strategy 1 result: {0}", bounds);
                     return bounds;
                 }
             } catch (Exception e) {
-                debugLog("Strategy 1 failed: " + e.getMessage());
+                LOG.trace("Strategy 1 failed: {0}", e.getMessage());
             }
 
             return null;
@@ -202,32 +525,17 @@ public class AdvancedPDFMasker {
          * Strategy 2: Find bounds by matching character sequences
          */
         private PrecisionBounds findBoundsByCharacterSequence(String targetText) {
-            debugLog("Strategy 2: Character sequence search for: '" + targetText + "'");
-
-            String cleanTarget = targetText.replaceAll("\\s+", "");
-
-            for (int i = 0; i <= textPositions.size() - cleanTarget.length(); i++) {
-                StringBuilder sequence = new StringBuilder();
-                List<EnhancedTextPosition> candidatePositions = new ArrayList<>();
-
-                for (int j = i; j < textPositions.size() && sequence.length() < cleanTarget.length(); j++) {
-                    EnhancedTextPosition pos = textPositions.get(j);
-                    String character = pos.getUnicode().replaceAll("\\s", "");
-
-                    if (!character.isEmpty()) {
-                        sequence.append(character);
-                        candidatePositions.add(pos);
-                    }
-
-                    if (sequence.toString().equals(cleanTarget)) {
-                        PrecisionBounds bounds = calculateUltraPreciseBounds(candidatePositions, targetText, "Character-Sequence");
-                        debugLog("Strategy 2 result: " + bounds);
-                        return bounds;
-                    }
-                }
+            LOG.trace("Strategy 2: Character sequence search over {0} characters", targetText.length());
+
+            int[] range = exactGlyphStream().find(targetText);
+            if (range != null) {
+                PrecisionBounds bounds = calculateUltraPreciseBounds(
+                        glyphsOf(range, null), targetText, "Character-Sequence");
+                LOG.trace("Strategy 2 result: {0}", bounds);
+                return bounds;
             }
 
-            debugLog("Strategy 2: No match found");
+            LOG.trace(() -> "Strategy 2: No match found");
             return null;
         }
 
@@ -235,7 +543,7 @@ public class AdvancedPDFMasker {
          * Strategy 3: Find bounds using contextual information
          */
         private PrecisionBounds findBoundsByContext(String fullMatch, String valueMatch) {
-            debugLog("Strategy 3: Context-based search");
+            LOG.trace(() -> "Strategy 3: Context-based search");
 
             // Look for the label part (e.g., "Name:") and find value after it
             String[] parts = fullMatch.split(":", 2);
@@ -244,21 +552,21 @@ public class AdvancedPDFMasker {
                 String value = parts[1].trim();
 
                 // Find label position first
-                List<EnhancedTextPosition> labelPositions = findTextSequence(label);
-                if (!labelPositions.isEmpty()) {
-                    EnhancedTextPosition lastLabelPos = labelPositions.get(labelPositions.size() - 1);
+                int[] labelPositions = findTextSequence(label);
+                if (labelPositions.length > 0) {
+                    int lastLabelPos = labelPositions[labelPositions.length - 1];
 
                     // Find value positions after label
-                    List<EnhancedTextPosition> valuePositions = findTextSequenceAfter(value, lastLabelPos);
-                    if (!valuePositions.isEmpty()) {
+                    int[] valuePositions = findTextSequenceAfter(value, lastLabelPos);
+                    if (valuePositions.length > 0) {
                         PrecisionBounds bounds = calculateUltraPreciseBounds(valuePositions, valueMatch, "Context-Based");
-                        debugLog("Strategy 3 result: " + bounds);
+                        LOG.trace("Strategy 3 result: {0}", bounds);
                         return bounds;
                     }
                 }
             }
 
-            debugLog("Strategy 3: No contextual match found");
+            LOG.trace(() -> "Strategy 3: No contextual match found");
             return null;
         }
 
@@ -266,7 +574,7 @@ public class AdvancedPDFMasker {
          * Strategy 4: Pattern-based positioning with field-specific logic
          */
         private PrecisionBounds findBoundsByPattern(String fieldName, String valueMatch) {
-            debugLog("Strategy 4: Pattern-based search for " + fieldName);
+            LOG.trace("Strategy 4: Pattern-based search for {0}", fieldName);
 
             // Field-specific search strategies
             switch (fieldName) {
@@ -281,8 +589,8 @@ public class AdvancedPDFMasker {
 
         private PrecisionBounds findNamePattern(String name) {
             // Names often have specific character patterns
-            List<EnhancedTextPosition> positions = findTextWithWordBoundaries(name);
-            if (!positions.isEmpty()) {
+            int[] positions = findTextWithWordBoundaries(name);
+            if (positions.length > 0) {
                 return calculateUltraPreciseBounds(positions, name, "Name-Pattern");
             }
             return null;
@@ -290,122 +598,169 @@ public class AdvancedPDFMasker {
 
         private PrecisionBounds findEmailPattern(String email) {
             // Emails have @ symbol - use it as anchor
-            List<EnhancedTextPosition> positions = findTextSequence(email);
-            if (!positions.isEmpty()) {
+            int[] positions = findTextSequence(email);
+            if (positions.length > 0) {
                 return calculateUltraPreciseBounds(positions, email, "Email-Pattern");
             }
             return null;
         }
 
         private PrecisionBounds findGenericPattern(String text) {
-            List<EnhancedTextPosition> positions = findTextSequence(text);
-            if (!positions.isEmpty()) {
+            int[] positions = findTextSequence(text);
+            if (positions.length > 0) {
                 return calculateUltraPreciseBounds(positions, text, "Generic-Pattern");
             }
             return null;
         }
 
         /**
-         * Helper method to find text sequence in positions
+         * Helper method to find text sequence in positions; returns glyph ordinals
          */
-        private List<EnhancedTextPosition> findTextSequence(String targetText) {
-            String normalized = normalizeForMatching(targetText);
-
-            for (int i = 0; i <= textPositions.size() - normalized.length(); i++) {
-                StringBuilder current = new StringBuilder();
-                List<EnhancedTextPosition> candidate = new ArrayList<>();
-
-                for (int j = i; j < textPositions.size() && current.length() < normalized.length() * 2; j++) {
-                    EnhancedTextPosition pos = textPositions.get(j);
-                    current.append(normalizeForMatching(pos.getUnicode()));
-                    candidate.add(pos);
-
-                    if (normalizeForMatching(current.toString()).contains(normalized)) {
-                        return trimToExactMatch(candidate, targetText);
-                    }
-                }
-            }
-
-            return new ArrayList<>();
+        private int[] findTextSequence(String targetText) {
+            return glyphsOf(foldedGlyphStream().find(targetText), null);
         }
 
-        private List<EnhancedTextPosition> findTextSequenceAfter(String targetText, EnhancedTextPosition afterPosition) {
+        private int[] findTextSequenceAfter(String targetText, int afterGlyph) {
             // Find positions that come after the given position
-            List<EnhancedTextPosition> laterPositions = textPositions.stream()
-                    .filter(pos -> pos.getX() > afterPosition.getX() ||
-                            (Math.abs(pos.getX() - afterPosition.getX()) < POSITION_TOLERANCE && pos.getY() <= afterPosition.getY()))
-                    .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
-
-            // Search in the filtered positions
-            return findTextSequenceInList(targetText, laterPositions);
+            return findTextSequenceIn(targetText, glyphsRightOf(afterGlyph));
         }
 
-        private List<EnhancedTextPosition> findTextSequenceInList(String targetText, List<EnhancedTextPosition> searchList) {
-            String normalized = normalizeForMatching(targetText);
-
-            for (int i = 0; i <= searchList.size() - normalized.length(); i++) {
-                StringBuilder current = new StringBuilder();
-                List<EnhancedTextPosition> candidate = new ArrayList<>();
+        private int[] findTextSequenceIn(String targetText, int[] searchGlyphs) {
+            NormalizedGlyphStream stream = new NormalizedGlyphStream(glyphs, searchGlyphs, searchGlyphs.length, true);
+            return glyphsOf(stream.find(targetText), searchGlyphs);
+        }
 
-                for (int j = i; j < searchList.size() && current.length() < normalized.length() * 2; j++) {
-                    EnhancedTextPosition pos = searchList.get(j);
-                    current.append(normalizeForMatching(pos.getUnicode()));
-                    candidate.add(pos);
+        private SpatialGrid glyphGrid() {
+            if (glyphGrid == null) {
+                glyphGrid = SpatialGrid.forGlyphs(glyphs);
+            }
+            return glyphGrid;
+        }
 
-                    if (normalizeForMatching(current.toString()).contains(normalized)) {
-                        return trimToExactMatch(candidate, targetText);
-                    }
+        /**
+         * Glyphs right of the anchor, plus those in the anchor's column further up the page
+         */
+        private int[] glyphsRightOf(int anchor) {
+            float anchorX = glyphs.x(anchor);
+            float anchorY = glyphs.y(anchor);
+            int[] candidates = glyphGrid().query(anchorX - POSITION_TOLERANCE, Float.NEGATIVE_INFINITY,
+                    Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+            int count = 0;
+            for (int glyph : candidates) {
+                float x = glyphs.x(glyph);
+                if (x > anchorX || (Math.abs(x - anchorX) < POSITION_TOLERANCE && glyphs.y(glyph) <= anchorY)) {
+                    candidates[count++] = glyph;
                 }
             }
-
-            return new ArrayList<>();
+            return Arrays.copyOf(candidates, count);
         }
 
-        private List<EnhancedTextPosition> findTextWithWordBoundaries(String targetText) {
-            // Implementation for word boundary detection
-            return findTextSequence(targetText); // Simplified for now
+        /**
+         * Glyphs whose box intersects the rectangle (TextPosition coordinates)
+         */
+        private int[] glyphsInside(float x, float y, float width, float height) {
+            return glyphGrid().query(x, y, x + width, y + height);
         }
 
-        private List<EnhancedTextPosition> trimToExactMatch(List<EnhancedTextPosition> positions, String targetText) {
-            // Trim the position list to match exactly the target text length
-            String normalized = normalizeForMatching(targetText);
-            StringBuilder current = new StringBuilder();
-            List<EnhancedTextPosition> result = new ArrayList<>();
+        // Expand a [first, last] range from a glyph stream; selection is null when the stream covers every glyph
+        private int[] glyphsOf(int[] range, int[] selection) {
+            if (range == null) {
+                return new int[0];
+            }
+            int[] result = new int[range[1] - range[0] + 1];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = selection == null ? range[0] + i : selection[range[0] + i];
+            }
+            return result;
+        }
 
-            for (EnhancedTextPosition pos : positions) {
-                current.append(normalizeForMatching(pos.getUnicode()));
-                result.add(pos);
+        // Normalized glyph streams are built on first use and reused for every lookup on the page
+        private NormalizedGlyphStream foldedGlyphStream() {
+            if (foldedGlyphs == null) {
+                foldedGlyphs = new NormalizedGlyphStream(glyphs, null, glyphs.size(), true);
+            }
+            return foldedGlyphs;
+        }
 
-                if (current.length() >= normalized.length()) {
-                    break;
-                }
+        private NormalizedGlyphStream exactGlyphStream() {
+            if (exactGlyphs == null) {
+                exactGlyphs = new NormalizedGlyphStream(glyphs, null, glyphs.size(), false);
             }
+            return exactGlyphs;
+        }
 
-            return result;
+        private int[] findTextWithWordBoundaries(String targetText) {
+            // Implementation for word boundary detection
+            return findTextSequence(targetText); // Simplified for now
         }
 
         /**
-         * Select the best bounds from multiple strategies using precision scoring
+         * Run the strategy chain in order, stopping at the first result that reaches the
+         * confidence threshold; otherwise keep the best-scoring result of the chain
          */
-        private PrecisionBounds selectBestBounds(PrecisionBounds... bounds) {
+        private PrecisionBounds locateBounds(FieldMatch match) {
             PrecisionBounds best = null;
             double bestScore = -1;
+            long bestNanos = 0;
+            int attempts = 0;
+
+            for (String strategyName : strategyOrder) {
+                StrategyStats stats = strategyStats.get(strategyName);
+                MaskingEvents.BoundsStrategy event = new MaskingEvents.BoundsStrategy();
+                event.begin();
+                long started = System.nanoTime();
+                PrecisionBounds bounds = strategies.get(strategyName).locate(match);
+                long elapsed = System.nanoTime() - started;
+                event.end();
+                stats.recordAttempt(elapsed);
+                attempts++;
+                if (event.shouldCommit()) {
+                    event.pageIndex = getCurrentPageNo() - 1;
+                    event.field = match.fieldName;
+                    event.strategy = strategyName;
+                    event.located = bounds != null;
+                    event.glyphCount = bounds != null ? bounds.positionCount : 0;
+                    event.commit();
+                }
 
-            for (PrecisionBounds bound : bounds) {
-                if (bound != null) {
-                    double score = calculatePrecisionScore(bound);
-                    debugLog("Bounds score: " + score + " for " + bound.strategy);
-
-                    if (score > bestScore) {
-                        bestScore = score;
-                        best = bound;
-                    }
+                if (bounds == null) {
+                    continue;
+                }
+                double score = calculatePrecisionScore(bounds);
+                if (compareAllStrategies) {
+                    LOG.trace("Bounds score {0} for {1}", score, bounds.strategy);
+                }
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = bounds;
+                    bestNanos = elapsed;
+                }
+                if (score >= confidenceThreshold && !compareAllStrategies) {
+                    break;
                 }
             }
 
+            if (best != null) {
+                StrategyStats winner = strategyStats.get(strategyNameOf(best));
+                winner.recordWin();
+                metrics.recordBounds(winner.getName(), bestScore >= confidenceThreshold, attempts);
+                double winningScore = bestScore;
+                long winningMicros = bestNanos / 1000;
+                LOG.trace(() -> "Strategy " + winner.getName() + " won with score " + winningScore
+                        + " after " + winningMicros + " us");
+            } else {
+                metrics.recordUnresolved(attempts);
+            }
             return best;
         }
 
+        // Pattern-based results carry a field-specific label (Name-Pattern, ...)
+        private String strategyNameOf(PrecisionBounds bounds) {
+            return strategyStats.containsKey(bounds.strategy)
+                    ? bounds.strategy
+                    : UltraPrecisionPDFMaskerConfig.PositioningStrategy.PATTERN_BASED;
+        }
+
         private double calculatePrecisionScore(PrecisionBounds bounds) {
             double score = 0;
 
@@ -430,20 +785,11 @@ public class AdvancedPDFMasker {
         /**
          * Calculate ultra-precise bounds with advanced positioning algorithms
          */
-        private PrecisionBounds calculateUltraPreciseBounds(List<EnhancedTextPosition> positions, String targetText, String strategy) {
-            if (positions.isEmpty()) {
+        private PrecisionBounds calculateUltraPreciseBounds(int[] positions, String targetText, String strategy) {
+            if (positions.length == 0) {
                 return null;
             }
 
-            // Sort positions for proper order
-            positions.sort((a, b) -> {
-                float yDiff = b.getY() - a.getY();
-                if (Math.abs(yDiff) < POSITION_TOLERANCE) {
-                    return Float.compare(a.getX(), b.getX());
-                }
-                return Float.compare(yDiff, 0);
-            });
-
             // Calculate precise boundaries
             float minX = Float.MAX_VALUE;
             float maxX = Float.MIN_VALUE;
@@ -453,16 +799,16 @@ public class AdvancedPDFMasker {
             float totalFontSize = 0;
             int fontCount = 0;
 
-            for (EnhancedTextPosition pos : positions) {
+            for (int pos : positions) {
                 // X coordinates
-                minX = Math.min(minX, pos.getX());
-                maxX = Math.max(maxX, pos.getX() + pos.getWidth());
+                minX = Math.min(minX, glyphs.x(pos));
+                maxX = Math.max(maxX, glyphs.x(pos) + glyphs.width(pos));
 
                 // Y coordinates - critical for proper positioning!
                 // In PDF: Y increases upward, text baseline is the reference
-                float baseline = pos.getY();
-                float ascent = pos.getFontSize() * 0.75f; // Approximate ascent
-                float descent = pos.getFontSize() * 0.25f; // Approximate descent
+                float baseline = glyphs.y(pos);
+                float ascent = glyphs.fontSize(pos) * 0.75f; // Approximate ascent
+                float descent = glyphs.fontSize(pos) * 0.25f; // Approximate descent
 
                 float top = baseline + ascent;
                 float bottom = baseline - descent;
@@ -470,7 +816,7 @@ public class AdvancedPDFMasker {
                 minY = Math.min(minY, bottom);
                 maxY = Math.max(maxY, top);
 
-                totalFontSize += pos.getFontSize();
+                totalFontSize += glyphs.fontSize(pos);
                 fontCount++;
             }
 
@@ -486,68 +832,106 @@ public class AdvancedPDFMasker {
                     (maxX - minX) + (2 * paddingX),
                     (maxY - minY) + (2 * paddingY),
                     avgFontSize,
-                    positions.size(),
+                    positions.length,
                     strategy
             );
 
-            debugLog("Calculated bounds: " + bounds);
-            debugLog("  Positions used: " + positions.size());
-            debugLog("  Avg font size: " + avgFontSize);
-            debugLog("  Raw coords: (" + minX + "," + minY + ") to (" + maxX + "," + maxY + ")");
+            LOG.trace("Calculated bounds: {0}", bounds);
 
             return bounds;
         }
 
-        private String normalizeForMatching(String text) {
-            return text.replaceAll("\\s+", "").toLowerCase();
-        }
-
         public Map<String, List<PrecisionBounds>> getFieldBounds() {
             return fieldBounds;
         }
 
+        /**
+         * Analyze the current page and detach its bounds from the recycled page buffers
+         */
+        Map<String, List<PrecisionBounds>> analyzePage() {
+            analyzeAndIdentifyFields();
+            return new LinkedHashMap<>(fieldBounds);
+        }
+
         public void reset() {
-            textPositions.clear();
+            glyphs.clear();
             fieldBounds.clear();
         }
     }
 
     /**
-     * Enhanced text position with additional precision data
+     * Receives each page from a single-pass extraction while its buffers are current
      */
-    private static class EnhancedTextPosition {
-        private final String unicode;
-        private final float x, y, width, height;
-        private final PDFont font;
-        private final float fontSize;
-        private final float baseline;
+    @FunctionalInterface
+    private interface PageHandler {
+        void onPage(int pageIndex, PDPage page) throws IOException;
+    }
 
-        public EnhancedTextPosition(TextPosition textPosition) {
-            this.unicode = textPosition.getUnicode();
-            this.x = textPosition.getX();
-            this.y = textPosition.getY();
-            this.width = textPosition.getWidth();
-            this.height = textPosition.getHeight();
-            this.font = textPosition.getFont();
-            this.fontSize = textPosition.getFontSize();
-            this.baseline = textPosition.getY(); // Y coordinate is baseline in PDF
+    /**
+     * One regex match handed to the bounds strategies
+     */
+    private static final class FieldMatch {
+        final String fieldName;
+        final String fullMatch;
+        final String valueMatch;
+        final int startIndex;
+        final int endIndex;
+
+        FieldMatch(String fieldName, String fullMatch, String valueMatch, int startIndex, int endIndex) {
+            this.fieldName = fieldName;
+            this.fullMatch = fullMatch;
+            this.valueMatch = valueMatch;
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
         }
+    }
 
-        // Getters
-        public String getUnicode() { return unicode; }
-        public float getX() { return x; }
-        public float getY() { return y; }
-        public float getWidth() { return width; }
-        public float getHeight() { return height; }
-        public PDFont getFont() { return font; }
-        public float getFontSize() { return fontSize; }
-        public float getBaseline() { return baseline; }
+    /**
+     * A way of locating the on-page bounds of a matched value; returns null when it cannot
+     */
+    @FunctionalInterface
+    private interface BoundsStrategy {
+        PrecisionBounds locate(FieldMatch match);
+    }
+
+    /**
+     * Running cost and win count of one bounds strategy; updated concurrently by page workers
+     */
+    public static final class StrategyStats {
+        private final String name;
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder wins = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        StrategyStats(String name) {
+            this.name = name;
+        }
+
+        void recordAttempt(long nanos) {
+            attempts.increment();
+            totalNanos.add(nanos);
+        }
+
+        void recordWin() {
+            wins.increment();
+        }
+
+        public String getName() { return name; }
+        public long getAttempts() { return attempts.sum(); }
+        public long getWins() { return wins.sum(); }
+        public long getTotalNanos() { return totalNanos.sum(); }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d attempts, %d wins, %.2f ms", name, getAttempts(), getWins(), getTotalNanos() / 1e6);
+        }
     }
 
     /**
      * Precision bounds with enhanced metadata
      */
     private static class PrecisionBounds extends Rectangle2D.Float {
+        private static final long serialVersionUID = 1L;
         private final float avgFontSize;
         private final int positionCount;
         private final String strategy;
@@ -578,393 +962,518 @@ public class AdvancedPDFMasker {
         if (!inputFile.exists()) {
             throw new FileNotFoundException("Input PDF file not found: " + inputPath);
         }
+        maskPDF(PdfSource.of(inputFile), PdfTarget.of(new File(outputPath)), fieldsToMask);
+    }
 
-        try (PDDocument document = Loader.loadPDF(inputFile)) {
-            debugLog("Processing PDF with " + document.getNumberOfPages() + " pages...");
+    /**
+     * Mask a PDF received as a stream, e.g. a request body, into the given stream; neither is closed.
+     * Documents within the memory budget (64 MB when none is set) are never written to disk.
+     */
+    public void maskPDF(InputStream input, OutputStream output, Set<String> fieldsToMask) throws IOException {
+        maskPDF(PdfSource.of(input), PdfTarget.of(output), fieldsToMask);
+    }
 
-            // Process each page
-            for (int pageIndex = 0; pageIndex < document.getNumberOfPages(); pageIndex++) {
-                debugLog("\n=== PROCESSING PAGE " + (pageIndex + 1) + " ===");
-                maskPage(document, pageIndex, fieldsToMask);
-            }
+    public void maskPDF(ReadableByteChannel input, WritableByteChannel output, Set<String> fieldsToMask) throws IOException {
+        maskPDF(PdfSource.of(input), PdfTarget.of(output), fieldsToMask);
+    }
 
-            // Save the masked document
-            document.save(outputPath);
-            debugLog("Masked PDF saved to: " + outputPath);
-        }
+    /**
+     * Mask a PDF held in memory; the buffer is read in place, not copied
+     */
+    public void maskPDF(ByteBuffer input, OutputStream output, Set<String> fieldsToMask) throws IOException {
+        maskPDF(PdfSource.of(input), PdfTarget.of(output), fieldsToMask);
     }
 
     /**
-     * Process and mask a single page with ultra-precise positioning
+     * Engine behind every maskPDF overload
      */
-    private void maskPage(PDDocument document, int pageIndex, Set<String> fieldsToMask) throws IOException {
-        PDPage page = document.getPage(pageIndex);
+    public void maskPDF(PdfSource input, PdfTarget output, Set<String> fieldsToMask) throws IOException {
+        long loadStart = System.nanoTime();
+        MaskingEvents.DocumentLoad loadEvent = new MaskingEvents.DocumentLoad();
+        loadEvent.begin();
+        try (PdfSource source = documentLoader.buffer(input);
+             PDDocument document = documentLoader.load(source)) {
+            metrics.recordSince(MaskingMetrics.Stage.LOAD, loadStart);
+            loadEvent.end();
+            if (loadEvent.shouldCommit()) {
+                loadEvent.operation = "maskPDF";
+                loadEvent.pageCount = document.getNumberOfPages();
+                loadEvent.commit();
+            }
+            metrics.recordDocument();
+            MaskingSummary summary = new MaskingSummary("maskPDF");
+            summary.setPages(document.getNumberOfPages());
+            LOG.debug("Processing PDF with {0} pages", document.getNumberOfPages());
+
+            BitSet maskedPages = new BitSet();
+            DocumentResources resources = new DocumentResources(document);
+            if (pipelineConfig != null) {
+                maskPagesInPipeline(source, resources, fieldsToMask, maskedPages, summary);
+            } else if (parallelism > 1 && document.getNumberOfPages() > 1) {
+                maskPagesInParallel(source, resources, fieldsToMask, maskedPages, summary);
+            } else {
+                // Walk the document once; each page is analyzed and masked as soon as it is extracted
+                UltraPreciseTextStripper stripper = new UltraPreciseTextStripper(fieldsToMask, summary);
+                stripper.extractPages(document, (pageIndex, page) -> {
+                    LOG.debug("Processing page {0}", pageIndex + 1);
+                    maskPage(resources, page, pageIndex, stripper.analyzePage(), maskedPages, summary);
+                });
+            }
 
-        // Extract text with ultra-precise position information
-        UltraPreciseTextStripper stripper = new UltraPreciseTextStripper(fieldsToMask);
-        stripper.setStartPage(pageIndex + 1);
-        stripper.setEndPage(pageIndex + 1);
+            if (LOG.isDebugEnabled()) {
+                for (StrategyStats stats : strategyStats.values()) {
+                    LOG.debug("Strategy {0}", stats);
+                }
+            }
 
-        String pageText = stripper.getText(document);
-        stripper.analyzeAndIdentifyFields();
+            // Save the masked document
+            if (failOnBudgetExceeded) {
+                summary.requireWithinBudget();
+            }
+            long saveStart = System.nanoTime();
+            MaskingEvents.DocumentSave saveEvent = new MaskingEvents.DocumentSave();
+            saveEvent.begin();
+            SaveMode savedAs = save(document, source, output, maskedPages);
+            metrics.recordSince(MaskingMetrics.Stage.SAVE, saveStart);
+            saveEvent.end();
+            if (saveEvent.shouldCommit()) {
+                saveEvent.mode = savedAs.name();
+                saveEvent.pageCount = document.getNumberOfPages();
+                saveEvent.maskedPages = maskedPages.cardinality();
+                saveEvent.commit();
+            }
+            LOG.info(summary::toString);
+        }
+    }
 
-        Map<String, List<PrecisionBounds>> fieldBounds = stripper.getFieldBounds();
+    /**
+     * Save in the configured mode, returning the mode actually used after any fallback.
+     * Only a failure to build the increment falls back; once the original's bytes
+     * have reached the target, a rewrite would follow them there, so errors propagate.
+     */
+    private SaveMode save(PDDocument document, PdfSource source, PdfTarget output, BitSet maskedPages) throws IOException {
+        if (saveMode == SaveMode.INCREMENTAL) {
+            String unsupported = IncrementalWriter.unsupportedReason(document, source, output);
+            IncrementalWriter.Increment increment = null;
+            if (unsupported == null) {
+                try {
+                    increment = IncrementalWriter.prepare(document, source, !maskedPages.isEmpty());
+                } catch (IOException | RuntimeException e) {
+                    unsupported = "incremental write failed: " + e.getMessage();
+                }
+            }
+            if (increment != null) {
+                try (IncrementalWriter.Increment written = increment) {
+                    written.writeTo(output);
+                }
+                return SaveMode.INCREMENTAL;
+            }
+            String reason = unsupported;
+            LOG.warn(() -> "Falling back to a full rewrite: " + reason);
+        }
+        output.save(document);
+        return SaveMode.FULL_REWRITE;
+    }
 
+    /**
+     * Process and mask a single page with ultra-precise positioning
+     */
+    private void maskPage(DocumentResources resources, PDPage page, int pageIndex,
+                          Map<String, List<PrecisionBounds>> fieldBounds, BitSet maskedPages,
+                          MaskingSummary summary) throws IOException {
+        metrics.recordPage(!fieldBounds.isEmpty());
         if (!fieldBounds.isEmpty()) {
-            applyUltraPreciseMasking(document, page, fieldBounds);
+            applyUltraPreciseMasking(resources, page, fieldBounds);
+            maskedPages.set(pageIndex);
+            summary.recordMaskedPage();
+            fieldBounds.forEach((fieldName, bounds) -> summary.recordMatches(fieldName, bounds.size()));
         } else {
-            debugLog("No fields found to mask on page " + (pageIndex + 1));
+            LOG.debug("No fields found to mask on page {0}", pageIndex + 1);
         }
     }
 
     /**
-     * Apply ultra-precise masking with multiple coverage strategies
+     * Page-parallel masking: fork-join workers analyze page ranges on their own
+     * read-only document handles, and this thread applies the results in page order
+     * to the writer document, so the output matches sequential mode byte for byte.
      */
-    private void applyUltraPreciseMasking(PDDocument document, PDPage page, Map<String, List<PrecisionBounds>> fieldBounds) throws IOException {
-        try (PDPageContentStream contentStream = new PDPageContentStream(
-                document, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
-
-            PDFont font = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
-
-            for (Map.Entry<String, List<PrecisionBounds>> entry : fieldBounds.entrySet()) {
-                String fieldName = entry.getKey();
-                List<PrecisionBounds> bounds = entry.getValue();
-
-                debugLog("\n--- Masking field: " + fieldName + " (" + bounds.size() + " instances) ---");
-
-                for (PrecisionBounds bound : bounds) {
-                    debugLog("Processing bounds: " + bound);
-
-                    // Strategy 1: Large white rectangle for complete coverage
-                    float expandedX = bound.x - 2;
-                    float expandedY = bound.y - 2;
-                    float expandedWidth = bound.width + 4;
-                    float expandedHeight = bound.height + 4;
-
-                    contentStream.setNonStrokingColor(1f, 1f, 1f); // White
-                    contentStream.addRect(expandedX, expandedY, expandedWidth, expandedHeight);
-                    contentStream.fill();
-
-                    // Strategy 2: Second layer for extra coverage
-                    contentStream.setNonStrokingColor(1f, 1f, 1f); // White again
-                    contentStream.addRect(bound.x, bound.y, bound.width, bound.height);
-                    contentStream.fill();
-
-                    // Strategy 3: Multiple mask text layers
-                    float fontSize = Math.max(6f, Math.min(bound.getAvgFontSize(), 14f));
-                    contentStream.setFont(font, fontSize);
-                    contentStream.setNonStrokingColor(0f, 0f, 0f); // Black text
-
-                    // Calculate optimal text positioning
-                    float textX = bound.x + 1;
-                    float textY = bound.y + (bound.height * 0.65f); // Position in upper part of bounds
-
-                    String maskText = generateOptimalMaskText(bound.width, fontSize);
+    private void maskPagesInParallel(PdfSource source, DocumentResources resources, Set<String> fieldsToMask,
+                                     BitSet maskedPages, MaskingSummary summary) throws IOException {
+        PDDocument document = resources.getDocument();
+        int pageCount = document.getNumberOfPages();
+        List<CompletableFuture<Map<String, List<PrecisionBounds>>>> results = new ArrayList<>(pageCount);
+        for (int i = 0; i < pageCount; i++) {
+            results.add(new CompletableFuture<>());
+        }
 
-                    debugLog("Placing mask text: '" + maskText + "' at (" + textX + ", " + textY + ")");
-                    debugLog("Font size: " + fontSize + ", Bounds: " + bound.width + "x" + bound.height);
+        Queue<PageWorker> workers = new ConcurrentLinkedQueue<>();
+        ThreadLocal<PageWorker> workerForThread = ThreadLocal.withInitial(() -> {
+            PageWorker worker = new PageWorker(source, fieldsToMask, summary);
+            workers.add(worker);
+            return worker;
+        });
 
-                    // Primary mask text
-                    contentStream.beginText();
-                    contentStream.newLineAtOffset(textX, textY);
-                    contentStream.showText(maskText);
-                    contentStream.endText();
-
-                    // Secondary mask text (slightly offset for better coverage)
-                    if (bound.height > fontSize * 1.5) {
-                        contentStream.beginText();
-                        contentStream.newLineAtOffset(textX, textY - fontSize * 0.8f);
-                        contentStream.showText(maskText);
-                        contentStream.endText();
-                    }
+        LOG.debug("Masking {0} pages with {1} workers", pageCount, parallelism);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.execute(new PageRangeTask(0, pageCount, workerForThread, results));
+
+            int pageIndex = 0;
+            for (PDPage page : document.getPages()) {
+                Map<String, List<PrecisionBounds>> fieldBounds = awaitPage(results.get(pageIndex));
+                LOG.debug("Processing page {0}", pageIndex + 1);
+                maskPage(resources, page, pageIndex, fieldBounds, maskedPages, summary);
+                pageIndex++;
+            }
+        } finally {
+            pool.shutdownNow();
+            try {
+                pool.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (PageWorker worker : workers) {
+                worker.close();
+            }
+        }
+    }
 
-                    debugLog("✓ Successfully masked " + fieldName + " using strategy: " + bound.getStrategy());
-                }
+    private static Map<String, List<PrecisionBounds>> awaitPage(
+            CompletableFuture<Map<String, List<PrecisionBounds>>> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for page analysis");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
             }
+            throw new IOException("Page analysis failed", cause);
         }
     }
 
     /**
-     * Generate optimal mask text based on available space
+     * Staged mode: extract and locate fields on stage threads,
+     * then render in page order on this thread. Field matching runs in the extract
+     * stage because bounds location reads the stripper's per-page glyph buffers.
      */
-    private String generateOptimalMaskText(float availableWidth, float fontSize) {
-        float charWidth = fontSize * 0.6f; // Approximate character width
-        int maxChars = Math.max(1, (int) (availableWidth / charWidth));
-
-        StringBuilder mask = new StringBuilder();
-        for (int i = 0; i < Math.min(maxChars, 60); i++) {
-            mask.append(MASK_CHARACTER);
-        }
-
-        return mask.toString();
+    private void maskPagesInPipeline(PdfSource source, DocumentResources resources, Set<String> fieldsToMask,
+                                     BitSet maskedPages, MaskingSummary summary) throws IOException {
+        PDDocument document = resources.getDocument();
+        PipelineConfig config = pipelineConfig;
+        StagedPipeline<Map<String, List<PrecisionBounds>>> pipeline = StagedPipeline
+                .start("extract", config.getExtractThreads(), () -> new PageWorker(source, fieldsToMask, summary));
+
+        StagedPipeline.Stats stats = pipeline.newStats("render");
+        pipelineStats = stats;
+        Iterator<PDPage> pages = document.getPages().iterator();
+        pipeline.run(document.getNumberOfPages(), config.getQueueCapacity(), config.window(false), stats,
+                (pageIndex, fieldBounds) -> {
+                    LOG.debug("Processing page {0}", pageIndex + 1);
+                    maskPage(resources, pages.next(), pageIndex, fieldBounds, maskedPages, summary);
+                });
+        LOG.debug("Pipeline stages:\n{0}", stats);
     }
 
     /**
-     * Utility method to validate PDF integrity after masking
+     * A worker thread's own document handle and stripper, kept for the whole run
      */
-    public boolean validateMaskedPDF(String originalPath, String maskedPath) {
-        try (PDDocument original = Loader.loadPDF(new File(originalPath));
-             PDDocument masked = Loader.loadPDF(new File(maskedPath))) {
+    private final class PageWorker implements StagedPipeline.Worker<Integer, Map<String, List<PrecisionBounds>>> {
+        final PDDocument document;
+        final UltraPreciseTextStripper stripper;
 
-            if (original.getNumberOfPages() != masked.getNumberOfPages()) {
-                System.err.println("Page count mismatch!");
-                return false;
+        PageWorker(PdfSource source, Set<String> fieldsToMask, MaskingSummary summary) {
+            try {
+                // Worker handles always spill past their budget rather than fail
+                MemoryMode mode = documentLoader.getMode() == MemoryMode.HEAP_ONLY ? MemoryMode.TEMP_FILE : documentLoader.getMode();
+                this.document = documentLoader.withMode(mode).withBudget(workerMemoryBytes).load(source);
+                this.stripper = new UltraPreciseTextStripper(fieldsToMask, summary);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+        }
 
-            debugLog("PDF validation successful - page count and structure preserved.");
-            return true;
+        @Override
+        public Map<String, List<PrecisionBounds>> process(int page, Integer pageIndex) throws IOException {
+            List<Map<String, List<PrecisionBounds>>> result = new ArrayList<>(1);
+            stripper.extractPages(document, pageIndex, pageIndex + 1, (index, pdPage) -> result.add(stripper.analyzePage()));
+            return result.isEmpty() ? Collections.emptyMap() : result.get(0);
+        }
 
-        } catch (IOException e) {
-            System.err.println("Error validating PDF: " + e.getMessage());
-            return false;
+        @Override
+        public void close() {
+            try {
+                document.close();
+            } catch (IOException e) {
+                LOG.warn(() -> "Failed to close worker document: " + e.getMessage());
+            }
         }
     }
 
     /**
-     * Debug logging utility
+     * Splits the page range until it is small enough for one worker pass
      */
-    private static void debugLog(String message) {
-        if (DEBUG_MODE) {
-            System.out.println("[DEBUG] " + message);
+    private final class PageRangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int fromPage;
+        private final int toPage;
+        private final ThreadLocal<PageWorker> workerForThread;
+        private final List<CompletableFuture<Map<String, List<PrecisionBounds>>>> results;
+
+        PageRangeTask(int fromPage, int toPage, ThreadLocal<PageWorker> workerForThread,
+                      List<CompletableFuture<Map<String, List<PrecisionBounds>>>> results) {
+            this.fromPage = fromPage;
+            this.toPage = toPage;
+            this.workerForThread = workerForThread;
+            this.results = results;
         }
-    }
-}
-
-// Additional utility class for custom field patterns
-class CustomFieldPattern {
-    private final String fieldName;
-    private final String regex;
-    private final boolean caseSensitive;
 
-    public CustomFieldPattern(String fieldName, String regex, boolean caseSensitive) {
-        this.fieldName = fieldName;
-        this.regex = regex;
-        this.caseSensitive = caseSensitive;
+        @Override
+        protected void compute() {
+            if (toPage - fromPage > PAGES_PER_TASK) {
+                int middle = (fromPage + toPage) >>> 1;
+                invokeAll(new PageRangeTask(fromPage, middle, workerForThread, results),
+                        new PageRangeTask(middle, toPage, workerForThread, results));
+                return;
+            }
+            try {
+                PageWorker worker = workerForThread.get();
+                worker.stripper.extractPages(worker.document, fromPage, toPage,
+                        (pageIndex, page) -> results.get(pageIndex).complete(worker.stripper.analyzePage()));
+            } catch (Throwable t) {
+                // Fail every page of the range that has no result, so the writer stops waiting
+                for (int i = fromPage; i < toPage; i++) {
+                    results.get(i).completeExceptionally(t);
+                }
+            }
+        }
     }
 
-    public String getFieldName() { return fieldName; }
-    public String getRegex() { return regex; }
-    public boolean isCaseSensitive() { return caseSensitive; }
-}
-
-// Advanced configuration and utility class
-class UltraPrecisionPDFMaskerConfig {
+    /**
+     * Locate field bounds in every page without masking; returns the number of bounds found.
+     * singlePass=false runs one stripper per page, the way maskPDF used to (kept for benchmarks).
+     */
+    int locateFields(PDDocument document, Set<String> fieldsToMask, boolean singlePass) throws IOException {
+        int[] found = new int[1];
+        if (singlePass) {
+            UltraPreciseTextStripper stripper = new UltraPreciseTextStripper(fieldsToMask);
+            stripper.extractPages(document, (pageIndex, page) -> {
+                stripper.analyzeAndIdentifyFields();
+                stripper.getFieldBounds().values().forEach(bounds -> found[0] += bounds.size());
+            });
+        } else {
+            for (int pageIndex = 0; pageIndex < document.getNumberOfPages(); pageIndex++) {
+                UltraPreciseTextStripper stripper = new UltraPreciseTextStripper(fieldsToMask);
+                stripper.setStartPage(pageIndex + 1);
+                stripper.setEndPage(pageIndex + 1);
+                stripper.getText(document);
+                stripper.analyzeAndIdentifyFields();
+                stripper.getFieldBounds().values().forEach(bounds -> found[0] += bounds.size());
+            }
+        }
+        return found[0];
+    }
 
-    public static void addCustomPattern(String fieldName, String pattern) {
-        System.out.println("Custom pattern added: " + fieldName + " -> " + pattern);
+    /**
+     * Bounds that maskPDF would cover, by zero-based page, without masking; lets a corpus be scored against its ground truth
+     */
+    Map<Integer, List<Rectangle2D.Float>> locateFieldBounds(PDDocument document, Set<String> fieldsToMask) throws IOException {
+        Map<Integer, List<Rectangle2D.Float>> located = new HashMap<>();
+        UltraPreciseTextStripper stripper = new UltraPreciseTextStripper(fieldsToMask);
+        stripper.extractPages(document, (pageIndex, page) -> {
+            List<Rectangle2D.Float> bounds = new ArrayList<>();
+            stripper.analyzePage().values().forEach(bounds::addAll);
+            if (!bounds.isEmpty()) {
+                located.put(pageIndex, bounds);
+            }
+        });
+        return located;
     }
 
     /**
-     * Advanced text positioning algorithms for different scenarios
+     * Extract one page and keep its stripper, so benchmarks can time the per-page steps on their own
      */
-    public static class PositioningStrategy {
-        public static final String INDEX_BASED = "Index-Based";
-        public static final String CHARACTER_SEQUENCE = "Character-Sequence";
-        public static final String CONTEXT_BASED = "Context-Based";
-        public static final String PATTERN_BASED = "Pattern-Based";
-        public static final String FUZZY_MATCH = "Fuzzy-Match";
-        public static final String GEOMETRIC_ANALYSIS = "Geometric-Analysis";
+    ExtractedPage extractPage(PDDocument document, int pageIndex, Set<String> fieldsToMask) throws IOException {
+        UltraPreciseTextStripper stripper = new UltraPreciseTextStripper(fieldsToMask);
+        stripper.extractPages(document, pageIndex, pageIndex + 1, (index, page) -> { });
+        return new ExtractedPage(stripper);
     }
 
     /**
-     * Precision metrics for algorithm evaluation
+     * One extracted page whose text, glyphs and indexes stay current until it is discarded
      */
-    public static class PrecisionMetrics {
-        private double accuracy;
-        private double coverage;
-        private double efficiency;
-        private String algorithm;
+    final class ExtractedPage {
+        private final UltraPreciseTextStripper stripper;
 
-        public PrecisionMetrics(double accuracy, double coverage, double efficiency, String algorithm) {
-            this.accuracy = accuracy;
-            this.coverage = coverage;
-            this.efficiency = efficiency;
-            this.algorithm = algorithm;
+        private ExtractedPage(UltraPreciseTextStripper stripper) {
+            this.stripper = stripper;
         }
 
-        public double getOverallScore() {
-            return (accuracy * 0.5) + (coverage * 0.3) + (efficiency * 0.2);
+        String getText() {
+            return stripper.fullPageText;
         }
 
-        // Getters
-        public double getAccuracy() { return accuracy; }
-        public double getCoverage() { return coverage; }
-        public double getEfficiency() { return efficiency; }
-        public String getAlgorithm() { return algorithm; }
-    }
-
-    /**
-     * Advanced coordinate system utilities
-     */
-    public static class CoordinateSystem {
+        int getGlyphCount() {
+            return stripper.glyphs.size();
+        }
 
         /**
-         * Convert PDF coordinates (bottom-left origin) to screen coordinates (top-left origin)
+         * Run field analysis afresh; returns the number of bounds found
          */
-        public static float pdfToScreen(float pdfY, float pageHeight) {
-            return pageHeight - pdfY;
+        int analyze() {
+            stripper.fieldBounds.clear();
+            stripper.analyzeAndIdentifyFields();
+            int found = 0;
+            for (List<PrecisionBounds> bounds : stripper.fieldBounds.values()) {
+                found += bounds.size();
+            }
+            return found;
         }
 
-        /**
-         * Convert screen coordinates to PDF coordinates
-         */
-        public static float screenToPdf(float screenY, float pageHeight) {
-            return pageHeight - screenY;
+        boolean findBoundsByCharacterSequence(String targetText) {
+            return stripper.findBoundsByCharacterSequence(targetText) != null;
         }
 
-        /**
-         * Calculate baseline offset for proper text positioning
-         */
-        public static float calculateBaselineOffset(float fontSize) {
-            return fontSize * 0.25f; // Approximate descender height
+        int findTextSequence(String targetText) {
+            return stripper.findTextSequence(targetText).length;
         }
 
         /**
-         * Calculate ascender height for text bounds
+         * Draw the masks of the last analysis onto the given page
          */
-        public static float calculateAscenderHeight(float fontSize) {
-            return fontSize * 0.75f; // Approximate ascender height
+        void applyMasking(DocumentResources resources, PDPage page) throws IOException {
+            applyUltraPreciseMasking(resources, page, stripper.fieldBounds);
         }
     }
 
     /**
-     * Text analysis utilities for better pattern matching
+     * Apply ultra-precise masking: the page's cover rectangles are coalesced and filled as
+     * one white path, then, unless only rectangles are wanted, rows of mask glyphs are
+     * written over each coalesced region in a single text object
      */
-    public static class TextAnalyzer {
+    private void applyUltraPreciseMasking(DocumentResources resources, PDPage page, Map<String, List<PrecisionBounds>> fieldBounds) throws IOException {
+        List<MaskGeometry.Region> covers = new ArrayList<>();
+        for (Map.Entry<String, List<PrecisionBounds>> entry : fieldBounds.entrySet()) {
+            String fieldName = entry.getKey();
+            List<PrecisionBounds> bounds = entry.getValue();
 
-        /**
-         * Calculate text similarity using Levenshtein distance
-         */
-        public static double calculateSimilarity(String text1, String text2) {
-            int maxLen = Math.max(text1.length(), text2.length());
-            if (maxLen == 0) return 1.0;
-
-            int distance = levenshteinDistance(text1, text2);
-            return 1.0 - ((double) distance / maxLen);
-        }
-
-        private static int levenshteinDistance(String s1, String s2) {
-            int[][] dp = new int[s1.length() + 1][s2.length() + 1];
-
-            for (int i = 0; i <= s1.length(); i++) {
-                for (int j = 0; j <= s2.length(); j++) {
-                    if (i == 0) {
-                        dp[i][j] = j;
-                    } else if (j == 0) {
-                        dp[i][j] = i;
-                    } else {
-                        dp[i][j] = Math.min(
-                                dp[i - 1][j - 1] + (s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1),
-                                Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1)
-                        );
-                    }
-                }
-            }
+            LOG.trace("Masking field {0}: {1} instances", fieldName, bounds.size());
 
-            return dp[s1.length()][s2.length()];
+            for (PrecisionBounds bound : bounds) {
+                // Cover the bounds with a 2pt margin; the glyph size is clamped for the mask text
+                float fontSize = Math.max(6f, Math.min(bound.getAvgFontSize(), 14f));
+                covers.add(new MaskGeometry.Region(bound.x - 2, bound.y - 2,
+                        bound.x + bound.width + 2, bound.y + bound.height + 2, fontSize));
+            }
         }
 
-        /**
-         * Normalize text for better matching
-         */
-        public static String normalizeText(String text) {
-            return text.toLowerCase()
-                    .replaceAll("\\s+", " ")
-                    .replaceAll("[^\\w\\s@.-]", "")
-                    .trim();
+        if (covers.isEmpty()) {
+            return;
         }
+        List<MaskGeometry.Region> regions = MaskGeometry.union(covers);
+        LOG.trace("Coalesced {0} mask rectangles into {1}", covers.size(), regions.size());
 
-        /**
-         * Extract word boundaries for better name matching
-         */
-        public static List<String> extractWords(String text) {
-            return Arrays.asList(text.split("\\s+"));
+        try (PDPageContentStream contentStream = new PDPageContentStream(
+                resources.getDocument(), page, PDPageContentStream.AppendMode.APPEND, true, true)) {
+
+            contentStream.setNonStrokingColor(1f, 1f, 1f); // White
+            for (MaskGeometry.Region region : regions) {
+                contentStream.addRect(region.minX, region.minY, region.getWidth(), region.getHeight());
+            }
+            contentStream.fill();
+
+            if (maskStyle == MaskStyle.RECTANGLES_ONLY) {
+                return;
+            }
+
+            // One font object for the whole document; each page's resources only reference it
+            PDFont font = resources.font(MASK_FONT);
+            contentStream.setNonStrokingColor(0f, 0f, 0f); // Black text
+            contentStream.beginText();
+            float currentFontSize = 0;
+            for (MaskGeometry.Region region : regions) {
+                // Glyph rows go inside the 2pt margin, where the matched text was
+                float width = region.getWidth() - 4;
+                float height = region.getHeight() - 4;
+                if (width <= 0 || height <= 0) {
+                    continue; // Sliver left where regions of different heights meet
+                }
+                float fontSize = region.glyphSize;
+                if (fontSize != currentFontSize) {
+                    contentStream.setFont(font, fontSize);
+                    currentFontSize = fontSize;
+                }
+
+                float textX = region.minX + 3;
+                float textY = region.minY + 2 + height * 0.65f; // Upper part of the bounds
+                String maskText = generateOptimalMaskText(font, width, fontSize);
+
+                contentStream.setTextMatrix(Matrix.getTranslateInstance(textX, textY));
+                contentStream.showText(maskText);
+
+                // Second row for extra coverage on tall bounds
+                if (height > fontSize * 1.5) {
+                    contentStream.setTextMatrix(Matrix.getTranslateInstance(textX, textY - fontSize * 0.8f));
+                    contentStream.showText(maskText);
+                }
+            }
+            contentStream.endText();
         }
     }
 
     /**
-     * Geometric analysis utilities for text positioning
+     * Generate optimal mask text based on available space
      */
-    public static class GeometricAnalyzer {
+    private String generateOptimalMaskText(PDFont font, float availableWidth, float fontSize) throws IOException {
+        float charWidth = font.getStringWidth(MASK_CHARACTER) / 1000f * fontSize;
+        int maxChars = Math.max(1, (int) (availableWidth / charWidth));
 
-        /**
-         * Calculate the center point of a text region
-         */
-        public static float[] calculateCenter(List<Float> xCoords, List<Float> yCoords) {
-            float centerX = (float) xCoords.stream().mapToDouble(Float::doubleValue).average().orElse(0);
-            float centerY = (float) yCoords.stream().mapToDouble(Float::doubleValue).average().orElse(0);
-            return new float[]{centerX, centerY};
+        StringBuilder mask = new StringBuilder();
+        for (int i = 0; i < Math.min(maxChars, 60); i++) {
+            mask.append(MASK_CHARACTER);
         }
 
-        /**
-         * Calculate the bounding box that encompasses all text positions
-         */
-        public static float[] calculateBoundingBox(List<Float> xCoords, List<Float> yCoords,
-                                                   List<Float> widths, List<Float> heights) {
-            float minX = Collections.min(xCoords);
-            float maxX = Collections.max(xCoords.stream()
-                    .mapToInt(i -> xCoords.indexOf(i))
-                    .mapToObj(i -> xCoords.get(i) + widths.get(i))
-                    .collect(ArrayList::new, ArrayList::add, ArrayList::addAll));
+        return mask.toString();
+    }
 
-            float minY = Collections.min(yCoords.stream()
-                    .mapToInt(i -> yCoords.indexOf(i))
-                    .mapToObj(i -> yCoords.get(i) - heights.get(i))
-                    .collect(ArrayList::new, ArrayList::add, ArrayList::addAll));
-            float maxY = Collections.max(yCoords);
+    /**
+     * Utility method to validate PDF integrity after masking
+     */
+    public boolean validateMaskedPDF(String originalPath, String maskedPath) {
+        try (PDDocument original = documentLoader.load(new File(originalPath));
+             PDDocument masked = documentLoader.load(new File(maskedPath))) {
 
-            return new float[]{minX, minY, maxX - minX, maxY - minY};
+            if (original.getNumberOfPages() != masked.getNumberOfPages()) {
+                LOG.warn(() -> "Page count mismatch: " + maskedPath);
+                return false;
+            }
+
+            LOG.debug("PDF validation successful: {0}", maskedPath);
+            return true;
+
+        } catch (IOException e) {
+            LOG.error("Error validating PDF " + maskedPath, e);
+            return false;
         }
+    }
+}
 
-        /**
-         * Check if two rectangles overlap
-         */
-        public static boolean rectanglesOverlap(float x1, float y1, float w1, float h1,
-                                                float x2, float y2, float w2, float h2) {
-            return !(x1 + w1 <= x2 || x2 + w2 <= x1 || y1 + h1 <= y2 || y2 + h2 <= y1);
-        }
-    }
-
-    public static void demonstrateUsage() {
-        System.out.println("\n=== ULTRA-PRECISE PDF MASKER ===");
-        System.out.println("Advanced masking with multiple precision algorithms");
-        System.out.println("\n1. Basic usage:");
-        System.out.println("   java AdvancedPDFMasker input.pdf output.pdf");
-        System.out.println("\n2. Mask specific fields:");
-        System.out.println("   java AdvancedPDFMasker input.pdf output.pdf Name:,Email:");
-        System.out.println("\n3. Supported field patterns:");
-        System.out.println("   - Name: (names with letters and spaces)");
-        System.out.println("   - Email: (valid email addresses)");
-        System.out.println("   - Phone: (phone numbers with various formats)");
-        System.out.println("   - SSN: (social security numbers)");
-        System.out.println("   - Address: (street addresses)");
-        System.out.println("   - DOB: (dates of birth)");
-        System.out.println("\n=== PRECISION ALGORITHMS ===");
-        System.out.println("This masker uses 6 different precision strategies:");
-        System.out.println("1. Index-Based: Uses exact character positions from regex matches");
-        System.out.println("2. Character-Sequence: Matches exact character sequences");
-        System.out.println("3. Context-Based: Uses surrounding text (labels) for positioning");
-        System.out.println("4. Pattern-Based: Field-specific matching algorithms");
-        System.out.println("5. Fuzzy-Match: Handles OCR errors and formatting variations");
-        System.out.println("6. Geometric-Analysis: Uses spatial relationships between text elements");
-        System.out.println("\n=== MASKING STRATEGIES ===");
-        System.out.println("Multiple coverage layers ensure complete text removal:");
-        System.out.println("- Expanded white rectangle for complete coverage");
-        System.out.println("- Precise white rectangle matching text bounds");
-        System.out.println("- Multiple mask text layers with solid block characters");
-        System.out.println("- Baseline-aware positioning for proper text alignment");
-        System.out.println("\n=== PDFBox 3.0.5 COMPATIBILITY ===");
-        System.out.println("- Full compatibility with Apache PDFBox 3.0.5");
-        System.out.println("- Uses Standard14Fonts enum for font management");
-        System.out.println("- Proper document reference handling");
-        System.out.println("- Enhanced coordinate system management");
-        System.out.println("- Optimized for Java 11+ environments");
-        System.out.println("\n=== DEBUG MODE ===");
-        System.out.println("Enable DEBUG_MODE = true for detailed analysis output:");
-        System.out.println("- Text extraction details");
-        System.out.println("- Pattern matching results");
-        System.out.println("- Coordinate calculations");
-        System.out.println("- Strategy selection process");
-        System.out.println("- Masking application steps");
-    }
-}
\ No newline at end of file
+// Additional utility class for custom field patterns
+class CustomFieldPattern {
+    private final String fieldName;
+    private final String regex;
+    private final boolean caseSensitive;
+
+    public CustomFieldPattern(String fieldName, String regex, boolean caseSensitive) {
+        this.fieldName = fieldName;
+        this.regex = regex;
+        this.caseSensitive = caseSensitive;
+    }
+
+    public String getFieldName() { return fieldName; }
+    public String getRegex() { return regex; }
+    public boolean isCaseSensitive() { return caseSensitive; }
+}
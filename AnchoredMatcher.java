@@ -0,0 +1,50 @@
+package org.example;
+
+/**
+ * Drives a rule session only at label anchors reported by a LabelAutomaton.
+ * Every match of a prefiltered rule starts at one of its anchors, so trying
+ * lookingAt() at each anchor in ascending order yields exactly the matches
+ * find() would, without scanning the text between anchors.
+ */
+final class AnchoredMatcher {
+
+    private final RuleMatcher.Session session;
+    private final int[] anchors;
+    private int nextAnchor;
+    private int cursor;
+
+    /**
+     * @param anchors sorted label start offsets, or null to fall back to a plain find()
+     */
+    AnchoredMatcher(RuleMatcher.Session session, int[] anchors) {
+        this.session = session;
+        this.anchors = anchors;
+    }
+
+    boolean find() {
+        if (anchors == null) {
+            if (cursor > session.textLength() || !session.find(cursor)) {
+                cursor = session.textLength() + 1;
+                return false;
+            }
+            // Step past empty matches the way Matcher.find() does
+            cursor = session.end(0) == session.start(0) ? session.end(0) + 1 : session.end(0);
+            return true;
+        }
+        while (nextAnchor < anchors.length) {
+            int anchor = anchors[nextAnchor++];
+            if (anchor < cursor) {
+                continue;
+            }
+            if (session.lookingAt(anchor)) {
+                cursor = session.end(0);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    RuleMatcher.Session session() {
+        return session;
+    }
+}
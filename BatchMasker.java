@@ -0,0 +1,352 @@
+package org.example;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Masks a directory or manifest of PDFs, one task per document.
+ * Tasks run on virtual threads when the runtime has them and on a small
+ * platform pool otherwise; in both cases concurrency is decided by the
+ * AdmissionController, which lets a document start only when its estimated
+ * heap cost fits in the remaining budget.
+ */
+public class BatchMasker {
+
+    // Heap estimate: the parsed document is a few times its file size, plus extraction buffers per page
+    private static final long HEAP_BYTES_PER_FILE_BYTE = 3;
+    private static final long HEAP_BYTES_PER_PAGE = 256L * 1024;
+    private static final double DEFAULT_BUDGET_SHARE = 0.6;
+
+    /**
+     * Masks one document; implementations must be safe to call from several threads
+     */
+    public interface DocumentMasker {
+        void mask(File input, File output) throws IOException;
+    }
+
+    private final DocumentMasker masker;
+    private final AdmissionController admission;
+
+    public BatchMasker(DocumentMasker masker) {
+        this(masker, (long) (Runtime.getRuntime().maxMemory() * DEFAULT_BUDGET_SHARE));
+    }
+
+    public BatchMasker(DocumentMasker masker, long heapBudgetBytes) {
+        this.masker = masker;
+        this.admission = new AdmissionController(heapBudgetBytes);
+    }
+
+    /**
+     * Coordinate-preserving masking of the given fields with AdvancedPDFMasker
+     */
+    public static DocumentMasker advanced(AdvancedPDFMasker masker, Set<String> fieldsToMask) {
+        return (input, output) -> masker.maskPDF(input.getPath(), output.getPath(), fieldsToMask);
+    }
+
+    /**
+     * Text re-rendering with FieldBasedPDFMasker's per-page mode
+     */
+    public static DocumentMasker fieldBased(FieldBasedPDFMasker masker, List<String> fieldsToMask) {
+        return (input, output) -> masker.maskPDFByFieldNamesPerPage(PdfSource.of(input), PdfTarget.of(output), fieldsToMask);
+    }
+
+    /**
+     * Mask every .pdf file directly inside a directory into the output directory, keeping file names
+     */
+    public BatchReport maskDirectory(Path inputDirectory, Path outputDirectory) throws IOException {
+        List<Path> inputs;
+        try (Stream<Path> files = Files.list(inputDirectory)) {
+            inputs = files.filter(path -> Files.isRegularFile(path)
+                            && path.getFileName().toString().toLowerCase().endsWith(".pdf"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        Map<Path, Path> jobs = new LinkedHashMap<>();
+        for (Path input : inputs) {
+            jobs.put(input, outputDirectory.resolve(input.getFileName()));
+        }
+        return maskAll(jobs, outputDirectory);
+    }
+
+    /**
+     * Mask the documents listed in a manifest: one "input[,output]" per line, '#' starts a comment.
+     * Relative paths resolve against the manifest's directory; a missing output goes to the output directory.
+     */
+    public BatchReport maskManifest(Path manifest, Path outputDirectory) throws IOException {
+        Path base = manifest.toAbsolutePath().getParent();
+        Map<Path, Path> jobs = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(manifest)) {
+            String entry = line.trim();
+            if (entry.isEmpty() || entry.startsWith("#")) {
+                continue;
+            }
+            String[] parts = entry.split(",", 2);
+            Path input = base.resolve(parts[0].trim());
+            Path output = parts.length > 1 && !parts[1].trim().isEmpty()
+                    ? base.resolve(parts[1].trim())
+                    : outputDirectory.resolve(input.getFileName());
+            jobs.put(input, output);
+        }
+        return maskAll(jobs, outputDirectory);
+    }
+
+    private BatchReport maskAll(Map<Path, Path> jobs, Path outputDirectory) throws IOException {
+        Files.createDirectories(outputDirectory);
+        long started = System.nanoTime();
+
+        List<Future<FileResult>> futures = new ArrayList<>(jobs.size());
+        ExecutorService executor = newDocumentExecutor();
+        try {
+            for (Map.Entry<Path, Path> job : jobs.entrySet()) {
+                Path input = job.getKey();
+                Path output = job.getValue();
+                // Sized here, one file at a time, so only one page-count load is ever live
+                long fileBytes = input.toFile().length();
+                int pages;
+                try {
+                    pages = countPages(input.toFile());
+                } catch (IOException e) {
+                    futures.add(CompletableFuture.completedFuture(
+                            new FileResult(input, output, String.valueOf(e.getMessage()), 0, fileBytes, 0, 0, 0)));
+                    continue;
+                }
+                futures.add(executor.submit(() -> maskOne(input, output, fileBytes, pages)));
+            }
+
+            List<FileResult> results = new ArrayList<>(futures.size());
+            for (Future<FileResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for batch results", e);
+                } catch (ExecutionException e) {
+                    // maskOne reports its own failures; anything here is a bug
+                    throw new IllegalStateException("Batch task failed", e.getCause());
+                }
+            }
+            return new BatchReport(results, System.nanoTime() - started,
+                    admission.getBudgetBytes(), admission.getPeakReservedBytes());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private FileResult maskOne(Path input, Path output, long fileBytes, int pages) {
+        long started = System.nanoTime();
+        try {
+            long cost = estimateHeapCost(fileBytes, pages);
+
+            long queued = System.nanoTime();
+            long reserved = admission.acquire(cost);
+            long admitted = System.nanoTime();
+            try {
+                Files.createDirectories(output.toAbsolutePath().getParent());
+                masker.mask(input.toFile(), output.toFile());
+                return new FileResult(input, output, null, pages, fileBytes, cost,
+                        admitted - queued, System.nanoTime() - admitted);
+            } finally {
+                admission.release(reserved);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new FileResult(input, output, "interrupted", pages, fileBytes, 0, 0, System.nanoTime() - started);
+        } catch (Exception e) {
+            return new FileResult(input, output, String.valueOf(e.getMessage()), pages, fileBytes, 0,
+                    0, System.nanoTime() - started);
+        }
+    }
+
+    // Page count from the cross-reference table and the page tree root; page objects and content
+    // streams are not parsed, but the table takes roughly the file's size in transient heap
+    private static int countPages(File input) throws IOException {
+        try (PDDocument document = Loader.loadPDF(input, MemoryUsageSetting.setupTempFileOnly().streamCache)) {
+            return document.getNumberOfPages();
+        }
+    }
+
+    static long estimateHeapCost(long fileBytes, int pages) {
+        return fileBytes * HEAP_BYTES_PER_FILE_BYTE + Math.max(1, pages) * HEAP_BYTES_PER_PAGE;
+    }
+
+    /**
+     * One virtual thread per document on Java 21+; earlier runtimes get a pool sized to the CPUs,
+     * since admission, not the pool, bounds concurrency
+     */
+    private static ExecutorService newDocumentExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread = new Thread(runnable, "batch-document");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Outcome of one document
+     */
+    public static final class FileResult {
+        private final Path input;
+        private final Path output;
+        private final String error;
+        private final int pages;
+        private final long fileBytes;
+        private final long estimatedHeapBytes;
+        private final long queuedNanos;
+        private final long elapsedNanos;
+
+        FileResult(Path input, Path output, String error, int pages, long fileBytes,
+                   long estimatedHeapBytes, long queuedNanos, long elapsedNanos) {
+            this.input = input;
+            this.output = output;
+            this.error = error;
+            this.pages = pages;
+            this.fileBytes = fileBytes;
+            this.estimatedHeapBytes = estimatedHeapBytes;
+            this.queuedNanos = queuedNanos;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Path getInput() { return input; }
+        public Path getOutput() { return output; }
+        public boolean isSuccess() { return error == null; }
+        public String getError() { return error; }
+        public int getPages() { return pages; }
+        public long getFileBytes() { return fileBytes; }
+        public long getEstimatedHeapBytes() { return estimatedHeapBytes; }
+
+        /** Time spent waiting for admission */
+        public long getQueuedNanos() { return queuedNanos; }
+
+        /** Time spent masking once admitted */
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        @Override
+        public String toString() {
+            return String.format("%-6s %6d pages %10d bytes  queued %8.1f ms  masked %8.1f ms  %s%s",
+                    isSuccess() ? "OK" : "FAILED", pages, fileBytes, queuedNanos / 1e6, elapsedNanos / 1e6,
+                    input.getFileName(), isSuccess() ? "" : "  (" + error + ")");
+        }
+    }
+
+    /**
+     * Per-file results and aggregate throughput of one batch
+     */
+    public static final class BatchReport {
+        private final List<FileResult> results;
+        private final long wallNanos;
+        private final long budgetBytes;
+        private final long peakReservedBytes;
+
+        BatchReport(List<FileResult> results, long wallNanos, long budgetBytes, long peakReservedBytes) {
+            this.results = Collections.unmodifiableList(results);
+            this.wallNanos = wallNanos;
+            this.budgetBytes = budgetBytes;
+            this.peakReservedBytes = peakReservedBytes;
+        }
+
+        public List<FileResult> getResults() { return results; }
+        public long getWallNanos() { return wallNanos; }
+
+        public int getSucceeded() {
+            return (int) results.stream().filter(FileResult::isSuccess).count();
+        }
+
+        public int getFailed() {
+            return results.size() - getSucceeded();
+        }
+
+        public long getPagesMasked() {
+            return results.stream().filter(FileResult::isSuccess).mapToLong(FileResult::getPages).sum();
+        }
+
+        public long getBytesMasked() {
+            return results.stream().filter(FileResult::isSuccess).mapToLong(FileResult::getFileBytes).sum();
+        }
+
+        public double getPagesPerSecond() {
+            return wallNanos == 0 ? 0 : getPagesMasked() / (wallNanos / 1e9);
+        }
+
+        public double getMegabytesPerSecond() {
+            return wallNanos == 0 ? 0 : getBytesMasked() / 1e6 / (wallNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder();
+            for (FileResult result : results) {
+                report.append(result).append('\n');
+            }
+            report.append(String.format("%d files, %d ok, %d failed, %d pages in %.2f s: %.1f pages/s, %.2f MB/s%n",
+                    results.size(), getSucceeded(), getFailed(), getPagesMasked(), wallNanos / 1e9,
+                    getPagesPerSecond(), getMegabytesPerSecond()));
+            report.append(String.format("heap budget %d MB, peak admitted %d MB",
+                    budgetBytes >> 20, peakReservedBytes >> 20));
+            return report.toString();
+        }
+    }
+
+    /**
+     * Usage: BatchMasker &lt;input dir | manifest&gt; &lt;output dir&gt; [field,field,...] [--field-based] [--heap-budget-mb N]
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: BatchMasker <input dir | manifest> <output dir> [field,field,...]"
+                    + " [--field-based] [--heap-budget-mb N]");
+            System.exit(2);
+        }
+
+        Path input = Paths.get(args[0]);
+        Path outputDirectory = Paths.get(args[1]);
+        List<String> fields = new ArrayList<>();
+        boolean fieldBased = false;
+        long budgetBytes = 0;
+
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--field-based")) {
+                fieldBased = true;
+            } else if (args[i].equals("--heap-budget-mb") && i + 1 < args.length) {
+                budgetBytes = Long.parseLong(args[++i]) << 20;
+            } else {
+                Collections.addAll(fields, args[i].split(","));
+            }
+        }
+
+        DocumentMasker masker;
+        if (fieldBased) {
+            masker = fieldBased(new FieldBasedPDFMasker(), fields.isEmpty() ? Arrays.asList("Name", "Email") : fields);
+        } else {
+            masker = advanced(new AdvancedPDFMasker(),
+                    fields.isEmpty() ? AdvancedPDFMasker.supportedFields() : new HashSet<>(fields));
+        }
+        BatchMasker batch = budgetBytes > 0 ? new BatchMasker(masker, budgetBytes) : new BatchMasker(masker);
+
+        try {
+            BatchReport report = Files.isDirectory(input)
+                    ? batch.maskDirectory(input, outputDirectory)
+                    : batch.maskManifest(input, outputDirectory);
+            System.out.println(report);
+            if (report.getFailed() > 0) {
+                System.exit(1);
+            }
+        } catch (IOException e) {
+            System.err.println("Batch masking failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.example;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable, pre-compiled set of field masking rules.
+ * Built once from FieldMaskingRule definitions and safe to share across threads and documents.
+ * Dynamic field patterns are compiled on first use and memoized per field name.
+ * Matchers are compiled for the MatchingEngine the set was built with.
+ */
+final class CompiledRuleSet {
+
+    static final int PATTERN_FLAGS = Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL;
+    static final String DEFAULT_MASK_VALUE = "XXXXX";
+
+    private final Map<String, FieldBasedPDFMasker.FieldMaskingRule> rulesByField;
+    private final List<FieldBasedPDFMasker.FieldMaskingRule> orderedRules;
+    private final MatchingEngine engine;
+    private final ConcurrentHashMap<String, List<Pattern>> dynamicPatterns = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, List<RuleMatcher>> dynamicMatchers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<List<String>, MultiFieldScanner> scanners = new ConcurrentHashMap<>();
+    private final MultiFieldScanner allRulesScanner;
+    private final ConcurrentHashMap<MatchingMode, CompiledRuleSet> variants = new ConcurrentHashMap<>();
+
+    CompiledRuleSet(Map<String, FieldBasedPDFMasker.FieldMaskingRule> fieldRules) {
+        this(fieldRules, MatchingEngine.BACKTRACKING);
+    }
+
+    CompiledRuleSet(Map<String, FieldBasedPDFMasker.FieldMaskingRule> fieldRules, MatchingEngine engine) {
+        this.engine = engine;
+        // Keep the caller's iteration order so "apply all rules" behaves as before
+        this.orderedRules = Collections.unmodifiableList(new ArrayList<>(fieldRules.values()));
+        this.rulesByField = Collections.unmodifiableMap(new HashMap<>(fieldRules));
+        this.allRulesScanner = MultiFieldScanner.forRules(orderedRules, engine);
+    }
+
+    /**
+     * Same rules compiled for another engine, memoized per mode; returns this set when the mode already matches
+     */
+    CompiledRuleSet withEngine(MatchingEngine other) {
+        if (other.getMode() == engine.getMode()) {
+            return this;
+        }
+        return variants.computeIfAbsent(other.getMode(), mode -> {
+            Map<String, FieldBasedPDFMasker.FieldMaskingRule> ordered = new LinkedHashMap<>();
+            for (FieldBasedPDFMasker.FieldMaskingRule rule : orderedRules) {
+                ordered.put(rule.getFieldType().toLowerCase(), rule);
+            }
+            return new CompiledRuleSet(ordered, other);
+        });
+    }
+
+    MatchingEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Look up a predefined rule by its normalized (lower-case, trimmed) field key
+     */
+    FieldBasedPDFMasker.FieldMaskingRule getRule(String fieldKey) {
+        return rulesByField.get(fieldKey);
+    }
+
+    /**
+     * All predefined rules in definition order
+     */
+    List<FieldBasedPDFMasker.FieldMaskingRule> getRules() {
+        return orderedRules;
+    }
+
+    /**
+     * Compiled dynamic patterns for a field without a predefined rule, memoized per field name
+     */
+    List<Pattern> getDynamicPatterns(String fieldName) {
+        return dynamicPatterns.computeIfAbsent(fieldName.trim(), CompiledRuleSet::compileDynamicPatterns);
+    }
+
+    /**
+     * Dynamic patterns compiled for this set's engine, memoized per field name
+     */
+    List<RuleMatcher> getDynamicMatchers(String fieldName) {
+        return dynamicMatchers.computeIfAbsent(fieldName.trim(), name -> {
+            List<RuleMatcher> matchers = new ArrayList<>();
+            for (Pattern pattern : getDynamicPatterns(name)) {
+                matchers.add(engine.compile(name, pattern));
+            }
+            return Collections.unmodifiableList(matchers);
+        });
+    }
+
+    /**
+     * Single-pass scanner for the requested fields, memoized per field list
+     */
+    MultiFieldScanner getScanner(List<String> fieldsToMask) {
+        return scanners.computeIfAbsent(List.copyOf(fieldsToMask),
+                fields -> MultiFieldScanner.forFields(this, fields, DEFAULT_MASK_VALUE));
+    }
+
+    /**
+     * Single-pass scanner over every predefined rule
+     */
+    MultiFieldScanner getAllRulesScanner() {
+        return allRulesScanner;
+    }
+
+    private static List<Pattern> compileDynamicPatterns(String fieldName) {
+        List<Pattern> compiled = new ArrayList<>();
+        for (String patternStr : createDynamicPatterns(fieldName)) {
+            compiled.add(Pattern.compile(patternStr, PATTERN_FLAGS));
+        }
+        return Collections.unmodifiableList(compiled);
+    }
+
+    // Enhanced pattern creation with more comprehensive matching
+    static List<String> createDynamicPatterns(String fieldName) {
+        List<String> patterns = new ArrayList<>();
+        String escapedFieldName = Pattern.quote(fieldName.trim());
+
+        // More flexible patterns to handle various formats
+        patterns.add("(?i)(" + escapedFieldName + ")\\s*:\\s*([^\\n\\r]+?)(?=\\s*\\n|\\s*$|\\s{3,})");
+        patterns.add("(?i)(" + escapedFieldName + ")\\s*=\\s*([^\\n\\r]+?)(?=\\s*\\n|\\s*$|\\s{3,})");
+        patterns.add("(?i)(" + escapedFieldName + ")\\s*-\\s*([^\\n\\r]+?)(?=\\s*\\n|\\s*$|\\s{3,})");
+        patterns.add("(?i)(" + escapedFieldName + ")\\s{2,}([^\\n\\r]+?)(?=\\s*\\n|\\s*$|\\s{3,})");
+        patterns.add("(?i)(" + escapedFieldName + ")\\s*[:\\-=]\\s*([^\\n\\r,;]+?)(?=\\s*\\n|\\s*$|\\s{3,})");
+
+        return patterns;
+    }
+}
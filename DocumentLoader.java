@@ -0,0 +1,138 @@
+package org.example;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessStreamCache;
+import org.apache.pdfbox.pdfparser.PDFParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Opens input documents and creates output documents according to a MemoryMode
+ * and a per-document heap budget for PDFBox's stream cache.
+ * In HEAP_ONLY mode the budget is a hard limit: PDFBox fails the document instead
+ * of growing past it. In the other modes it is the point where buffers spill to
+ * temp files. Loaded documents can share a bounded ExtractionResourceCache
+ * instead of PDFBox's per-document one. Immutable, so one loader can be shared
+ * by all worker threads.
+ */
+final class DocumentLoader {
+
+    static final long UNLIMITED = -1;
+
+    // Stream input up to this size is buffered in memory when no budget is set
+    private static final long DEFAULT_IN_MEMORY_INPUT_BYTES = 64L * 1024 * 1024;
+
+    static final DocumentLoader DEFAULT = new DocumentLoader(MemoryMode.HEAP_ONLY, UNLIMITED, null);
+
+    private final MemoryMode mode;
+    private final long budgetBytes;
+    private final ExtractionResourceCache resourceCache; // null = PDFBox's per-document cache
+
+    DocumentLoader(MemoryMode mode, long budgetBytes, ExtractionResourceCache resourceCache) {
+        if (mode == null) {
+            throw new IllegalArgumentException("Memory mode must not be null");
+        }
+        this.mode = mode;
+        this.budgetBytes = budgetBytes > 0 ? budgetBytes : UNLIMITED;
+        this.resourceCache = resourceCache;
+    }
+
+    MemoryMode getMode() {
+        return mode;
+    }
+
+    long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    ExtractionResourceCache getResourceCache() {
+        return resourceCache;
+    }
+
+    DocumentLoader withMode(MemoryMode mode) {
+        return new DocumentLoader(mode, budgetBytes, resourceCache);
+    }
+
+    DocumentLoader withBudget(long budgetBytes) {
+        return new DocumentLoader(mode, budgetBytes, resourceCache);
+    }
+
+    DocumentLoader withResourceCache(ExtractionResourceCache resourceCache) {
+        return new DocumentLoader(mode, budgetBytes, resourceCache);
+    }
+
+    PDDocument load(File input) throws IOException {
+        return load(PdfSource.of(input));
+    }
+
+    /**
+     * Open a buffered source; in-memory sources are read in place in every mode
+     */
+    PDDocument load(PdfSource input) throws IOException {
+        RandomAccessRead source = input.open(mode == MemoryMode.MEMORY_MAPPED);
+        try {
+            // The document closes its source
+            return resourceCache == null ? Loader.loadPDF(source, streamCache()) : parse(source);
+        } catch (IOException | RuntimeException e) {
+            source.close();
+            throw e;
+        }
+    }
+
+    // What Loader.loadPDF does, but the document gets a cache scope that is purged when it closes
+    private PDDocument parse(RandomAccessRead source) throws IOException {
+        ExtractionResourceCache.Scope scope = resourceCache.openScope();
+        PDFParser parser = new PDFParser(source, "", null, null, streamCache()) {
+            @Override
+            protected PDDocument createDocument() throws IOException {
+                return new PDDocument(document, source, getAccessPermission()) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            scope.close();
+                        }
+                    }
+                };
+            }
+        };
+        PDDocument document = parser.parse();
+        document.setResourceCache(scope);
+        return document;
+    }
+
+    /**
+     * Buffer stream input so it can be opened repeatedly: in memory up to the budget, else in a temp file
+     */
+    PdfSource buffer(PdfSource input) throws IOException {
+        return input.buffered(budgetBytes == UNLIMITED ? DEFAULT_IN_MEMORY_INPUT_BYTES : budgetBytes);
+    }
+
+    /**
+     * Empty output document whose new content streams follow the same budget
+     */
+    PDDocument create() {
+        return new PDDocument(streamCache());
+    }
+
+    RandomAccessStreamCache.StreamCacheCreateFunction streamCache() {
+        if (mode == MemoryMode.HEAP_ONLY) {
+            return budgetBytes == UNLIMITED
+                    ? MemoryUsageSetting.setupMainMemoryOnly().streamCache
+                    : MemoryUsageSetting.setupMainMemoryOnly(budgetBytes).streamCache;
+        }
+        return budgetBytes == UNLIMITED
+                ? MemoryUsageSetting.setupTempFileOnly().streamCache
+                : MemoryUsageSetting.setupMixed(budgetBytes).streamCache;
+    }
+
+    @Override
+    public String toString() {
+        return mode + (budgetBytes == UNLIMITED ? "" : " (" + (budgetBytes >> 20) + " MB)");
+    }
+}
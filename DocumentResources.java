@@ -0,0 +1,51 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Fonts and page resources shared by every page a masker writes into one document.
+ * A PDType1Font built per page becomes a separate font dictionary in the output
+ * for each page; handing out one instance per font keeps it a single object that
+ * every page's resources point to. Pages created here additionally share one
+ * resource dictionary. Not thread-safe: pages are written on one thread.
+ */
+final class DocumentResources {
+
+    private final PDDocument document;
+    private final Map<Standard14Fonts.FontName, PDFont> fonts = new EnumMap<>(Standard14Fonts.FontName.class);
+    private PDResources pageResources;
+
+    DocumentResources(PDDocument document) {
+        this.document = document;
+    }
+
+    PDDocument getDocument() {
+        return document;
+    }
+
+    PDFont font(Standard14Fonts.FontName name) {
+        return fonts.computeIfAbsent(name, PDType1Font::new);
+    }
+
+    /**
+     * New page appended to the document, using the resource dictionary shared by all pages created here
+     */
+    PDPage addPage(PDRectangle mediaBox) {
+        if (pageResources == null) {
+            pageResources = new PDResources();
+        }
+        PDPage page = new PDPage(mediaBox);
+        page.setResources(pageResources);
+        document.addPage(page);
+        return page;
+    }
+}
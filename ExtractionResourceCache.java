@@ -0,0 +1,335 @@
+package org.example;
+
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.pdmodel.ResourceCache;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.documentinterchange.markedcontent.PDPropertyList;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.pattern.PDAbstractPattern;
+import org.apache.pdfbox.pdmodel.graphics.shading.PDShading;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of the fonts, color spaces and other resources PDFBox parses while
+ * extracting text, with one byte budget shared by every document a masker opens.
+ * Each document gets its own least-recently-used Scope. A document is only read
+ * by one thread at a time, so a scope needs no lock, and page workers on their
+ * own handles never contend; only the budget and the counters are shared, as
+ * atomics. Entries are weighed by the bytes behind them, mainly embedded font
+ * programs and XObject streams, so a few large fonts cannot hold the heap the
+ * way a count bound lets them. When the budget is exceeded, a document evicts
+ * its own least recently used entries; a resource that still does not fit is
+ * not cached. Values are soft references, so the collector can reclaim them
+ * under pressure before the budget is reached.
+ * The cache also replaces PDFBox's habit of dropping a page's resources after
+ * extracting it, which re-parses a font shared by every page once per page.
+ * A document's entries are released when it is closed, because they reference
+ * its parser and would otherwise keep the closed document alive.
+ */
+final class ExtractionResourceCache {
+
+    static final long DEFAULT_BYTES = 32L * 1024 * 1024;
+
+    // Wrapper objects and dictionaries of any resource, and parsed size per byte of an embedded font program
+    private static final long ENTRY_OVERHEAD_BYTES = 2 * 1024;
+    private static final long PARSED_FONT_BYTES_PER_BYTE = 4;
+
+    private final long maxBytes;
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicInteger entryCount = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    ExtractionResourceCache(long maxBytes) {
+        if (maxBytes < ENTRY_OVERHEAD_BYTES) {
+            throw new IllegalArgumentException("Resource cache budget too small: " + maxBytes + " bytes");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Cache view for one document; close it when the document is closed
+     */
+    Scope openScope() {
+        return new Scope();
+    }
+
+    long getMaxBytes() {
+        return maxBytes;
+    }
+
+    long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    int size() {
+        return entryCount.get();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Estimated heap held by a parsed resource
+     */
+    static long weigh(Object resource) {
+        long bytes = ENTRY_OVERHEAD_BYTES;
+        if (resource instanceof PDXObject) {
+            bytes += ((PDXObject) resource).getCOSObject().getLength();
+        } else if (resource instanceof PDFont) {
+            PDFont font = (PDFont) resource;
+            PDFontDescriptor descriptor = font instanceof PDType0Font
+                    ? ((PDType0Font) font).getDescendantFont().getFontDescriptor()
+                    : font.getFontDescriptor();
+            if (descriptor != null) {
+                bytes += PARSED_FONT_BYTES_PER_BYTE * (length(descriptor.getFontFile())
+                        + length(descriptor.getFontFile2()) + length(descriptor.getFontFile3()));
+            }
+        }
+        return bytes;
+    }
+
+    private static long length(PDStream stream) {
+        return stream == null ? 0 : stream.getCOSObject().getLength();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d entries, %d/%d KB, %d hits, %d misses, %d evictions",
+                size(), usedBytes.get() >> 10, maxBytes >> 10, getHits(), getMisses(), getEvictions());
+    }
+
+    /**
+     * Resource type is part of the key like PDFBox's own per-type maps
+     */
+    private static final class Key {
+        final Class<?> kind;
+        final COSObject object;
+
+        Key(Class<?> kind, COSObject object) {
+            this.kind = kind;
+            this.object = object;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return kind == key.kind && object == key.object;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * kind.hashCode() + System.identityHashCode(object);
+        }
+    }
+
+    private static final class Entry {
+        final SoftReference<Object> value;
+        final long bytes;
+
+        Entry(Object value, long bytes) {
+            this.value = new SoftReference<>(value);
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * ResourceCache handed to one document; confined to the thread reading that document
+     */
+    final class Scope implements ResourceCache, AutoCloseable {
+
+        private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        private Scope() {
+        }
+
+        private <T> T get(Class<T> kind, COSObject object) {
+            Key key = new Key(kind, object);
+            Entry entry = entries.get(key);
+            Object value = entry == null ? null : entry.value.get();
+            if (value == null) {
+                if (entry != null) {
+                    remove(key); // Cleared by the collector
+                }
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return kind.cast(value);
+        }
+
+        private void store(Class<?> kind, COSObject object, Object value) {
+            long bytes = weigh(value);
+            if (bytes > maxBytes) {
+                return;
+            }
+            Key key = new Key(kind, object);
+            remove(key);
+            entries.put(key, new Entry(value, bytes));
+            entryCount.incrementAndGet();
+            usedBytes.addAndGet(bytes);
+
+            // Make room from this document's own least recently used entries, the new one last
+            Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+            while (usedBytes.get() > maxBytes && eldest.hasNext()) {
+                Map.Entry<Key, Entry> candidate = eldest.next();
+                eldest.remove();
+                release(candidate.getValue());
+                evictions.increment();
+            }
+        }
+
+        private void remove(Key key) {
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                release(entry);
+            }
+        }
+
+        private void release(Entry entry) {
+            entryCount.decrementAndGet();
+            usedBytes.addAndGet(-entry.bytes);
+        }
+
+        @Override
+        public PDFont getFont(COSObject indirect) {
+            return get(PDFont.class, indirect);
+        }
+
+        @Override
+        public PDColorSpace getColorSpace(COSObject indirect) {
+            return get(PDColorSpace.class, indirect);
+        }
+
+        @Override
+        public PDExtendedGraphicsState getExtGState(COSObject indirect) {
+            return get(PDExtendedGraphicsState.class, indirect);
+        }
+
+        @Override
+        public PDShading getShading(COSObject indirect) {
+            return get(PDShading.class, indirect);
+        }
+
+        @Override
+        public PDAbstractPattern getPattern(COSObject indirect) {
+            return get(PDAbstractPattern.class, indirect);
+        }
+
+        @Override
+        public PDPropertyList getProperties(COSObject indirect) {
+            return get(PDPropertyList.class, indirect);
+        }
+
+        @Override
+        public PDXObject getXObject(COSObject indirect) {
+            return get(PDXObject.class, indirect);
+        }
+
+        @Override
+        public void put(COSObject indirect, PDFont font) {
+            store(PDFont.class, indirect, font);
+        }
+
+        @Override
+        public void put(COSObject indirect, PDColorSpace colorSpace) {
+            store(PDColorSpace.class, indirect, colorSpace);
+        }
+
+        @Override
+        public void put(COSObject indirect, PDExtendedGraphicsState extGState) {
+            store(PDExtendedGraphicsState.class, indirect, extGState);
+        }
+
+        @Override
+        public void put(COSObject indirect, PDShading shading) {
+            store(PDShading.class, indirect, shading);
+        }
+
+        @Override
+        public void put(COSObject indirect, PDAbstractPattern pattern) {
+            store(PDAbstractPattern.class, indirect, pattern);
+        }
+
+        @Override
+        public void put(COSObject indirect, PDPropertyList propertyList) {
+            store(PDPropertyList.class, indirect, propertyList);
+        }
+
+        @Override
+        public void put(COSObject indirect, PDXObject xobject) {
+            store(PDXObject.class, indirect, xobject);
+        }
+
+        // PDFTextStripper drops each page's resources once the page is done, so that its
+        // per-document cache cannot grow; the byte budget does that here, and fonts shared
+        // by many pages are then parsed once instead of once per page
+        @Override
+        public PDFont removeFont(COSObject indirect) {
+            return null;
+        }
+
+        @Override
+        public PDColorSpace removeColorSpace(COSObject indirect) {
+            return null;
+        }
+
+        @Override
+        public PDExtendedGraphicsState removeExtState(COSObject indirect) {
+            return null;
+        }
+
+        @Override
+        public PDShading removeShading(COSObject indirect) {
+            return null;
+        }
+
+        @Override
+        public PDAbstractPattern removePattern(COSObject indirect) {
+            return null;
+        }
+
+        @Override
+        public PDPropertyList removeProperties(COSObject indirect) {
+            return null;
+        }
+
+        @Override
+        public PDXObject removeXObject(COSObject indirect) {
+            return null;
+        }
+
+        @Override
+        public void close() {
+            for (Entry entry : entries.values()) {
+                release(entry);
+            }
+            entries.clear();
+        }
+    }
+}
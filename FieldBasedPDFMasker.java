@@ -1,10 +1,9 @@
 package org.example;
 
-import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.pdfbox.text.PDFTextStripperByArea;
@@ -12,244 +11,552 @@ import org.apache.pdfbox.pdmodel.common.PDRectangle;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class FieldBasedPDFMasker {
 
-    private Map<String, FieldMaskingRule> fieldRules;
-    private static final int MAX_MEMORY_PAGES = 50; // Process in chunks for large PDFs
+    // Default rules are compiled once and shared by every masker instance
+    private static final CompiledRuleSet DEFAULT_RULES = initializeFieldRules();
+    private static final Pattern FIELD_NAME_PATTERN = Pattern.compile("([A-Za-z][A-Za-z\\s]{1,30})\\s*[:\\-=]", Pattern.MULTILINE);
+    private static final MaskingLog LOG = MaskingLog.forClass(FieldBasedPDFMasker.class);
+
+    private final CompiledRuleSet ruleSet;
+    private static final int TEXT_CHUNK_PAGES = 50; // Pages extracted and reflowed together
     private static final float MARGIN = 50f;
     private static final float LINE_HEIGHT = 14f;
     private static final int FONT_SIZE = 11;
 
+    // Per-page modes: page workers (1 = serial) and masked pages buffered ahead of the writer
+    private int parallelism = 1;
+    private int reorderWindow = 0; // 0 = twice the parallelism
+
+    // Memory mode, stream cache budget and shared resource cache for every document opened or created
+    private DocumentLoader documentLoader = DocumentLoader.DEFAULT
+            .withResourceCache(new ExtractionResourceCache(ExtractionResourceCache.DEFAULT_BYTES));
+
+    // Staged load/extract/match/render mode; null = not staged
+    private PipelineConfig pipelineConfig;
+    private volatile StagedPipeline.Stats pipelineStats;
+    private MaskingMetrics metrics = new MaskingMetrics();
+    private boolean failOnBudgetExceeded;
+
     public FieldBasedPDFMasker() {
-        initializeFieldRules();
+        this(DEFAULT_RULES);
+    }
+
+    // LINEAR guards against catastrophic backtracking on hostile text
+    public FieldBasedPDFMasker(MatchingMode matchingMode) {
+        this(DEFAULT_RULES.withEngine(MatchingEngine.forMode(matchingMode)));
+    }
+
+    // Share a pre-built rule set across maskers, threads and documents
+    FieldBasedPDFMasker(CompiledRuleSet ruleSet) {
+        this.ruleSet = ruleSet;
+    }
+
+    /**
+     * Number of threads extracting and masking pages in the per-page modes; 1 (the default) is serial
+     */
+    public void setParallelism(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + workers);
+        }
+        this.parallelism = workers;
+    }
+
+    /**
+     * Maximum masked pages held for the ordered writer; bounds memory when one page is slow
+     */
+    public void setReorderWindow(int pages) {
+        if (pages < 1) {
+            throw new IllegalArgumentException("Reorder window must be at least 1: " + pages);
+        }
+        this.reorderWindow = pages;
+    }
+
+    /**
+     * Where document bytes live while masking; HEAP_ONLY (the default) keeps everything on the heap
+     */
+    public void setMemoryMode(MemoryMode memoryMode) {
+        this.documentLoader = documentLoader.withMode(memoryMode);
+    }
+
+    /**
+     * Heap allowed for each document's stream buffers: a hard limit in HEAP_ONLY mode,
+     * the spill-to-temp-file threshold otherwise; 0 or less means unlimited
+     */
+    public void setMemoryBudgetBytes(long budgetBytes) {
+        this.documentLoader = documentLoader.withBudget(budgetBytes);
+    }
+
+    /**
+     * Heap budget for fonts, images and other resources kept parsed while documents are read,
+     * least recently used evicted first; 0 or less uses PDFBox's per-document cache instead
+     */
+    public void setResourceCacheBytes(long bytes) {
+        this.documentLoader = documentLoader.withResourceCache(bytes > 0 ? new ExtractionResourceCache(bytes) : null);
+    }
+
+    /**
+     * Run the per-page modes as a staged pipeline with the given thread counts; null turns it off.
+     * Takes precedence over setParallelism.
+     */
+    public void setPipelineConfig(PipelineConfig pipelineConfig) {
+        this.pipelineConfig = pipelineConfig;
+    }
+
+    /**
+     * Fail a document, without writing it, when a rule is abandoned at its matching budget
+     * on any page; by default the document is written and the rule counted in the summary
+     * line and in MaskingMetrics.getBudgetExceeded, though values of that rule may stay unmasked
+     */
+    public void setFailOnBudgetExceeded(boolean failOnBudgetExceeded) {
+        this.failOnBudgetExceeded = failOnBudgetExceeded;
+    }
+
+    /**
+     * Stage counters of the current or last pipeline run, or null if none ran
+     */
+    public StagedPipeline.Stats getPipelineStats() {
+        return pipelineStats;
+    }
+
+    /**
+     * Stage timers and counters of every document this masker has processed
+     */
+    public MaskingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Record into the given metrics instead, e.g. one instance shared by several maskers
+     */
+    public void setMetrics(MaskingMetrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
+    }
+
+    static CompiledRuleSet defaultRules() {
+        return DEFAULT_RULES;
     }
 
     // Define masking rules for different field types
-    private void initializeFieldRules() {
-        fieldRules = new HashMap<>();
+    private static CompiledRuleSet initializeFieldRules() {
+        Map<String, FieldMaskingRule> fieldRules = new HashMap<>();
 
         // Enhanced field patterns with better matching
-        addFieldRule("name", "XXXXX",
+        addFieldRule(fieldRules, "name", "XXXXX",
                 "(?i)(name|full\\s*name|first\\s*name|last\\s*name|employee\\s*name|customer\\s*name)\\s*[:=]?\\s*([^\\n\\r,;]+)",
                 "(?i)(name|full\\s*name|first\\s*name|last\\s*name|employee\\s*name|customer\\s*name)");
 
 
 
-        addFieldRule("email", "XXXXX@XXXXX.com",
+        addFieldRule(fieldRules, "email", "XXXXX@XXXXX.com",
                 "(?i)(email|e-mail|mail|e\\.mail)\\s*[:=]?\\s*([\\w._%+-]+@[\\w.-]+\\.[A-Z]{2,})",
                 "(?i)(email|e-mail|mail|e\\.mail)");
 
-        addFieldRule("address", "XXXXX",
+        addFieldRule(fieldRules, "address", "XXXXX",
                 "(?i)(address|addr|location|residence|street|home)\\s*[:=]?\\s*([^\\n\\r]+)",
                 "(?i)(address|addr|location|residence|street|home)");
 
-        addFieldRule("dob", "XX/XX/XXXX",
+        addFieldRule(fieldRules, "dob", "XX/XX/XXXX",
                 "(?i)(dob|date\\s*of\\s*birth|birth\\s*date|born|birthday)\\s*[:=]?\\s*(\\d{1,2}[/\\-\\.]\\d{1,2}[/\\-\\.]\\d{2,4})",
                 "(?i)(dob|date\\s*of\\s*birth|birth\\s*date|born|birthday)");
 
-
+        return new CompiledRuleSet(fieldRules);
     }
 
-    private void addFieldRule(String fieldType, String maskValue, String fullPattern, String fieldPattern) {
+    private static void addFieldRule(Map<String, FieldMaskingRule> fieldRules, String fieldType, String maskValue, String fullPattern, String fieldPattern) {
         fieldRules.put(fieldType.toLowerCase(), new FieldMaskingRule(fieldType, maskValue, fullPattern, fieldPattern));
     }
 
     // Enhanced main method to mask PDF with better memory management
     public void maskPDFByFieldNames(String inputPath, String outputPath, List<String> fieldsToMask) {
-        try (PDDocument inputDocument = Loader.loadPDF(new File(inputPath))) {
+        try {
+            maskPDFByFieldNames(PdfSource.of(new File(inputPath)), PdfTarget.of(new File(outputPath)), fieldsToMask);
+        } catch (IOException e) {
+            LOG.error("Error processing PDF " + inputPath, e);
+        }
+    }
+
+    // Stream variant; the caller keeps ownership of both streams
+    public void maskPDFByFieldNames(InputStream input, OutputStream output, List<String> fieldsToMask) throws IOException {
+        maskPDFByFieldNames(PdfSource.of(input), PdfTarget.of(output), fieldsToMask);
+    }
+
+    public void maskPDFByFieldNames(PdfSource input, PdfTarget output, List<String> fieldsToMask) throws IOException {
+        long loadStart = System.nanoTime();
+        MaskingEvents.DocumentLoad loadEvent = new MaskingEvents.DocumentLoad();
+        loadEvent.begin();
+        try (PdfSource source = documentLoader.buffer(input);
+             PDDocument inputDocument = documentLoader.load(source)) {
+            recordLoad("maskPDFByFieldNames", loadEvent, loadStart, inputDocument);
 
             int totalPages = inputDocument.getNumberOfPages();
-            System.out.println("Processing PDF with " + totalPages + " pages...");
+            MaskingSummary summary = new MaskingSummary("maskPDFByFieldNames");
+            summary.setPages(totalPages);
+            LOG.debug("Processing PDF with {0} pages", totalPages);
 
-            try (PDDocument outputDocument = new PDDocument()) {
+            try (PDDocument outputDocument = documentLoader.create()) {
+                DocumentResources outputResources = new DocumentResources(outputDocument);
 
-                // Process pages in chunks to handle large PDFs
+                // Extract and reflow the text in chunks of pages; the memory mode bounds the documents
                 int processed = 0;
                 while (processed < totalPages) {
-                    int endPage = Math.min(processed + MAX_MEMORY_PAGES, totalPages);
+                    int endPage = Math.min(processed + TEXT_CHUNK_PAGES, totalPages);
 
-                    System.out.println("Processing pages " + (processed + 1) + " to " + endPage + "...");
+                    LOG.debug("Processing pages {0} to {1}", processed + 1, endPage);
 
                     // Extract text from current chunk
-                    String chunkText = extractTextFromPages(inputDocument, processed, endPage);
+                    // A chunk is traced under its first page
+                    long extractStart = System.nanoTime();
+                    MaskingEvents.PageExtraction extractEvent = MaskingEvents.beginPageExtraction();
+                    int[] pageEnds = new int[endPage - processed];
+                    String chunkText = extractTextFromPages(inputDocument, processed, endPage, pageEnds);
+                    metrics.recordSince(MaskingMetrics.Stage.EXTRACT, extractStart);
+                    MaskingEvents.commit(extractEvent, processed, chunkText.length());
 
                     // Mask the text
-                    String maskedText = maskFieldsInText(chunkText, fieldsToMask);
+                    MultiFieldScanner.ScanResult scan = scanFields(chunkText, fieldsToMask, summary);
+                    recordChunkPages(pageEnds, scan.getMatchStarts(), summary);
+                    String maskedText = scan.getMaskedText();
 
                     // Add masked pages to output document
-                    addMaskedPagesToDocument(outputDocument, maskedText);
+                    addMaskedPagesToDocument(outputResources, maskedText);
 
                     processed = endPage;
-
-                    // Force garbage collection for large documents
-                    if (totalPages > 100) {
-                        System.gc();
-                    }
                 }
 
-                outputDocument.save(outputPath);
-                System.out.println("Successfully processed and saved " + totalPages + " pages to " + outputPath);
+                saveTimed(output, outputDocument, summary);
+                LOG.info(summary::toString);
             }
+        }
+    }
 
-        } catch (IOException e) {
-            System.err.println("Error processing PDF: " + e.getMessage());
-            e.printStackTrace();
+    // Load timer, document count and JFR event for an input opened since loadStart
+    private void recordLoad(String operation, MaskingEvents.DocumentLoad event, long loadStart, PDDocument document) {
+        metrics.recordSince(MaskingMetrics.Stage.LOAD, loadStart);
+        metrics.recordDocument();
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.pageCount = document.getNumberOfPages();
+            event.commit();
+        }
+    }
+
+    private void saveTimed(PdfTarget output, PDDocument document, MaskingSummary summary) throws IOException {
+        if (failOnBudgetExceeded) {
+            summary.requireWithinBudget();
+        }
+        long saveStart = System.nanoTime();
+        MaskingEvents.DocumentSave event = new MaskingEvents.DocumentSave();
+        event.begin();
+        output.save(document);
+        metrics.recordSince(MaskingMetrics.Stage.SAVE, saveStart);
+        event.end();
+        if (event.shouldCommit()) {
+            event.mode = SaveMode.FULL_REWRITE.name();
+            event.pageCount = document.getNumberOfPages();
+            event.maskedPages = (int) summary.getMaskedPages();
+            event.commit();
         }
     }
 
     // Extract text from specific page range
-    private String extractTextFromPages(PDDocument document, int startPage, int endPage) throws IOException {
-        PDFTextStripper stripper = new PDFTextStripper();
+    // Fills pageEnds with the offset in the returned text where each page's text ends
+    private String extractTextFromPages(PDDocument document, int startPage, int endPage, int[] pageEnds)
+            throws IOException {
+        StringWriter text = new StringWriter();
+        PDFTextStripper stripper = new PDFTextStripper() {
+            private int page;
+
+            @Override
+            protected void endPage(PDPage pdPage) throws IOException {
+                super.endPage(pdPage);
+                pageEnds[page++] = text.getBuffer().length();
+            }
+        };
         stripper.setStartPage(startPage + 1); // PDFBox uses 1-based indexing
         stripper.setEndPage(endPage);
         stripper.setSortByPosition(true);
-        return stripper.getText(document);
+        stripper.writeText(document, text);
+        return text.toString();
+    }
+
+    // A chunk is scanned as one text, so its masked pages are those its matches start in
+    private void recordChunkPages(int[] pageEnds, int[] matchStarts, MaskingSummary summary) {
+        int match = 0;
+        for (int pageEnd : pageEnds) {
+            boolean masked = false;
+            while (match < matchStarts.length && matchStarts[match] < pageEnd) {
+                masked = true;
+                match++;
+            }
+            if (masked) {
+                summary.recordMaskedPage();
+            }
+            metrics.recordPage(masked);
+        }
     }
 
     // Process each page individually for better pattern matching
     public void maskPDFByFieldNamesPerPage(String inputPath, String outputPath, List<String> fieldsToMask) {
-        try (PDDocument inputDocument = Loader.loadPDF(new File(inputPath));
-             PDDocument outputDocument = new PDDocument()) {
+        try {
+            maskPDFByFieldNamesPerPage(PdfSource.of(new File(inputPath)), PdfTarget.of(new File(outputPath)), fieldsToMask);
+        } catch (IOException e) {
+            LOG.error("Error processing PDF " + inputPath, e);
+        }
+    }
+
+    // Stream variant; the caller keeps ownership of both streams
+    public void maskPDFByFieldNamesPerPage(InputStream input, OutputStream output, List<String> fieldsToMask) throws IOException {
+        maskPDFByFieldNamesPerPage(PdfSource.of(input), PdfTarget.of(output), fieldsToMask);
+    }
+
+    public void maskPDFByFieldNamesPerPage(PdfSource input, PdfTarget output, List<String> fieldsToMask) throws IOException {
+        long loadStart = System.nanoTime();
+        MaskingEvents.DocumentLoad loadEvent = new MaskingEvents.DocumentLoad();
+        loadEvent.begin();
+        try (PdfSource source = documentLoader.buffer(input);
+             PDDocument inputDocument = documentLoader.load(source);
+             PDDocument outputDocument = documentLoader.create()) {
+            recordLoad("maskPDFByFieldNamesPerPage", loadEvent, loadStart, inputDocument);
+            DocumentResources outputResources = new DocumentResources(outputDocument);
 
             int totalPages = inputDocument.getNumberOfPages();
-            System.out.println("Processing PDF page by page. Total pages: " + totalPages);
+            MaskingSummary summary = new MaskingSummary("maskPDFByFieldNamesPerPage");
+            summary.setPages(totalPages);
+            LOG.debug("Processing PDF page by page. Total pages: {0}", totalPages);
+
+            // Mask fields in each page, then create its page with masked content
+            MultiFieldScanner scanner = ruleSet.getScanner(fieldsToMask);
+            processPages(source, inputDocument,
+                    (pageNum, pageText) -> maskPageText(pageNum, scanner, pageText, summary),
+                    (pageNum, maskedPageText) -> {
+                        LOG.debug("Processing page {0}/{1}", pageNum + 1, totalPages);
+                        createSinglePageWithContent(outputResources, maskedPageText);
+                    });
+
+            saveTimed(output, outputDocument, summary);
+            LOG.info(summary::toString);
+        }
+    }
 
-            PDFTextStripper stripper = new PDFTextStripper();
+    // Extract and mask every page, serially or on page workers, and write the results in page order
+    private void processPages(PdfSource source, PDDocument inputDocument,
+                              ParallelPageProcessor.PageMasker masker,
+                              ParallelPageProcessor.PageWriter writer) throws IOException {
+        int totalPages = inputDocument.getNumberOfPages();
 
-            for (int pageNum = 0; pageNum < totalPages; pageNum++) {
-                System.out.println("Processing page " + (pageNum + 1) + "/" + totalPages);
+        if (pipelineConfig != null) {
+            runPipeline(source, totalPages, masker, writer);
+            return;
+        }
 
-                // Extract text from current page only
-                stripper.setStartPage(pageNum + 1);
-                stripper.setEndPage(pageNum + 1);
-                String pageText = stripper.getText(inputDocument);
+        if (parallelism > 1 && totalPages > 1) {
+            int window = reorderWindow > 0 ? reorderWindow : 2 * parallelism;
+            new ParallelPageProcessor(source, documentLoader, metrics, totalPages, parallelism, window).run(masker, writer);
+            return;
+        }
 
-                // Mask fields in current page
-                String maskedPageText = maskFieldsInText(pageText, fieldsToMask);
+        PDFTextStripper stripper = new PDFTextStripper();
+        for (int pageNum = 0; pageNum < totalPages; pageNum++) {
+            // Extract text from current page only
+            stripper.setStartPage(pageNum + 1);
+            stripper.setEndPage(pageNum + 1);
+            long extractStart = System.nanoTime();
+            MaskingEvents.PageExtraction extractEvent = MaskingEvents.beginPageExtraction();
+            String pageText = stripper.getText(inputDocument);
+            metrics.recordSince(MaskingMetrics.Stage.EXTRACT, extractStart);
+            MaskingEvents.commit(extractEvent, pageNum, pageText.length());
+
+            writer.write(pageNum, masker.mask(pageNum, pageText));
+        }
+    }
 
-                // Create page with masked content
-                createSinglePageWithContent(outputDocument, maskedPageText);
+    // Extract and match on stage threads; render in page order on this thread
+    private void runPipeline(PdfSource input, int totalPages,
+                             ParallelPageProcessor.PageMasker masker,
+                             ParallelPageProcessor.PageWriter writer) throws IOException {
+        PipelineConfig config = pipelineConfig;
+        DocumentLoader loader = documentLoader;
+        MaskingMetrics stageMetrics = metrics;
+        StagedPipeline<String> pipeline = StagedPipeline
+                .start("extract", config.getExtractThreads(), () -> new TextExtractor(input, loader, stageMetrics))
+                .<String>then("match", config.getMatchThreads(), () -> masker::mask);
+
+        StagedPipeline.Stats stats = pipeline.newStats("render");
+        pipelineStats = stats;
+        pipeline.run(totalPages, config.getQueueCapacity(), config.window(true), stats, writer::write);
+        LOG.debug("Pipeline stages:\n{0}", stats);
+    }
 
-                // Clear memory for large documents
-                if (pageNum % 20 == 0 && pageNum > 0) {
-                    System.gc();
-                }
-            }
+    /**
+     * Extract stage: page text from this thread's own handle on the input
+     */
+    private static final class TextExtractor implements StagedPipeline.Worker<Integer, String> {
+        private final PdfSource input;
+        private final DocumentLoader loader;
+        private final MaskingMetrics metrics;
+        private final PDFTextStripper stripper = new PDFTextStripper();
+        private PDDocument document;
+
+        TextExtractor(PdfSource input, DocumentLoader loader, MaskingMetrics metrics) {
+            this.input = input;
+            this.loader = loader;
+            this.metrics = metrics;
+        }
 
-            outputDocument.save(outputPath);
-            System.out.println("Successfully processed all pages!");
+        @Override
+        public String process(int page, Integer pageIndex) throws IOException {
+            if (document == null) {
+                document = loader.load(input);
+            }
+            stripper.setStartPage(pageIndex + 1);
+            stripper.setEndPage(pageIndex + 1);
+            long extractStart = System.nanoTime();
+            MaskingEvents.PageExtraction extractEvent = MaskingEvents.beginPageExtraction();
+            String pageText = stripper.getText(document);
+            metrics.recordSince(MaskingMetrics.Stage.EXTRACT, extractStart);
+            MaskingEvents.commit(extractEvent, pageIndex, pageText.length());
+            return pageText;
+        }
 
-        } catch (IOException e) {
-            System.err.println("Error processing PDF: " + e.getMessage());
-            e.printStackTrace();
+        @Override
+        public void close() throws IOException {
+            if (document != null) {
+                document.close();
+            }
         }
     }
 
     // Create a single page with content
-    private void createSinglePageWithContent(PDDocument document, String content) throws IOException {
-        PDPage page = new PDPage(PDRectangle.A4);
-        document.addPage(page);
+    private void createSinglePageWithContent(DocumentResources resources, String content) throws IOException {
+        PDPage page = resources.addPage(PDRectangle.A4);
 
-        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-            addContentToPage(contentStream, content, page);
+        try (PDPageContentStream contentStream = new PDPageContentStream(resources.getDocument(), page)) {
+            addContentToPage(contentStream, content, page, resources.font(Standard14Fonts.FontName.HELVETICA));
         }
     }
 
     // Enhanced method to mask specific field with better error handling
     public void maskSpecificField(String inputPath, String outputPath, String fieldName, String maskValue) {
-        try (PDDocument inputDocument = Loader.loadPDF(new File(inputPath))) {
+        try {
+            maskSpecificField(PdfSource.of(new File(inputPath)), PdfTarget.of(new File(outputPath)), fieldName, maskValue);
+        } catch (IOException e) {
+            LOG.error("Error masking field '" + fieldName + "' in " + inputPath, e);
+        }
+    }
 
-            int totalPages = inputDocument.getNumberOfPages();
-            System.out.println("Masking field '" + fieldName + "' in " + totalPages + " pages...");
+    public void maskSpecificField(PdfSource input, PdfTarget output, String fieldName, String maskValue) throws IOException {
+        long loadStart = System.nanoTime();
+        MaskingEvents.DocumentLoad loadEvent = new MaskingEvents.DocumentLoad();
+        loadEvent.begin();
+        try (PdfSource source = documentLoader.buffer(input);
+             PDDocument inputDocument = documentLoader.load(source)) {
+            recordLoad("maskSpecificField", loadEvent, loadStart, inputDocument);
 
-            try (PDDocument outputDocument = new PDDocument()) {
-                PDFTextStripper stripper = new PDFTextStripper();
+            int totalPages = inputDocument.getNumberOfPages();
+            MaskingSummary summary = new MaskingSummary("maskSpecificField");
+            summary.setPages(totalPages);
+            LOG.debug("Masking field {0} in {1} pages", fieldName, totalPages);
 
-                // Process all pages
-                for (int pageNum = 0; pageNum < totalPages; pageNum++) {
-                    stripper.setStartPage(pageNum + 1);
-                    stripper.setEndPage(pageNum + 1);
-                    String pageText = stripper.getText(inputDocument);
+            try (PDDocument outputDocument = documentLoader.create()) {
+                DocumentResources outputResources = new DocumentResources(outputDocument);
 
-                    // Mask the specific field
-                    String maskedText = maskDynamicField(pageText, fieldName, maskValue);
+                // Mask the specific field in every page, then create each page with masked content
+                processPages(source, inputDocument,
+                        (pageNum, pageText) -> maskDynamicField(pageNum, pageText, fieldName, maskValue, summary),
+                        (pageNum, maskedText) -> createSinglePageWithContent(outputResources, maskedText));
 
-                    // Create page with masked content
-                    createSinglePageWithContent(outputDocument, maskedText);
+                saveTimed(output, outputDocument, summary);
+                if (summary.getMatches() == 0) {
+                    LOG.warn(() -> "Field '" + fieldName + "' not found in the document");
                 }
-
-                outputDocument.save(outputPath);
-                System.out.println("Field masking completed for all pages!");
+                LOG.info(summary::toString);
             }
-
-        } catch (IOException e) {
-            System.err.println("Error masking specific field: " + e.getMessage());
-            e.printStackTrace();
         }
     }
 
     // Overloaded method with default mask value
     public void maskSpecificField(String inputPath, String outputPath, String fieldName) {
-        maskSpecificField(inputPath, outputPath, fieldName, "XXXXX");
+        maskSpecificField(inputPath, outputPath, fieldName, CompiledRuleSet.DEFAULT_MASK_VALUE);
     }
 
-    // Enhanced text masking with better pattern matching
-    private String maskFieldsInText(String text, List<String> fieldsToMask) {
-        String maskedText = text;
+    // Enhanced text masking: all requested fields are masked in a single pass
+    String maskFieldsInText(String text, List<String> fieldsToMask, MaskingSummary summary) {
+        return scanFields(text, fieldsToMask, summary).getMaskedText();
+    }
 
-        for (String fieldName : fieldsToMask) {
-            String fieldKey = fieldName.toLowerCase().trim();
+    private MultiFieldScanner.ScanResult scanFields(String text, List<String> fieldsToMask, MaskingSummary summary) {
+        long matchStart = System.nanoTime();
+        MaskingEvents.RuleEvaluation event = MaskingEvents.beginRuleEvaluation();
+        MultiFieldScanner scanner = ruleSet.getScanner(fieldsToMask);
+        MultiFieldScanner.ScanResult result = scanner.scan(text);
+        metrics.recordSince(MaskingMetrics.Stage.MATCH, matchStart);
+        commitScan(event, -1, scanner, recordMaskCounts(scanner, result, summary));
+        return result;
+    }
 
-            // Check if we have a predefined rule for this field
-            if (fieldRules.containsKey(fieldKey)) {
-                FieldMaskingRule rule = fieldRules.get(fieldKey);
-                maskedText = applyMaskingRule(maskedText, rule);
-            } else {
-                // Create dynamic rule for unknown field
-                maskedText = maskDynamicField(maskedText, fieldName, "XXXXX");
-            }
+    private String maskPageText(int pageIndex, MultiFieldScanner scanner, String pageText, MaskingSummary summary) {
+        long matchStart = System.nanoTime();
+        MaskingEvents.RuleEvaluation event = MaskingEvents.beginRuleEvaluation();
+        MultiFieldScanner.ScanResult result = scanner.scan(pageText);
+        metrics.recordSince(MaskingMetrics.Stage.MATCH, matchStart);
+        int matches = recordMaskCounts(scanner, result, summary);
+        commitScan(event, pageIndex, scanner, matches);
+        if (matches > 0) {
+            summary.recordMaskedPage();
         }
-
-        return maskedText;
+        metrics.recordPage(matches > 0);
+        return result.getMaskedText();
     }
 
-    // Enhanced masking rule application with better formatting preservation
-    private String applyMaskingRule(String text, FieldMaskingRule rule) {
-        Pattern pattern = Pattern.compile(rule.getFullPattern(), Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
-        Matcher matcher = pattern.matcher(text);
-
-        StringBuffer result = new StringBuffer();
-        int maskCount = 0;
-
-        while (matcher.find()) {
-            String fieldName = matcher.group(1);
-            String originalValue = matcher.group(2);
-
-            // Preserve the original format structure
-            String fullMatch = matcher.group(0);
-            String separator = extractSeparator(fullMatch);
-
-            String replacement = fieldName + separator + rule.getMaskValue();
-            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
-
-            maskCount++;
-            System.out.println("Masked field '" + fieldName.trim() + "': '" + originalValue.trim() + "' -> '" + rule.getMaskValue() + "'");
+    // One scan covers every rule of the scanner, so the event names them all
+    private static void commitScan(MaskingEvents.RuleEvaluation event, int pageIndex, MultiFieldScanner scanner, int matches) {
+        event.end();
+        if (event.shouldCommit()) {
+            StringJoiner rules = new StringJoiner(",");
+            for (int field = 0; field < scanner.getFieldCount(); field++) {
+                rules.add(scanner.getFieldName(field));
+            }
+            event.pageIndex = pageIndex;
+            event.rule = rules.toString();
+            event.matchCount = matches;
+            event.commit();
         }
-        matcher.appendTail(result);
+    }
 
-        if (maskCount > 0) {
-            System.out.println("Total instances of '" + rule.getFieldType() + "' masked: " + maskCount);
+    // Counts only; the masked values themselves are never logged
+    private int recordMaskCounts(MultiFieldScanner scanner, MultiFieldScanner.ScanResult result, MaskingSummary summary) {
+        for (String field : result.getAbandonedFields()) {
+            recordBudgetExceeded(field, summary);
         }
+        int matches = 0;
+        for (int field = 0; field < scanner.getFieldCount(); field++) {
+            int count = result.getCount(field);
+            if (count > 0) {
+                matches += count;
+                summary.recordMatches(scanner.getFieldName(field), count);
+                metrics.recordMatches(scanner.getFieldName(field), count);
+                LOG.trace("Masked {1} instances of {0}", scanner.getFieldName(field), count);
+            }
+        }
+        return matches;
+    }
 
-        return result.toString();
+    private void recordBudgetExceeded(String fieldName, MaskingSummary summary) {
+        metrics.recordBudgetExceeded();
+        summary.recordBudgetExceeded(fieldName);
     }
 
     // Extract separator from matched text
-    private String extractSeparator(String fullMatch) {
+    static String extractSeparator(String fullMatch) {
         if (fullMatch.contains(" = ")) return " = ";
         if (fullMatch.contains(": ")) return ": ";
         if (fullMatch.contains(":")) return ": ";
@@ -260,99 +567,104 @@ public class FieldBasedPDFMasker {
     }
 
     // Enhanced dynamic field masking
-    private String maskDynamicField(String text, String fieldName, String maskValue) {
-        List<String> patterns = createDynamicPatterns(fieldName);
+    String maskDynamicField(int pageIndex, String text, String fieldName, String maskValue, MaskingSummary summary) {
+        long matchStart = System.nanoTime();
+        MaskingEvents.RuleEvaluation event = MaskingEvents.beginRuleEvaluation();
+        List<RuleMatcher> matchers = ruleSet.getDynamicMatchers(fieldName);
         String maskedText = text;
         boolean foundMatch = false;
         int totalMasks = 0;
 
-        for (String patternStr : patterns) {
-            Pattern pattern = Pattern.compile(patternStr, Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
-            Matcher matcher = pattern.matcher(maskedText);
+        for (RuleMatcher matcher : matchers) {
+            RuleMatcher.Session session = matcher.session(maskedText);
 
-            StringBuffer result = new StringBuffer();
-            while (matcher.find()) {
+            StringBuilder result = new StringBuilder();
+            int copiedUpTo = 0;
+            int from = 0;
+            while (from <= maskedText.length() && session.find(from)) {
                 foundMatch = true;
                 totalMasks++;
 
-                String matchedFieldName = matcher.group(1);
-                String originalValue = matcher.group(2);
-                String separator = extractSeparator(matcher.group(0));
+                String matchedFieldName = session.group(1);
+                String separator = extractSeparator(session.group(0));
 
                 String replacement = matchedFieldName + separator + maskValue;
-                matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
-
-                System.out.println("Masked field '" + matchedFieldName.trim() + "': '" + originalValue.trim() + "' -> '" + maskValue + "'");
+                result.append(maskedText, copiedUpTo, session.start(0)).append(replacement);
+                copiedUpTo = session.end(0);
+                from = session.end(0) == session.start(0) ? session.end(0) + 1 : session.end(0);
             }
-            matcher.appendTail(result);
+            result.append(maskedText, copiedUpTo, maskedText.length());
             maskedText = result.toString();
+            if (session.isAbandoned()) {
+                recordBudgetExceeded(fieldName, summary);
+            }
 
             if (foundMatch) break;
         }
 
-        if (!foundMatch) {
-            System.out.println("Warning: Field '" + fieldName + "' not found in the document.");
-        } else {
-            System.out.println("Total instances of '" + fieldName + "' masked: " + totalMasks);
+        metrics.recordSince(MaskingMetrics.Stage.MATCH, matchStart);
+        MaskingEvents.commit(event, pageIndex, fieldName, totalMasks);
+        metrics.recordPage(foundMatch);
+        if (foundMatch) {
+            summary.recordMatches(fieldName, totalMasks);
+            metrics.recordMatches(fieldName, totalMasks);
+            summary.recordMaskedPage();
+            LOG.trace("Masked {1} instances of {0}", fieldName, totalMasks);
         }
 
         return maskedText;
     }
 
-    // Enhanced pattern creation with more comprehensive matching
-    private List<String> createDynamicPatterns(String fieldName) {
-        List<String> patterns = new ArrayList<>();
-        String escapedFieldName = Pattern.quote(fieldName.trim());
-
-        // More flexible patterns to handle various formats
-        patterns.add("(?i)(" + escapedFieldName + ")\\s*:\\s*([^\\n\\r]+?)(?=\\s*\\n|\\s*$|\\s{3,})");
-        patterns.add("(?i)(" + escapedFieldName + ")\\s*=\\s*([^\\n\\r]+?)(?=\\s*\\n|\\s*$|\\s{3,})");
-        patterns.add("(?i)(" + escapedFieldName + ")\\s*-\\s*([^\\n\\r]+?)(?=\\s*\\n|\\s*$|\\s{3,})");
-        patterns.add("(?i)(" + escapedFieldName + ")\\s{2,}([^\\n\\r]+?)(?=\\s*\\n|\\s*$|\\s{3,})");
-        patterns.add("(?i)(" + escapedFieldName + ")\\s*[:\\-=]\\s*([^\\n\\r,;]+?)(?=\\s*\\n|\\s*$|\\s{3,})");
-
-        return patterns;
-    }
-
     // Auto-detect and mask all sensitive fields with page-by-page processing
     public void maskAllDetectedFields(String inputPath, String outputPath) {
-        try (PDDocument inputDocument = Loader.loadPDF(new File(inputPath));
-             PDDocument outputDocument = new PDDocument()) {
-
-            int totalPages = inputDocument.getNumberOfPages();
-            System.out.println("Auto-masking all detected fields in " + totalPages + " pages...");
-
-            PDFTextStripper stripper = new PDFTextStripper();
-
-            for (int pageNum = 0; pageNum < totalPages; pageNum++) {
-                stripper.setStartPage(pageNum + 1);
-                stripper.setEndPage(pageNum + 1);
-                String pageText = stripper.getText(inputDocument);
-
-                String maskedText = pageText;
-
-                // Apply all predefined rules
-                for (FieldMaskingRule rule : fieldRules.values()) {
-                    maskedText = applyMaskingRule(maskedText, rule);
-                }
-
-                createSinglePageWithContent(outputDocument, maskedText);
-            }
+        try {
+            maskAllDetectedFields(PdfSource.of(new File(inputPath)), PdfTarget.of(new File(outputPath)));
+        } catch (IOException e) {
+            LOG.error("Error in auto-masking " + inputPath, e);
+        }
+    }
 
-            outputDocument.save(outputPath);
-            System.out.println("Auto-masking completed for all pages!");
+    public void maskAllDetectedFields(PdfSource input, PdfTarget output) throws IOException {
+        long loadStart = System.nanoTime();
+        MaskingEvents.DocumentLoad loadEvent = new MaskingEvents.DocumentLoad();
+        loadEvent.begin();
+        try (PdfSource source = documentLoader.buffer(input);
+             PDDocument inputDocument = documentLoader.load(source);
+             PDDocument outputDocument = documentLoader.create()) {
+            recordLoad("maskAllDetectedFields", loadEvent, loadStart, inputDocument);
+            DocumentResources outputResources = new DocumentResources(outputDocument);
 
-        } catch (IOException e) {
-            System.err.println("Error in auto-masking: " + e.getMessage());
-            e.printStackTrace();
+            int totalPages = inputDocument.getNumberOfPages();
+            MaskingSummary summary = new MaskingSummary("maskAllDetectedFields");
+            summary.setPages(totalPages);
+            LOG.debug("Auto-masking all detected fields in {0} pages", totalPages);
+
+            // Apply all predefined rules in one pass per page
+            MultiFieldScanner scanner = ruleSet.getAllRulesScanner();
+            processPages(source, inputDocument,
+                    (pageNum, pageText) -> maskPageText(pageNum, scanner, pageText, summary),
+                    (pageNum, maskedText) -> createSinglePageWithContent(outputResources, maskedText));
+
+            saveTimed(output, outputDocument, summary);
+            LOG.info(summary::toString);
         }
     }
 
     // Enhanced field detection across all pages
     public Set<String> detectFieldNames(String inputPath) {
+        try {
+            return detectFieldNames(PdfSource.of(new File(inputPath)));
+        } catch (IOException e) {
+            LOG.error("Error detecting field names in " + inputPath, e);
+            return new HashSet<>();
+        }
+    }
+
+    public Set<String> detectFieldNames(PdfSource input) throws IOException {
         Set<String> detectedFields = new HashSet<>();
 
-        try (PDDocument document = Loader.loadPDF(new File(inputPath))) {
+        try (PdfSource source = documentLoader.buffer(input);
+             PDDocument document = documentLoader.load(source)) {
             int totalPages = document.getNumberOfPages();
             PDFTextStripper stripper = new PDFTextStripper();
 
@@ -362,8 +674,7 @@ public class FieldBasedPDFMasker {
                 String pageText = stripper.getText(document);
 
                 // Enhanced pattern to find potential field names
-                Pattern fieldPattern = Pattern.compile("([A-Za-z][A-Za-z\\s]{1,30})\\s*[:\\-=]", Pattern.MULTILINE);
-                Matcher matcher = fieldPattern.matcher(pageText);
+                Matcher matcher = FIELD_NAME_PATTERN.matcher(pageText);
 
                 while (matcher.find()) {
                     String fieldName = matcher.group(1).trim();
@@ -372,10 +683,6 @@ public class FieldBasedPDFMasker {
                     }
                 }
             }
-
-        } catch (IOException e) {
-            System.err.println("Error detecting field names: " + e.getMessage());
-            e.printStackTrace();
         }
 
         return detectedFields;
@@ -392,7 +699,7 @@ public class FieldBasedPDFMasker {
     }
 
     // Enhanced method to add masked pages to document with better formatting
-    private void addMaskedPagesToDocument(PDDocument document, String maskedText) throws IOException {
+    private void addMaskedPagesToDocument(DocumentResources resources, String maskedText) throws IOException {
         String[] lines = maskedText.split("\\n");
         List<String> currentPageLines = new ArrayList<>();
 
@@ -401,41 +708,40 @@ public class FieldBasedPDFMasker {
 
             // Create new page when we have enough content (approximate)
             if (currentPageLines.size() >= 40) {
-                createPageFromLines(document, currentPageLines);
+                createPageFromLines(resources, currentPageLines);
                 currentPageLines.clear();
             }
         }
 
         // Add remaining lines as final page
         if (!currentPageLines.isEmpty()) {
-            createPageFromLines(document, currentPageLines);
+            createPageFromLines(resources, currentPageLines);
         }
     }
 
     // Create a page from list of lines
-    private void createPageFromLines(PDDocument document, List<String> lines) throws IOException {
-        PDPage page = new PDPage(PDRectangle.A4);
-        document.addPage(page);
+    private void createPageFromLines(DocumentResources resources, List<String> lines) throws IOException {
+        PDPage page = resources.addPage(PDRectangle.A4);
 
-        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-            addLinesToPage(contentStream, lines, page);
+        try (PDPageContentStream contentStream = new PDPageContentStream(resources.getDocument(), page)) {
+            addLinesToPage(contentStream, lines, page, resources.font(Standard14Fonts.FontName.HELVETICA));
         }
     }
 
     // Enhanced method to add content to page with better formatting
-    private void addContentToPage(PDPageContentStream contentStream, String content, PDPage page) throws IOException {
+    private void addContentToPage(PDPageContentStream contentStream, String content, PDPage page, PDFont font) throws IOException {
         String[] lines = content.replaceAll("\\r\\n", "\n").replaceAll("\\r", "\n").split("\\n");
         List<String> linesList = Arrays.asList(lines);
-        addLinesToPage(contentStream, linesList, page);
+        addLinesToPage(contentStream, linesList, page, font);
     }
 
     // Add lines to page with proper formatting and page breaks
-    private void addLinesToPage(PDPageContentStream contentStream, List<String> lines, PDPage page) throws IOException {
+    void addLinesToPage(PDPageContentStream contentStream, List<String> lines, PDPage page, PDFont font) throws IOException {
         final float pageHeight = page.getMediaBox().getHeight();
         final float maxWidth = page.getMediaBox().getWidth() - (2 * MARGIN);
 
         contentStream.beginText();
-        contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), FONT_SIZE);
+        contentStream.setFont(font, FONT_SIZE);
         contentStream.setLeading(LINE_HEIGHT);
         contentStream.newLineAtOffset(MARGIN, pageHeight - MARGIN);
 
@@ -474,7 +780,7 @@ public class FieldBasedPDFMasker {
     }
 
     // Enhanced text wrapping method
-    private String[] wrapText(String text, int maxLength) {
+    String[] wrapText(String text, int maxLength) {
         if (text.length() <= maxLength) {
             return new String[]{text};
         }
@@ -515,24 +821,27 @@ public class FieldBasedPDFMasker {
         return lines.toArray(new String[0]);
     }
 
-    // Helper class to store field masking rules
-    private static class FieldMaskingRule {
+    // Helper class to store field masking rules; immutable, the full pattern is compiled once
+    static class FieldMaskingRule {
         private final String fieldType;
         private final String maskValue;
         private final String fullPattern;
         private final String fieldPattern;
+        private final Pattern pattern;
 
         public FieldMaskingRule(String fieldType, String maskValue, String fullPattern, String fieldPattern) {
             this.fieldType = fieldType;
             this.maskValue = maskValue;
             this.fullPattern = fullPattern;
             this.fieldPattern = fieldPattern;
+            this.pattern = Pattern.compile(fullPattern, CompiledRuleSet.PATTERN_FLAGS);
         }
 
         public String getFieldType() { return fieldType; }
         public String getMaskValue() { return maskValue; }
         public String getFullPattern() { return fullPattern; }
         public String getFieldPattern() { return fieldPattern; }
+        public Pattern getPattern() { return pattern; }
     }
 
     // Enhanced main method with multiple usage examples
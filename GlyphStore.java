@@ -0,0 +1,122 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.text.TextPosition;
+
+import java.util.*;
+
+/**
+ * Columnar store of the glyphs captured on one page.
+ * Geometry lives in parallel primitive arrays indexed by glyph ordinal, fonts are
+ * interned into a per-page table, and glyph text is kept as a code point (glyphs
+ * whose text is longer than one code point, such as ligatures, go to a side table).
+ * The arrays grow as needed and are reused across pages after clear().
+ */
+final class GlyphStore {
+
+    private static final int NO_EXTENDED_TEXT = -1;
+
+    private float[] x = new float[1024];
+    private float[] y = new float[1024];
+    private float[] width = new float[1024];
+    private float[] height = new float[1024];
+    private float[] fontSize = new float[1024];
+    private int[] codepoint = new int[1024];
+    private int[] fontId = new int[1024];
+    private int size;
+
+    private final List<PDFont> fonts = new ArrayList<>();
+    private final Map<PDFont, Integer> fontIds = new IdentityHashMap<>();
+    private final Map<Integer, String> extendedText = new HashMap<>();
+
+    void clear() {
+        size = 0;
+        fonts.clear();
+        fontIds.clear();
+        extendedText.clear();
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Append one glyph and return its ordinal
+     */
+    int add(TextPosition position) {
+        ensureCapacity(size + 1);
+        int glyph = size++;
+
+        x[glyph] = position.getX();
+        y[glyph] = position.getY();
+        width[glyph] = position.getWidth();
+        height[glyph] = position.getHeight();
+        fontSize[glyph] = position.getFontSize();
+        fontId[glyph] = internFont(position.getFont());
+
+        String unicode = position.getUnicode();
+        if (unicode == null || unicode.isEmpty()) {
+            codepoint[glyph] = NO_EXTENDED_TEXT;
+            extendedText.put(glyph, "");
+        } else if (unicode.length() == Character.charCount(unicode.codePointAt(0))) {
+            codepoint[glyph] = unicode.codePointAt(0);
+        } else {
+            codepoint[glyph] = NO_EXTENDED_TEXT;
+            extendedText.put(glyph, unicode);
+        }
+        return glyph;
+    }
+
+    float x(int glyph) { return x[glyph]; }
+    float y(int glyph) { return y[glyph]; }
+    float width(int glyph) { return width[glyph]; }
+    float height(int glyph) { return height[glyph]; }
+    float fontSize(int glyph) { return fontSize[glyph]; }
+    int fontId(int glyph) { return fontId[glyph]; }
+    PDFont font(int glyph) { return fonts.get(fontId[glyph]); }
+
+    /**
+     * Code point of a single-code-point glyph, or -1 when the glyph text is longer (see unicode)
+     */
+    int codepoint(int glyph) { return codepoint[glyph]; }
+
+    /**
+     * Number of chars the glyph contributes to extracted text
+     */
+    int textLength(int glyph) {
+        int cp = codepoint[glyph];
+        return cp != NO_EXTENDED_TEXT ? Character.charCount(cp) : extendedText.get(glyph).length();
+    }
+
+    /**
+     * Glyph text; allocates, so hot paths should prefer codepoint
+     */
+    String unicode(int glyph) {
+        int cp = codepoint[glyph];
+        return cp != NO_EXTENDED_TEXT ? new String(Character.toChars(cp)) : extendedText.get(glyph);
+    }
+
+    private int internFont(PDFont font) {
+        Integer id = fontIds.get(font);
+        if (id == null) {
+            id = fonts.size();
+            fonts.add(font);
+            fontIds.put(font, id);
+        }
+        return id;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= x.length) {
+            return;
+        }
+        int grown = Math.max(capacity, x.length * 2);
+        x = Arrays.copyOf(x, grown);
+        y = Arrays.copyOf(y, grown);
+        width = Arrays.copyOf(width, grown);
+        height = Arrays.copyOf(height, grown);
+        fontSize = Arrays.copyOf(fontSize, grown);
+        codepoint = Arrays.copyOf(codepoint, grown);
+        fontId = Arrays.copyOf(fontId, grown);
+    }
+}
@@ -0,0 +1,159 @@
+package org.example;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadView;
+import org.apache.pdfbox.pdfwriter.COSWriter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a document that was loaded from a file as that file's bytes followed by
+ * an incremental update holding only the objects changed since loading.
+ * File originals are copied with FileChannel.transferTo, so they go from file
+ * to file without passing through the heap; COSWriter then only serializes the
+ * increment. PDDocument.saveIncremental would instead stream the whole original
+ * through its own copy loop.
+ * The increment is serialized to a temporary file before anything reaches the
+ * target, so a failure while building it leaves the target untouched and the
+ * caller can still fall back to a full rewrite, even into a stream or channel.
+ */
+final class IncrementalWriter {
+
+    private IncrementalWriter() {
+    }
+
+    /**
+     * Reason the document cannot be saved incrementally, or null if it can
+     */
+    static String unsupportedReason(PDDocument document, PdfSource original, PdfTarget output) throws IOException {
+        if (document.isEncrypted()) {
+            return "document is encrypted";
+        }
+        if (original.file() != null && output.file() != null && output.file().exists()
+                && Files.isSameFile(original.file().toPath(), output.file().toPath())) {
+            return "output would overwrite the original while it is read";
+        }
+        return null;
+    }
+
+    /**
+     * Serialize the changes made since loading; nothing is written to the target yet
+     *
+     * @param modified false when nothing changed; the output is then an exact copy of the original
+     */
+    static Increment prepare(PDDocument document, PdfSource original, boolean modified) throws IOException {
+        if (!modified) {
+            return new Increment(original, null);
+        }
+        Path increment = Files.createTempFile("pdf-increment", ".pdf");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(increment))) {
+            // Offsets in the increment are relative to the original length; its bytes are written ahead of it
+            new COSWriter(out, new CopiedOriginal(original.length())).write(document);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(increment);
+            throw e;
+        }
+        return new Increment(original, increment);
+    }
+
+    /**
+     * A serialized increment waiting to be written after the original's bytes
+     */
+    static final class Increment implements AutoCloseable {
+        private final PdfSource original;
+        private final Path file;
+
+        private Increment(PdfSource original, Path file) {
+            this.original = original;
+            this.file = file;
+        }
+
+        void writeTo(PdfTarget output) throws IOException {
+            try (WritableByteChannel out = output.openChannel()) {
+                original.transferTo(out);
+                if (file != null) {
+                    try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                        long length = in.size();
+                        long copied = 0;
+                        while (copied < length) {
+                            copied += in.transferTo(copied, length - copied, out);
+                        }
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Stands in for the original as COSWriter's incremental input: it reports the
+     * original length, which the increment's offsets are based on, and reads as empty
+     * because the original bytes are transferred to the output separately
+     */
+    private static final class CopiedOriginal implements RandomAccessRead {
+        private final long length;
+        private boolean closed;
+
+        CopiedOriginal(long length) {
+            this.length = length;
+        }
+
+        @Override
+        public int read() {
+            return -1;
+        }
+
+        @Override
+        public int read(byte[] b, int offset, int len) {
+            return -1;
+        }
+
+        @Override
+        public long getPosition() {
+            return length;
+        }
+
+        @Override
+        public void seek(long position) {
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public boolean isEOF() {
+            return true;
+        }
+
+        @Override
+        public RandomAccessReadView createView(long startPosition, long streamLength) {
+            throw new UnsupportedOperationException("Original bytes are not readable from the increment writer");
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
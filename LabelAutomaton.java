@@ -0,0 +1,351 @@
+package org.example;
+
+import java.util.*;
+
+/**
+ * Aho-Corasick automaton over the literal field labels (name, email, dob, ...).
+ * One linear pass over a page reports every offset where a label starts, so the
+ * value regexes only need to run at those anchors and label-free pages skip
+ * matching entirely. Matching is case-insensitive; it may report a few extra
+ * anchors for non-ASCII case folds, never fewer than the regexes can match.
+ */
+final class LabelAutomaton {
+
+    private static final int ASCII = 128;
+
+    private final int alphabetSize;
+    private final int[] asciiSymbols;            // char -> symbol for ASCII
+    private final Map<Character, Integer> otherSymbols;
+    private final int[] transitions;             // state * alphabetSize + symbol -> state
+    private final int[][] outputLabels;          // state -> label ids ending here
+    private final int[] labelLengths;
+    private final int[] labelOwners;
+
+    /**
+     * @param labels literal labels, matched case-insensitively
+     * @param owners owner id reported for the label at the same index
+     */
+    LabelAutomaton(List<String> labels, List<Integer> owners) {
+        labels = foldCase(labels);
+
+        // Symbol 0 stands for every character that appears in no label
+        asciiSymbols = new int[ASCII];
+        otherSymbols = new HashMap<>();
+        int symbols = 1;
+        for (String label : labels) {
+            for (int i = 0; i < label.length(); i++) {
+                char c = label.charAt(i);
+                if (c < ASCII) {
+                    if (asciiSymbols[c] == 0) asciiSymbols[c] = symbols++;
+                } else if (!otherSymbols.containsKey(c)) {
+                    otherSymbols.put(c, symbols++);
+                }
+            }
+        }
+        alphabetSize = symbols;
+
+        labelLengths = new int[labels.size()];
+        labelOwners = new int[labels.size()];
+
+        // Build the trie
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> outputs = new ArrayList<>();
+        trie.add(newRow());
+        outputs.add(new ArrayList<>());
+        for (int id = 0; id < labels.size(); id++) {
+            String label = labels.get(id);
+            labelLengths[id] = label.length();
+            labelOwners[id] = owners.get(id);
+            int state = 0;
+            for (int i = 0; i < label.length(); i++) {
+                int symbol = symbolOf(label.charAt(i));
+                if (trie.get(state)[symbol] <= 0) {
+                    trie.get(state)[symbol] = trie.size();
+                    trie.add(newRow());
+                    outputs.add(new ArrayList<>());
+                }
+                state = trie.get(state)[symbol];
+            }
+            outputs.get(state).add(id);
+        }
+
+        // Breadth-first failure links, folded into a full transition table
+        int stateCount = trie.size();
+        transitions = new int[stateCount * alphabetSize];
+        int[] failure = new int[stateCount];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < alphabetSize; symbol++) {
+            int child = trie.get(0)[symbol];
+            if (child > 0) {
+                transitions[symbol] = child;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs.get(state).addAll(outputs.get(failure[state]));
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                int child = trie.get(state)[symbol];
+                int fallback = transitions[failure[state] * alphabetSize + symbol];
+                if (child > 0) {
+                    failure[child] = fallback;
+                    transitions[state * alphabetSize + symbol] = child;
+                    queue.add(child);
+                } else {
+                    transitions[state * alphabetSize + symbol] = fallback;
+                }
+            }
+        }
+
+        outputLabels = new int[stateCount][];
+        for (int state = 0; state < stateCount; state++) {
+            outputLabels[state] = outputs.get(state).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private int[] newRow() {
+        return new int[alphabetSize];
+    }
+
+    private int symbolOf(char c) {
+        if (c < ASCII) return asciiSymbols[c];
+        Integer symbol = otherSymbols.get(c);
+        return symbol != null ? symbol : 0;
+    }
+
+    /**
+     * Scan the text once and collect every label occurrence
+     */
+    Hits scan(CharSequence text) {
+        Hits hits = new Hits();
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            state = transitions[state * alphabetSize + symbolOf(c)];
+            for (int label : outputLabels[state]) {
+                hits.add(i - labelLengths[label] + 1, labelOwners[label]);
+            }
+        }
+        return hits;
+    }
+
+    private static List<String> foldCase(List<String> labels) {
+        List<String> folded = new ArrayList<>();
+        for (String label : labels) {
+            if (label.isEmpty()) {
+                throw new IllegalArgumentException("Labels must not be empty");
+            }
+            StringBuilder lower = new StringBuilder(label.length());
+            for (int i = 0; i < label.length(); i++) {
+                lower.append(Character.toLowerCase(label.charAt(i)));
+            }
+            folded.add(lower.toString());
+        }
+        return folded;
+    }
+
+    /**
+     * Label start offsets found in one page, with the owner that registered each label
+     */
+    static final class Hits {
+        private int[] starts = new int[16];
+        private int[] owners = new int[16];
+        private int size;
+
+        private void add(int start, int owner) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                owners = Arrays.copyOf(owners, size * 2);
+            }
+            starts[size] = start;
+            owners[size] = owner;
+            size++;
+        }
+
+        boolean isEmpty() { return size == 0; }
+
+        /**
+         * Sorted, distinct start offsets of labels of any owner
+         */
+        int[] allStarts() {
+            return distinctSorted(Arrays.copyOf(starts, size), size);
+        }
+
+        /**
+         * Sorted, distinct start offsets of labels registered by the given owner
+         */
+        int[] startsFor(int owner) {
+            int[] selected = new int[size];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (owners[i] == owner) selected[count++] = starts[i];
+            }
+            return distinctSorted(selected, count);
+        }
+
+        private static int[] distinctSorted(int[] values, int count) {
+            Arrays.sort(values, 0, count);
+            int unique = 0;
+            for (int i = 0; i < count; i++) {
+                if (unique == 0 || values[unique - 1] != values[i]) values[unique++] = values[i];
+            }
+            return Arrays.copyOf(values, unique);
+        }
+    }
+
+    /**
+     * Literal prefixes that every match of the regex must start with, or null if
+     * one cannot be derived (the rule then has to be scanned without a prefilter).
+     * Understands the shapes our rules use: optional inline flags, an optional
+     * leading group with a top-level alternation, escapes and \Q...\E quoting.
+     */
+    static List<String> leadingLiterals(String regex) {
+        List<String> literals = new ArrayList<>();
+        for (String alternative : splitTopLevel(regex)) {
+            if (!collectLeadingLiterals(alternative, literals)) return null;
+        }
+        return literals;
+    }
+
+    private static boolean collectLeadingLiterals(String sequence, List<String> literals) {
+        int pos = 0;
+        while (sequence.startsWith("(?", pos) && isInlineFlagGroup(sequence, pos)) {
+            pos = sequence.indexOf(')', pos) + 1;
+        }
+
+        if (pos < sequence.length() && sequence.charAt(pos) == '(') {
+            int close = findClosingParen(sequence, pos);
+            if (close < 0) return false;
+            // An optional or repeated group guarantees no prefix
+            if (close + 1 < sequence.length() && "?*{".indexOf(sequence.charAt(close + 1)) >= 0) return false;
+            int bodyStart;
+            if (sequence.startsWith("(?:", pos)) {
+                bodyStart = pos + 3;
+            } else if (sequence.startsWith("(?", pos)) {
+                return false; // lookaround or named group
+            } else {
+                bodyStart = pos + 1;
+            }
+            for (String alternative : splitTopLevel(sequence.substring(bodyStart, close))) {
+                if (!collectLeadingLiterals(alternative, literals)) return false;
+            }
+            return true;
+        }
+
+        String literal = leadingLiteral(sequence.substring(pos));
+        if (literal.isEmpty()) return false;
+        literals.add(literal);
+        return true;
+    }
+
+    private static boolean isInlineFlagGroup(String regex, int pos) {
+        int close = regex.indexOf(')', pos);
+        if (close < 0) return false;
+        for (int i = pos + 2; i < close; i++) {
+            if ("idmsuxU-".indexOf(regex.charAt(i)) < 0) return false;
+        }
+        return close > pos + 2;
+    }
+
+    private static String leadingLiteral(String regex) {
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            int next;
+            char literalChar;
+            if (regex.startsWith("\\Q", i)) {
+                int end = regex.indexOf("\\E", i + 2);
+                String quoted = end < 0 ? regex.substring(i + 2) : regex.substring(i + 2, end);
+                int after = end < 0 ? regex.length() : end + 2;
+                if (after < regex.length() && "*?{".indexOf(regex.charAt(after)) >= 0) {
+                    literal.append(quoted, 0, Math.max(0, quoted.length() - 1));
+                    return literal.toString();
+                }
+                literal.append(quoted);
+                if (after < regex.length() && regex.charAt(after) == '+') return literal.toString();
+                i = after;
+                continue;
+            } else if (c == '\\') {
+                if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) break;
+                literalChar = regex.charAt(i + 1);
+                next = i + 2;
+            } else if ("[]().^$|*+?{}".indexOf(c) >= 0) {
+                break;
+            } else {
+                literalChar = c;
+                next = i + 1;
+            }
+
+            // A quantifier makes the last character optional or repeatable
+            if (next < regex.length()) {
+                char quantifier = regex.charAt(next);
+                if (quantifier == '*' || quantifier == '?' || quantifier == '{') break;
+                if (quantifier == '+') {
+                    literal.append(literalChar);
+                    break;
+                }
+            }
+            literal.append(literalChar);
+            i = next;
+        }
+        return literal.toString();
+    }
+
+    private static int findClosingParen(String regex, int open) {
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = open; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (regex.startsWith("\\Q", i)) {
+                    int end = regex.indexOf("\\E", i + 2);
+                    if (end < 0) return -1;
+                    i = end + 1;
+                } else {
+                    i++;
+                }
+            } else if (inClass) {
+                if (c == ']') inClass = false;
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                if (--depth == 0) return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<String> splitTopLevel(String body) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        boolean inClass = false;
+        int start = 0;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '\\') {
+                if (body.startsWith("\\Q", i)) {
+                    int end = body.indexOf("\\E", i + 2);
+                    i = end < 0 ? body.length() : end + 1;
+                } else {
+                    i++;
+                }
+            } else if (inClass) {
+                if (c == ']') inClass = false;
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                parts.add(body.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(body.substring(start));
+        return parts;
+    }
+}
@@ -0,0 +1,822 @@
+package org.example;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Linear-time regex engine (Thompson NFA simulated as a Pike VM).
+ * Runs in O(text length x program size) whatever the input, so dense or
+ * malformed page text cannot trigger catastrophic backtracking. Submatches
+ * follow java.util.regex leftmost-first priority, including lazy quantifiers.
+ *
+ * Supported subset: literals and escapes, \Q...\E, character classes (no
+ * intersections or nesting), \d \s \w and their negations, '.', groups,
+ * non-capturing groups, inline flags i/m/s, alternation, greedy and lazy
+ * quantifiers, ^ and $, and a positive lookahead when nothing follows it.
+ * Anything else raises UnsupportedPatternException so the caller can fall back.
+ * Case-insensitive matching is ASCII-only, as with Pattern.CASE_INSENSITIVE.
+ */
+final class LinearRegex {
+
+    private static final int MAX_PROGRAM_SIZE = 8192;
+
+    // Instruction opcodes
+    private static final int CHAR_SET = 0;
+    private static final int SPLIT = 1;      // prefer arg1, then arg2
+    private static final int JUMP = 2;
+    private static final int SAVE = 3;
+    private static final int ASSERT = 4;
+    private static final int MATCH = 5;
+
+    // Assertion kinds
+    private static final int LINE_START = 0;
+    private static final int LINE_END = 1;
+    private static final int INPUT_START = 2;
+    private static final int INPUT_END = 3;
+    private static final int ABSOLUTE_END = 4;
+
+    private final String source;
+    private final int groupCount;
+    private final int[] ops;
+    private final int[] arg1;
+    private final int[] arg2;
+    private final CharSet[] charSets;
+
+    private LinearRegex(String source, int groupCount, int[] ops, int[] arg1, int[] arg2, CharSet[] charSets) {
+        this.source = source;
+        this.groupCount = groupCount;
+        this.ops = ops;
+        this.arg1 = arg1;
+        this.arg2 = arg2;
+        this.charSets = charSets;
+    }
+
+    /**
+     * Compile a regex using java.util.regex flags (CASE_INSENSITIVE, MULTILINE, DOTALL)
+     */
+    static LinearRegex compile(String regex, int flags) {
+        if ((flags & ~(Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL)) != 0) {
+            throw new UnsupportedPatternException("flags 0x" + Integer.toHexString(flags));
+        }
+        Parser parser = new Parser(regex, flags);
+        Node root = parser.parse();
+        Compiler compiler = new Compiler();
+        compiler.emit(SAVE, 0, 0);
+        compiler.compile(root, true, new ArrayDeque<>());
+        compiler.emit(SAVE, 1, 0);
+        compiler.emit(MATCH, 0, 0);
+        return compiler.build(regex, parser.groupCount);
+    }
+
+    int groupCount() {
+        return groupCount;
+    }
+
+    String pattern() {
+        return source;
+    }
+
+    /**
+     * VM working memory; reusable across calls but not shared between threads
+     */
+    Scratch newScratch() {
+        return new Scratch(ops.length, 2 * (groupCount + 1));
+    }
+
+    /**
+     * Match starting exactly at the given offset
+     * @param groups receives start/end pairs for group 0..groupCount, -1 when unset
+     */
+    boolean lookingAt(CharSequence text, int at, int[] groups, Scratch scratch) {
+        return run(text, at, true, groups, scratch);
+    }
+
+    /**
+     * Leftmost match starting at or after the given offset
+     */
+    boolean find(CharSequence text, int from, int[] groups, Scratch scratch) {
+        return run(text, from, false, groups, scratch);
+    }
+
+    // ---------------------------------------------------------------- Pike VM
+
+    private boolean run(CharSequence text, int from, boolean anchored, int[] groups, Scratch scratch) {
+        int slots = 2 * (groupCount + 1);
+        ThreadList current = scratch.current;
+        ThreadList next = scratch.next;
+        current.clear();
+        next.clear();
+        int[] seed = scratch.seed;
+        boolean matched = false;
+        int length = text.length();
+
+        for (int pos = from; pos <= length; pos++) {
+            if (!matched && (!anchored || pos == from)) {
+                // New attempts start with the lowest priority
+                Arrays.fill(seed, -1);
+                addThread(current, 0, pos, seed, text);
+            }
+            if (current.size == 0) {
+                if (matched || anchored) break;
+                current.clear(); // no live thread here, try a new start at the next offset
+                continue;
+            }
+
+            char c = pos < length ? text.charAt(pos) : 0;
+            for (int i = 0; i < current.size; i++) {
+                int pc = current.pcs[i];
+                int[] caps = current.caps[i];
+                if (ops[pc] == MATCH) {
+                    matched = true;
+                    System.arraycopy(caps, 0, groups, 0, slots);
+                    break; // lower-priority threads are cut off
+                }
+                if (ops[pc] == CHAR_SET && pos < length && charSets[arg1[pc]].contains(c)) {
+                    addThread(next, pc + 1, pos + 1, caps, text);
+                }
+            }
+
+            ThreadList swap = current;
+            current = next;
+            next = swap;
+            next.clear();
+        }
+        return matched;
+    }
+
+    private void addThread(ThreadList list, int pc, int pos, int[] caps, CharSequence text) {
+        if (list.contains(pc)) {
+            return;
+        }
+        list.mark(pc);
+        switch (ops[pc]) {
+            case JUMP:
+                addThread(list, arg1[pc], pos, caps, text);
+                break;
+            case SPLIT:
+                addThread(list, arg1[pc], pos, caps, text);
+                addThread(list, arg2[pc], pos, caps, text);
+                break;
+            case SAVE: {
+                int slot = arg1[pc];
+                int previous = caps[slot];
+                caps[slot] = pos;
+                addThread(list, pc + 1, pos, caps, text);
+                caps[slot] = previous;
+                break;
+            }
+            case ASSERT:
+                if (assertionHolds(arg1[pc], text, pos)) {
+                    addThread(list, pc + 1, pos, caps, text);
+                }
+                break;
+            default:
+                list.add(pc, caps);
+                break;
+        }
+    }
+
+    private static boolean assertionHolds(int kind, CharSequence text, int pos) {
+        int length = text.length();
+        switch (kind) {
+            case INPUT_START:
+                return pos == 0;
+            case LINE_START:
+                if (pos == 0) return true;
+                if (pos == length) return false;
+                char before = text.charAt(pos - 1);
+                if (before == '\r' && text.charAt(pos) == '\n') return false;
+                return isLineTerminator(before);
+            case LINE_END:
+                if (pos == length) return true;
+                char at = text.charAt(pos);
+                if (at == '\n' && pos > 0 && text.charAt(pos - 1) == '\r') return false;
+                return isLineTerminator(at);
+            case INPUT_END:
+                // Java's $ without MULTILINE: end of input or before a final line terminator
+                if (pos == length) return true;
+                if (pos == length - 1) return isLineTerminator(text.charAt(pos));
+                return pos == length - 2 && text.charAt(pos) == '\r' && text.charAt(pos + 1) == '\n';
+            case ABSOLUTE_END:
+                return pos == length;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    static final class Scratch {
+        private final ThreadList current;
+        private final ThreadList next;
+        private final int[] seed;
+
+        private Scratch(int programSize, int slots) {
+            current = new ThreadList(programSize, slots);
+            next = new ThreadList(programSize, slots);
+            seed = new int[slots];
+        }
+    }
+
+    private static final class ThreadList {
+        final int[] pcs;
+        final int[][] caps;
+        final int[] marks;
+        int size;
+        int generation = 1;
+
+        ThreadList(int programSize, int slots) {
+            pcs = new int[programSize];
+            caps = new int[programSize][slots];
+            marks = new int[programSize];
+        }
+
+        boolean contains(int pc) { return marks[pc] == generation; }
+        void mark(int pc) { marks[pc] = generation; }
+
+        void add(int pc, int[] threadCaps) {
+            pcs[size] = pc;
+            System.arraycopy(threadCaps, 0, caps[size], 0, threadCaps.length);
+            size++;
+        }
+
+        void clear() {
+            size = 0;
+            generation++;
+        }
+    }
+
+    // ---------------------------------------------------------------- AST
+
+    private abstract static class Node { }
+
+    private static final class CharNode extends Node {
+        final CharSet set;
+        CharNode(CharSet set) { this.set = set; }
+    }
+
+    private static final class ConcatNode extends Node {
+        final List<Node> parts;
+        ConcatNode(List<Node> parts) { this.parts = parts; }
+    }
+
+    private static final class AltNode extends Node {
+        final List<Node> branches;
+        AltNode(List<Node> branches) { this.branches = branches; }
+    }
+
+    private static final class GroupNode extends Node {
+        final int index; // capturing group number
+        final Node body;
+        GroupNode(int index, Node body) { this.index = index; this.body = body; }
+    }
+
+    private static final class RepeatNode extends Node {
+        final Node body;
+        final int min;
+        final int max; // -1 for unbounded
+        final boolean greedy;
+        RepeatNode(Node body, int min, int max, boolean greedy) {
+            this.body = body; this.min = min; this.max = max; this.greedy = greedy;
+        }
+    }
+
+    private static final class AssertNode extends Node {
+        final int kind;
+        AssertNode(int kind) { this.kind = kind; }
+    }
+
+    private static final class LookaheadNode extends Node {
+        final Node body;
+        LookaheadNode(Node body) { this.body = body; }
+    }
+
+    // ---------------------------------------------------------------- Parser
+
+    private static final class Parser {
+        private final String regex;
+        private int pos;
+        private boolean caseInsensitive;
+        private boolean multiline;
+        private boolean dotAll;
+        int groupCount;
+
+        Parser(String regex, int flags) {
+            this.regex = regex;
+            this.caseInsensitive = (flags & Pattern.CASE_INSENSITIVE) != 0;
+            this.multiline = (flags & Pattern.MULTILINE) != 0;
+            this.dotAll = (flags & Pattern.DOTALL) != 0;
+        }
+
+        Node parse() {
+            Node node = parseAlternation();
+            if (pos < regex.length()) {
+                throw new UnsupportedPatternException("unbalanced ')' at " + pos);
+            }
+            return node;
+        }
+
+        private Node parseAlternation() {
+            List<Node> branches = new ArrayList<>();
+            branches.add(parseSequence());
+            while (pos < regex.length() && regex.charAt(pos) == '|') {
+                pos++;
+                branches.add(parseSequence());
+            }
+            return branches.size() == 1 ? branches.get(0) : new AltNode(branches);
+        }
+
+        private Node parseSequence() {
+            List<Node> parts = new ArrayList<>();
+            while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+                Node atom = parseAtom();
+                if (atom != null) {
+                    parts.add(parseQuantifier(atom));
+                }
+            }
+            return new ConcatNode(parts);
+        }
+
+        private Node parseAtom() {
+            char c = regex.charAt(pos);
+            switch (c) {
+                case '(':
+                    return parseGroup();
+                case '[':
+                    return new CharNode(parseClass());
+                case '.':
+                    pos++;
+                    return new CharNode(dotAll ? CharSet.ALL : CharSet.LINE_TERMINATORS.negate());
+                case '^':
+                    pos++;
+                    return new AssertNode(multiline ? LINE_START : INPUT_START);
+                case '$':
+                    pos++;
+                    return new AssertNode(multiline ? LINE_END : INPUT_END);
+                case '\\':
+                    return parseEscape();
+                case '*': case '+': case '?': case '{':
+                    throw new UnsupportedPatternException("dangling quantifier at " + pos);
+                default:
+                    pos++;
+                    return literal(c);
+            }
+        }
+
+        private Node parseGroup() {
+            boolean savedCase = caseInsensitive, savedMultiline = multiline, savedDotAll = dotAll;
+            pos++; // '('
+            Node result;
+            if (regex.startsWith("?:", pos)) {
+                pos += 2;
+                result = parseAlternation();
+            } else if (regex.startsWith("?=", pos)) {
+                pos += 2;
+                result = new LookaheadNode(parseAlternation());
+            } else if (pos < regex.length() && regex.charAt(pos) == '?') {
+                // Inline flags: (?i) applies to the rest of the enclosing group, (?i:X) to X only
+                int flagsStart = ++pos;
+                boolean enable = true;
+                while (pos < regex.length() && regex.charAt(pos) != ')' && regex.charAt(pos) != ':') {
+                    char flag = regex.charAt(pos++);
+                    switch (flag) {
+                        case '-': enable = false; break;
+                        case 'i': caseInsensitive = enable; break;
+                        case 'm': multiline = enable; break;
+                        case 's': dotAll = enable; break;
+                        default:
+                            throw new UnsupportedPatternException("group construct (?" + regex.substring(flagsStart, pos));
+                    }
+                }
+                if (pos >= regex.length()) {
+                    throw new UnsupportedPatternException("unterminated group");
+                }
+                if (regex.charAt(pos) == ')') {
+                    pos++;
+                    return null; // flags stay in effect for the enclosing group
+                }
+                pos++; // ':'
+                result = parseAlternation();
+            } else {
+                int index = ++groupCount;
+                result = new GroupNode(index, parseAlternation());
+            }
+            if (pos >= regex.length() || regex.charAt(pos) != ')') {
+                throw new UnsupportedPatternException("unterminated group");
+            }
+            pos++;
+            caseInsensitive = savedCase;
+            multiline = savedMultiline;
+            dotAll = savedDotAll;
+            return result;
+        }
+
+        private Node parseQuantifier(Node atom) {
+            if (pos >= regex.length()) {
+                return atom;
+            }
+            int min;
+            int max;
+            char c = regex.charAt(pos);
+            if (c == '*') {
+                min = 0; max = -1; pos++;
+            } else if (c == '+') {
+                min = 1; max = -1; pos++;
+            } else if (c == '?') {
+                min = 0; max = 1; pos++;
+            } else if (c == '{') {
+                int close = regex.indexOf('}', pos);
+                if (close < 0) throw new UnsupportedPatternException("unterminated repetition");
+                String spec = regex.substring(pos + 1, close);
+                try {
+                    int comma = spec.indexOf(',');
+                    if (comma < 0) {
+                        min = max = Integer.parseInt(spec.trim());
+                    } else {
+                        min = Integer.parseInt(spec.substring(0, comma).trim());
+                        String upper = spec.substring(comma + 1).trim();
+                        max = upper.isEmpty() ? -1 : Integer.parseInt(upper);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new UnsupportedPatternException("repetition {" + spec + "}");
+                }
+                pos = close + 1;
+            } else {
+                return atom;
+            }
+
+            boolean greedy = true;
+            if (pos < regex.length() && regex.charAt(pos) == '?') {
+                greedy = false;
+                pos++;
+            } else if (pos < regex.length() && regex.charAt(pos) == '+') {
+                throw new UnsupportedPatternException("possessive quantifier");
+            }
+            if (atom instanceof AssertNode || atom instanceof LookaheadNode) {
+                throw new UnsupportedPatternException("quantified assertion");
+            }
+            return new RepeatNode(atom, min, max, greedy);
+        }
+
+        private Node parseEscape() {
+            pos++; // '\'
+            if (pos >= regex.length()) throw new UnsupportedPatternException("trailing backslash");
+            char c = regex.charAt(pos);
+            if (c == 'Q') {
+                int end = regex.indexOf("\\E", pos + 1);
+                String quoted = end < 0 ? regex.substring(pos + 1) : regex.substring(pos + 1, end);
+                pos = end < 0 ? regex.length() : end + 2;
+                List<Node> parts = new ArrayList<>();
+                for (int i = 0; i < quoted.length(); i++) {
+                    parts.add(literal(quoted.charAt(i)));
+                }
+                return new ConcatNode(parts);
+            }
+            if (c == 'A' || c == 'Z' || c == 'z') {
+                pos++;
+                return new AssertNode(c == 'A' ? INPUT_START : c == 'Z' ? INPUT_END : ABSOLUTE_END);
+            }
+            CharSet set = escapeSet(c);
+            if (set != null) {
+                pos++;
+                return new CharNode(set);
+            }
+            return literal(escapedChar());
+        }
+
+        // Predefined classes shared by atoms and character classes
+        private CharSet escapeSet(char c) {
+            switch (c) {
+                case 'd': return CharSet.DIGITS;
+                case 'D': return CharSet.DIGITS.negate();
+                case 's': return CharSet.SPACES;
+                case 'S': return CharSet.SPACES.negate();
+                case 'w': return CharSet.WORD;
+                case 'W': return CharSet.WORD.negate();
+                default: return null;
+            }
+        }
+
+        // Consumes one escaped character at pos and returns its value
+        private char escapedChar() {
+            char c = regex.charAt(pos++);
+            switch (c) {
+                case 't': return '\t';
+                case 'n': return '\n';
+                case 'r': return '\r';
+                case 'f': return '\f';
+                case 'a': return '\u0007';
+                case 'e': return '\u001B';
+                case 'x': return (char) hex(2);
+                case 'u': return (char) hex(4);
+                default:
+                    if (Character.isLetterOrDigit(c)) {
+                        throw new UnsupportedPatternException("escape \\" + c);
+                    }
+                    return c;
+            }
+        }
+
+        private int hex(int digits) {
+            if (pos + digits > regex.length()) throw new UnsupportedPatternException("bad hex escape");
+            try {
+                int value = Integer.parseInt(regex.substring(pos, pos + digits), 16);
+                pos += digits;
+                return value;
+            } catch (NumberFormatException e) {
+                throw new UnsupportedPatternException("bad hex escape");
+            }
+        }
+
+        private CharSet parseClass() {
+            pos++; // '['
+            boolean negated = false;
+            if (pos < regex.length() && regex.charAt(pos) == '^') {
+                negated = true;
+                pos++;
+            }
+            CharSet set = CharSet.EMPTY;
+            boolean first = true;
+            while (true) {
+                if (pos >= regex.length()) throw new UnsupportedPatternException("unterminated class");
+                char c = regex.charAt(pos);
+                if (c == ']' && !first) {
+                    pos++;
+                    break;
+                }
+                if (c == '[' || regex.startsWith("&&", pos)) {
+                    throw new UnsupportedPatternException("nested class or intersection");
+                }
+                first = false;
+
+                if (c == '\\') {
+                    pos++;
+                    if (pos >= regex.length()) throw new UnsupportedPatternException("unterminated class");
+                    CharSet predefined = escapeSet(regex.charAt(pos));
+                    if (predefined != null) {
+                        pos++;
+                        set = set.union(predefined);
+                        continue;
+                    }
+                    c = escapedChar();
+                } else {
+                    pos++;
+                }
+
+                char high = c;
+                if (pos + 1 < regex.length() && regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']') {
+                    pos++;
+                    high = regex.charAt(pos);
+                    if (high == '\\') {
+                        pos++;
+                        high = escapedChar();
+                    } else {
+                        pos++;
+                    }
+                    if (high < c) throw new UnsupportedPatternException("bad class range");
+                }
+                set = set.union(CharSet.range(c, high));
+            }
+            if (caseInsensitive) {
+                set = set.foldAsciiCase();
+            }
+            return negated ? set.negate() : set;
+        }
+
+        private Node literal(char c) {
+            CharSet set = CharSet.range(c, c);
+            return new CharNode(caseInsensitive ? set.foldAsciiCase() : set);
+        }
+    }
+
+    // ---------------------------------------------------------------- Compiler
+
+    private static final class Compiler {
+        private int[] ops = new int[64];
+        private int[] arg1 = new int[64];
+        private int[] arg2 = new int[64];
+        private int size;
+        private final List<CharSet> charSets = new ArrayList<>();
+
+        int emit(int op, int a, int b) {
+            if (size == MAX_PROGRAM_SIZE) {
+                throw new UnsupportedPatternException("program larger than " + MAX_PROGRAM_SIZE + " instructions");
+            }
+            if (size == ops.length) {
+                ops = Arrays.copyOf(ops, size * 2);
+                arg1 = Arrays.copyOf(arg1, size * 2);
+                arg2 = Arrays.copyOf(arg2, size * 2);
+            }
+            ops[size] = op;
+            arg1[size] = a;
+            arg2[size] = b;
+            return size++;
+        }
+
+        /**
+         * @param tail         true when nothing can consume input after this node
+         * @param pendingSaves group-end slots of enclosing tail groups, recorded before a trailing lookahead
+         */
+        void compile(Node node, boolean tail, Deque<Integer> pendingSaves) {
+            if (node instanceof CharNode) {
+                charSets.add(((CharNode) node).set);
+                emit(CHAR_SET, charSets.size() - 1, 0);
+            } else if (node instanceof ConcatNode) {
+                List<Node> parts = ((ConcatNode) node).parts;
+                for (int i = 0; i < parts.size(); i++) {
+                    compile(parts.get(i), tail && i == parts.size() - 1, pendingSaves);
+                }
+            } else if (node instanceof AltNode) {
+                List<Node> branches = ((AltNode) node).branches;
+                List<Integer> jumps = new ArrayList<>();
+                for (int i = 0; i < branches.size(); i++) {
+                    if (i < branches.size() - 1) {
+                        int split = emit(SPLIT, size + 1, 0);
+                        compile(branches.get(i), tail, pendingSaves);
+                        jumps.add(emit(JUMP, 0, 0));
+                        arg2[split] = size;
+                    } else {
+                        compile(branches.get(i), tail, pendingSaves);
+                    }
+                }
+                for (int jump : jumps) {
+                    arg1[jump] = size;
+                }
+            } else if (node instanceof GroupNode) {
+                GroupNode group = (GroupNode) node;
+                emit(SAVE, 2 * group.index, 0);
+                if (tail) pendingSaves.push(2 * group.index + 1);
+                compile(group.body, tail, pendingSaves);
+                if (tail) pendingSaves.pop();
+                emit(SAVE, 2 * group.index + 1, 0);
+            } else if (node instanceof RepeatNode) {
+                compileRepeat((RepeatNode) node, pendingSaves);
+            } else if (node instanceof AssertNode) {
+                emit(ASSERT, ((AssertNode) node).kind, 0);
+            } else if (node instanceof LookaheadNode) {
+                if (!tail) {
+                    throw new UnsupportedPatternException("lookahead followed by more pattern");
+                }
+                // The match ends here; the lookahead body only has to match after it
+                for (int slot : pendingSaves) {
+                    emit(SAVE, slot, 0);
+                }
+                emit(SAVE, 1, 0);
+                compile(((LookaheadNode) node).body, false, new ArrayDeque<>());
+                emit(MATCH, 0, 0);
+            }
+        }
+
+        private void compileRepeat(RepeatNode repeat, Deque<Integer> pendingSaves) {
+            for (int i = 0; i < repeat.min; i++) {
+                compile(repeat.body, false, pendingSaves);
+            }
+            if (repeat.max < 0) {
+                // x*: L: split body, out; body; jump L
+                int split = emit(SPLIT, 0, 0);
+                compile(repeat.body, false, pendingSaves);
+                emit(JUMP, split, 0);
+                setSplit(split, split + 1, size, repeat.greedy);
+            } else {
+                // Nested optionals (x(x(x)?)?)? keep epsilon chains short
+                List<Integer> splits = new ArrayList<>();
+                for (int i = repeat.min; i < repeat.max; i++) {
+                    splits.add(emit(SPLIT, 0, 0));
+                    compile(repeat.body, false, pendingSaves);
+                }
+                for (int split : splits) {
+                    setSplit(split, split + 1, size, repeat.greedy);
+                }
+            }
+        }
+
+        private void setSplit(int split, int body, int exit, boolean greedy) {
+            arg1[split] = greedy ? body : exit;
+            arg2[split] = greedy ? exit : body;
+        }
+
+        LinearRegex build(String source, int groupCount) {
+            return new LinearRegex(source, groupCount,
+                    Arrays.copyOf(ops, size), Arrays.copyOf(arg1, size), Arrays.copyOf(arg2, size),
+                    charSets.toArray(new CharSet[0]));
+        }
+    }
+
+    // ---------------------------------------------------------------- Character sets
+
+    /**
+     * Immutable set of UTF-16 code units as sorted, non-overlapping ranges, with an ASCII bitmap
+     */
+    private static final class CharSet {
+        static final CharSet EMPTY = new CharSet(new int[0]);
+        static final CharSet ALL = range('\u0000', '\uffff');
+        static final CharSet DIGITS = range('0', '9');
+        static final CharSet SPACES = range('\t', '\r').union(range(' ', ' '));
+        static final CharSet WORD = range('a', 'z').union(range('A', 'Z')).union(DIGITS).union(range('_', '_'));
+        static final CharSet LINE_TERMINATORS = range('\n', '\n').union(range('\r', '\r'))
+                .union(range('\u0085', '\u0085')).union(range('\u2028', '\u2029'));
+
+        private final int[] ranges; // lo0, hi0, lo1, hi1, ...
+        private final long asciiLow;
+        private final long asciiHigh;
+
+        private CharSet(int[] ranges) {
+            this.ranges = ranges;
+            long low = 0, high = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                for (int c = ranges[i]; c <= Math.min(ranges[i + 1], 127); c++) {
+                    if (c < 64) low |= 1L << c; else high |= 1L << (c - 64);
+                }
+            }
+            this.asciiLow = low;
+            this.asciiHigh = high;
+        }
+
+        static CharSet range(char lo, char hi) {
+            return new CharSet(new int[]{lo, hi});
+        }
+
+        boolean contains(char c) {
+            if (c < 64) return (asciiLow & (1L << c)) != 0;
+            if (c < 128) return (asciiHigh & (1L << (c - 64))) != 0;
+            int lo = 0, hi = ranges.length / 2 - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (c < ranges[2 * mid]) hi = mid - 1;
+                else if (c > ranges[2 * mid + 1]) lo = mid + 1;
+                else return true;
+            }
+            return false;
+        }
+
+        CharSet union(CharSet other) {
+            int[] merged = new int[ranges.length + other.ranges.length];
+            System.arraycopy(ranges, 0, merged, 0, ranges.length);
+            System.arraycopy(other.ranges, 0, merged, ranges.length, other.ranges.length);
+            return normalize(merged);
+        }
+
+        CharSet negate() {
+            int[] result = new int[ranges.length + 2];
+            int count = 0;
+            int next = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i] > next) {
+                    result[count++] = next;
+                    result[count++] = ranges[i] - 1;
+                }
+                next = ranges[i + 1] + 1;
+            }
+            if (next <= 0xFFFF) {
+                result[count++] = next;
+                result[count++] = 0xFFFF;
+            }
+            return new CharSet(Arrays.copyOf(result, count));
+        }
+
+        CharSet foldAsciiCase() {
+            CharSet folded = this;
+            for (int i = 0; i < ranges.length; i += 2) {
+                int lo = Math.max(ranges[i], 'A'), hi = Math.min(ranges[i + 1], 'Z');
+                if (lo <= hi) folded = folded.union(range((char) (lo + 32), (char) (hi + 32)));
+                lo = Math.max(ranges[i], 'a');
+                hi = Math.min(ranges[i + 1], 'z');
+                if (lo <= hi) folded = folded.union(range((char) (lo - 32), (char) (hi - 32)));
+            }
+            return folded;
+        }
+
+        private static CharSet normalize(int[] raw) {
+            int pairs = raw.length / 2;
+            Integer[] order = new Integer[pairs];
+            for (int i = 0; i < pairs; i++) order[i] = i;
+            Arrays.sort(order, Comparator.comparingInt(i -> raw[2 * i]));
+
+            int[] result = new int[raw.length];
+            int count = 0;
+            for (int index : order) {
+                int lo = raw[2 * index], hi = raw[2 * index + 1];
+                if (count > 0 && lo <= result[count - 1] + 1) {
+                    result[count - 1] = Math.max(result[count - 1], hi);
+                } else {
+                    result[count++] = lo;
+                    result[count++] = hi;
+                }
+            }
+            return new CharSet(Arrays.copyOf(result, count));
+        }
+    }
+
+    /**
+     * Thrown when a pattern uses syntax outside the linear engine's subset
+     */
+    static final class UnsupportedPatternException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedPatternException(String feature) {
+            super("Unsupported by linear engine: " + feature);
+        }
+    }
+}
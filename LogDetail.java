@@ -0,0 +1,15 @@
+package org.example;
+
+/**
+ * How much the maskers log; each level includes the ones above it
+ */
+public enum LogDetail {
+    /** Errors only */
+    QUIET,
+    /** One summary line per document: pages, masked pages, matches per field, elapsed time */
+    SUMMARY,
+    /** Per-page progress, strategy statistics and save decisions */
+    PAGES,
+    /** Every match, strategy attempt and bounds calculation; positions and counts, never values */
+    MATCHES
+}
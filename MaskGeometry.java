@@ -0,0 +1,197 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Union of a page's mask rectangles as a set of disjoint rectangles.
+ * A sweep over the x edges merges the y-intervals covered in each vertical slab
+ * and extends a rectangle from the previous slab while its interval stays the
+ * same, so a row of overlapping or touching matches on one line becomes a single
+ * rectangle and no area is painted twice. Edges closer than TOUCH_TOLERANCE are
+ * treated as touching, and rectangles may overlap by slivers that narrow. A last
+ * pass stacks rectangles of equal width that touch vertically. Each output
+ * rectangle keeps the largest glyph size of the inputs covering it, for sizing
+ * the mask text drawn on it.
+ * Merging within the tolerance only ever grows a rectangle: every point of an
+ * input lies in some output rectangle, which a mask must guarantee.
+ */
+final class MaskGeometry {
+
+    static final float TOUCH_TOLERANCE = 0.5f;
+
+    private MaskGeometry() {
+    }
+
+    /**
+     * Axis-aligned rectangle in page space with the glyph size of the text it covers
+     */
+    static final class Region {
+        final float minX;
+        final float minY;
+        final float maxX;
+        final float maxY;
+        final float glyphSize;
+
+        Region(float minX, float minY, float maxX, float maxY, float glyphSize) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.glyphSize = glyphSize;
+        }
+
+        float getWidth() {
+            return maxX - minX;
+        }
+
+        float getHeight() {
+            return maxY - minY;
+        }
+
+        private boolean sameRows(Region other) {
+            return Math.abs(minY - other.minY) <= TOUCH_TOLERANCE && Math.abs(maxY - other.maxY) <= TOUCH_TOLERANCE;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Region[x=%.1f..%.1f, y=%.1f..%.1f, glyph=%.1f]", minX, maxX, minY, maxY, glyphSize);
+        }
+    }
+
+    static List<Region> union(List<Region> regions) {
+        if (regions.size() < 2) {
+            return new ArrayList<>(regions);
+        }
+
+        float[] lows = new float[regions.size() * 2];
+        float[] highs = new float[lows.length];
+        int clusters = clusterXEdges(regions, lows, highs);
+        List<Region> byMinX = new ArrayList<>(regions);
+        byMinX.sort(Comparator.comparingDouble(region -> region.minX));
+
+        // Slab i runs from cluster i to cluster i + 1, spanning both clusters so no edge is cut
+        List<Region> done = new ArrayList<>();
+        List<Region> open = new ArrayList<>();   // union rectangles reaching the current slab
+        List<Region> active = new ArrayList<>(); // inputs spanning the current slab
+        int next = 0;
+        for (int i = 0; i + 1 < clusters; i++) {
+            float left = lows[i];
+            float right = highs[i + 1];
+            int slab = i;
+            while (next < byMinX.size() && cluster(lows, clusters, byMinX.get(next).minX) <= slab) {
+                Region region = byMinX.get(next++);
+                if (cluster(lows, clusters, region.maxX) == slab) {
+                    done.add(region); // Narrower than the tolerance: spans no slab, kept as it is
+                } else {
+                    active.add(region);
+                }
+            }
+            active.removeIf(region -> cluster(lows, clusters, region.maxX) <= slab);
+
+            List<Region> continued = new ArrayList<>();
+            for (Region strip : mergeRows(active, left, right)) {
+                Region extended = strip;
+                for (Iterator<Region> candidates = open.iterator(); candidates.hasNext(); ) {
+                    Region candidate = candidates.next();
+                    if (candidate.sameRows(strip)) {
+                        candidates.remove();
+                        extended = new Region(candidate.minX, Math.min(candidate.minY, strip.minY),
+                                right, Math.max(candidate.maxY, strip.maxY),
+                                Math.max(candidate.glyphSize, strip.glyphSize));
+                        break;
+                    }
+                }
+                continued.add(extended);
+            }
+            done.addAll(open);
+            open = continued;
+        }
+        done.addAll(open);
+        done.addAll(byMinX.subList(next, byMinX.size())); // Narrow inputs in the last cluster
+        return mergeColumns(done);
+    }
+
+    // Stack rectangles that share their x extent and touch vertically, e.g. lines of one address
+    private static List<Region> mergeColumns(List<Region> regions) {
+        List<Region> sorted = new ArrayList<>(regions);
+        sorted.sort(Comparator.<Region>comparingDouble(region -> region.minX)
+                .thenComparingDouble(region -> region.maxX)
+                .thenComparingDouble(region -> region.minY));
+
+        List<Region> merged = new ArrayList<>();
+        Region current = null;
+        for (Region region : sorted) {
+            if (current != null && Math.abs(region.minX - current.minX) <= TOUCH_TOLERANCE
+                    && Math.abs(region.maxX - current.maxX) <= TOUCH_TOLERANCE
+                    && region.minY <= current.maxY + TOUCH_TOLERANCE) {
+                current = new Region(Math.min(current.minX, region.minX), Math.min(current.minY, region.minY),
+                        Math.max(current.maxX, region.maxX), Math.max(current.maxY, region.maxY),
+                        Math.max(current.glyphSize, region.glyphSize));
+            } else {
+                if (current != null) {
+                    merged.add(current);
+                }
+                current = region;
+            }
+        }
+        if (current != null) {
+            merged.add(current);
+        }
+        return merged;
+    }
+
+    // Clusters x edges lying within the tolerance of the cluster's lowest edge; fills each
+    // cluster's lowest and highest edge and returns the number of clusters
+    private static int clusterXEdges(List<Region> regions, float[] lows, float[] highs) {
+        float[] all = new float[regions.size() * 2];
+        int i = 0;
+        for (Region region : regions) {
+            all[i++] = region.minX;
+            all[i++] = region.maxX;
+        }
+        Arrays.sort(all);
+
+        int count = 0;
+        for (float x : all) {
+            if (count == 0 || x - lows[count - 1] > TOUCH_TOLERANCE) {
+                lows[count++] = x;
+            }
+            highs[count - 1] = x;
+        }
+        return count;
+    }
+
+    // Index of the cluster holding an edge: the last cluster starting at or before it
+    private static int cluster(float[] lows, int clusters, float x) {
+        int index = Arrays.binarySearch(lows, 0, clusters, x);
+        return index >= 0 ? index : Math.max(0, -index - 2);
+    }
+
+    // Covered y-intervals of the slab, touching intervals merged
+    private static List<Region> mergeRows(List<Region> active, float left, float right) {
+        List<Region> byMinY = new ArrayList<>(active);
+        byMinY.sort(Comparator.comparingDouble(region -> region.minY));
+
+        List<Region> rows = new ArrayList<>();
+        Region current = null;
+        for (Region region : byMinY) {
+            if (current != null && region.minY <= current.maxY + TOUCH_TOLERANCE) {
+                current = new Region(left, current.minY, right, Math.max(current.maxY, region.maxY),
+                        Math.max(current.glyphSize, region.glyphSize));
+            } else {
+                if (current != null) {
+                    rows.add(current);
+                }
+                current = new Region(left, region.minY, right, region.maxY, region.glyphSize);
+            }
+        }
+        if (current != null) {
+            rows.add(current);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,11 @@
+package org.example;
+
+/**
+ * What the overlay masker draws over each masked region
+ */
+public enum MaskStyle {
+    /** White cover rectangles with rows of mask glyphs on top; the historical look */
+    RECTANGLES_AND_GLYPHS,
+    /** White cover rectangles only; the smallest content streams */
+    RECTANGLES_ONLY
+}
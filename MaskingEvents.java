@@ -0,0 +1,139 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for tracing one slow document down to the page, rule or
+ * bounds strategy that cost the time. Events are created, begun and committed in place;
+ * while no recording enables them, isEnabled() is false and shouldCommit() is false,
+ * and the JIT drops the unused event objects. Stack traces are off, so an enabled event
+ * costs two timestamps and a buffer write. Fields carry indexes, names and counts only,
+ * never page text or matched values.
+ */
+final class MaskingEvents {
+
+    static final String CATEGORY = "PDF Masking";
+
+    private MaskingEvents() {
+    }
+
+    static PageExtraction beginPageExtraction() {
+        PageExtraction event = new PageExtraction();
+        event.begin();
+        return event;
+    }
+
+    static void commit(PageExtraction event, int pageIndex, int glyphCount) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.pageIndex = pageIndex;
+            event.glyphCount = glyphCount;
+            event.commit();
+        }
+    }
+
+    static RuleEvaluation beginRuleEvaluation() {
+        RuleEvaluation event = new RuleEvaluation();
+        event.begin();
+        return event;
+    }
+
+    static void commit(RuleEvaluation event, int pageIndex, String rule, int matchCount) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.pageIndex = pageIndex;
+            event.rule = rule;
+            event.matchCount = matchCount;
+            event.commit();
+        }
+    }
+
+    @Name("org.example.DocumentLoad")
+    @Label("Document Load")
+    @Category(CATEGORY)
+    @Description("Buffering and parsing of one input document")
+    @StackTrace(false)
+    static final class DocumentLoad extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Page Count")
+        int pageCount;
+    }
+
+    @Name("org.example.PageExtraction")
+    @Label("Page Extraction")
+    @Category(CATEGORY)
+    @Description("Text and glyph extraction of one page")
+    @StackTrace(false)
+    static final class PageExtraction extends Event {
+        @Label("Page Index")
+        int pageIndex;
+
+        @Label("Glyph Count")
+        @Description("Glyphs captured, or characters extracted for the field-based masker")
+        int glyphCount;
+    }
+
+    @Name("org.example.RuleEvaluation")
+    @Label("Rule Evaluation")
+    @Category(CATEGORY)
+    @Description("One masking rule, or one single-pass scan of several rules, run over one page;"
+            + " includes bounds location for the overlay masker's matches")
+    @StackTrace(false)
+    static final class RuleEvaluation extends Event {
+        @Label("Page Index")
+        @Description("-1 when the text spans several pages")
+        int pageIndex;
+
+        @Label("Rule")
+        String rule;
+
+        @Label("Match Count")
+        int matchCount;
+    }
+
+    @Name("org.example.BoundsStrategy")
+    @Label("Bounds Strategy")
+    @Category(CATEGORY)
+    @Description("One bounds strategy call for one match")
+    @StackTrace(false)
+    static final class BoundsStrategy extends Event {
+        @Label("Page Index")
+        int pageIndex;
+
+        @Label("Field")
+        String field;
+
+        @Label("Strategy")
+        String strategy;
+
+        @Label("Located")
+        boolean located;
+
+        @Label("Glyph Count")
+        @Description("Glyphs covered by the located bounds")
+        int glyphCount;
+    }
+
+    @Name("org.example.DocumentSave")
+    @Label("Document Save")
+    @Category(CATEGORY)
+    @Description("Writing one masked document")
+    @StackTrace(false)
+    static final class DocumentSave extends Event {
+        @Label("Mode")
+        String mode;
+
+        @Label("Page Count")
+        int pageCount;
+
+        @Label("Masked Pages")
+        int maskedPages;
+    }
+}
@@ -0,0 +1,130 @@
+package org.example;
+
+import java.util.function.Supplier;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Leveled logging for the maskers on top of java.util.logging. Messages are built
+ * from suppliers or MessageFormat patterns only when their level is enabled, so a
+ * disabled level costs a level check. Page text and matched values are never passed
+ * here: callers log field names, offsets, counts and geometry.
+ * debug is LogDetail.PAGES (FINE), trace is LogDetail.MATCHES (FINEST).
+ */
+public final class MaskingLog {
+
+    static final String ROOT = "org.example";
+
+    private static final Logger ROOT_LOGGER = Logger.getLogger(ROOT);
+    private static Handler consoleHandler;
+
+    private final Logger logger;
+
+    private MaskingLog(Logger logger) {
+        this.logger = logger;
+    }
+
+    static MaskingLog forClass(Class<?> type) {
+        return new MaskingLog(Logger.getLogger(type.getName()));
+    }
+
+    /**
+     * Set the detail for every masker logger; messages go to stderr through one console
+     * handler. Applications with their own logging configuration can set levels on the
+     * org.example logger instead.
+     */
+    public static synchronized void setDetail(LogDetail detail) {
+        Level level = levelOf(detail);
+        if (consoleHandler == null) {
+            consoleHandler = new ConsoleHandler();
+            ROOT_LOGGER.addHandler(consoleHandler);
+            ROOT_LOGGER.setUseParentHandlers(false);
+        }
+        consoleHandler.setLevel(level);
+        ROOT_LOGGER.setLevel(level);
+    }
+
+    static Level levelOf(LogDetail detail) {
+        switch (detail) {
+            case QUIET:
+                return Level.SEVERE;
+            case SUMMARY:
+                return Level.INFO;
+            case PAGES:
+                return Level.FINE;
+            default:
+                return Level.FINEST;
+        }
+    }
+
+    boolean isDebugEnabled() {
+        return logger.isLoggable(Level.FINE);
+    }
+
+    boolean isTraceEnabled() {
+        return logger.isLoggable(Level.FINEST);
+    }
+
+    void trace(Supplier<String> message) {
+        log(Level.FINEST, message);
+    }
+
+    void trace(String pattern, Object arg) {
+        log(Level.FINEST, pattern, arg);
+    }
+
+    void trace(String pattern, Object arg1, Object arg2) {
+        log(Level.FINEST, pattern, arg1, arg2);
+    }
+
+    void debug(Supplier<String> message) {
+        log(Level.FINE, message);
+    }
+
+    void debug(String pattern, Object arg) {
+        log(Level.FINE, pattern, arg);
+    }
+
+    void debug(String pattern, Object arg1, Object arg2) {
+        log(Level.FINE, pattern, arg1, arg2);
+    }
+
+    void info(Supplier<String> message) {
+        log(Level.INFO, message);
+    }
+
+    void warn(Supplier<String> message) {
+        log(Level.WARNING, message);
+    }
+
+    void error(String message, Throwable thrown) {
+        if (logger.isLoggable(Level.SEVERE)) {
+            StackWalker.StackFrame caller = caller();
+            logger.logp(Level.SEVERE, caller.getClassName(), caller.getMethodName(), message, thrown);
+        }
+    }
+
+    private void log(Level level, Supplier<String> message) {
+        if (logger.isLoggable(level)) {
+            StackWalker.StackFrame caller = caller();
+            logger.logp(level, caller.getClassName(), caller.getMethodName(), message);
+        }
+    }
+
+    private void log(Level level, String pattern, Object... args) {
+        if (logger.isLoggable(level)) {
+            StackWalker.StackFrame caller = caller();
+            logger.logp(level, caller.getClassName(), caller.getMethodName(), pattern, args);
+        }
+    }
+
+    // Records name the masker method that logged, not this wrapper; only looked up for enabled levels
+    private static StackWalker.StackFrame caller() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> !frame.getClassName().equals(MaskingLog.class.getName()))
+                .findFirst()
+                .orElseThrow());
+    }
+}
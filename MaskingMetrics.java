@@ -0,0 +1,260 @@
+package org.example;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cumulative measurements of a masker: stage timers, matches per field, bounds
+ * strategy wins and fallbacks, pages without anything to mask, and rules
+ * abandoned at their matching budget. Counters are striped adders and timers
+ * are lock-free histograms, so recording never blocks page workers and the
+ * metrics can stay on in production. One instance may be shared by several
+ * maskers; read it through the getters, snapshot() or JMX.
+ */
+public final class MaskingMetrics implements MaskingMetricsMXBean {
+
+    public enum Stage { LOAD, EXTRACT, MATCH, BOUNDS, SAVE }
+
+    private final Map<Stage, LatencyHistogram> timers = new EnumMap<>(Stage.class);
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder pages = new LongAdder();
+    private final LongAdder pagesSkipped = new LongAdder();
+    private final Map<String, LongAdder> matchesPerField = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> strategyWins = new ConcurrentHashMap<>();
+    private final LongAdder confidentWins = new LongAdder();
+    private final LongAdder strategyAttempts = new LongAdder();
+    private final LongAdder unresolvedMatches = new LongAdder();
+    private final LongAdder budgetExceeded = new LongAdder();
+
+    public MaskingMetrics() {
+        for (Stage stage : Stage.values()) {
+            timers.put(stage, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Record the time since startNanos, a System.nanoTime() reading, against the stage
+     */
+    void recordSince(Stage stage, long startNanos) {
+        timers.get(stage).record(System.nanoTime() - startNanos);
+    }
+
+    void recordNanos(Stage stage, long nanos) {
+        timers.get(stage).record(nanos);
+    }
+
+    void recordDocument() {
+        documents.increment();
+    }
+
+    void recordPage(boolean masked) {
+        pages.increment();
+        if (!masked) {
+            pagesSkipped.increment();
+        }
+    }
+
+    void recordMatches(String fieldName, int count) {
+        if (count > 0) {
+            matchesPerField.computeIfAbsent(fieldName, k -> new LongAdder()).add(count);
+        }
+    }
+
+    /**
+     * One match resolved by the strategy chain after the given number of strategy calls;
+     * a result below the confidence threshold is a fallback to the best of the chain
+     */
+    void recordBounds(String strategy, boolean confident, int attempts) {
+        strategyWins.computeIfAbsent(strategy, k -> new LongAdder()).increment();
+        if (confident) {
+            confidentWins.increment();
+        }
+        strategyAttempts.add(attempts);
+    }
+
+    void recordUnresolved(int attempts) {
+        unresolvedMatches.increment();
+        strategyAttempts.add(attempts);
+    }
+
+    /**
+     * A rule exceeded its step budget or timeout on a page and matched nothing more there
+     */
+    void recordBudgetExceeded() {
+        budgetExceeded.increment();
+    }
+
+    public long getStageCount(Stage stage) {
+        return timers.get(stage).getCount();
+    }
+
+    public long getStageTotalNanos(Stage stage) {
+        return timers.get(stage).getTotal();
+    }
+
+    /**
+     * Stage duration at the quantile (0..1), within 12.5% of the recorded value
+     */
+    public long getStageNanosAtQuantile(Stage stage, double quantile) {
+        return timers.get(stage).getValueAtQuantile(quantile);
+    }
+
+    @Override
+    public long getDocuments() {
+        return documents.sum();
+    }
+
+    @Override
+    public long getPages() {
+        return pages.sum();
+    }
+
+    @Override
+    public long getPagesSkipped() {
+        return pagesSkipped.sum();
+    }
+
+    @Override
+    public Map<String, Long> getMatchesPerField() {
+        return sums(matchesPerField);
+    }
+
+    @Override
+    public Map<String, Long> getStrategyWins() {
+        return sums(strategyWins);
+    }
+
+    public long getResolvedMatches() {
+        long resolved = 0;
+        for (LongAdder wins : strategyWins.values()) {
+            resolved += wins.sum();
+        }
+        return resolved;
+    }
+
+    public long getConfidentWins() {
+        return confidentWins.sum();
+    }
+
+    @Override
+    public long getStrategyFallbacks() {
+        return getResolvedMatches() - confidentWins.sum();
+    }
+
+    public long getStrategyAttempts() {
+        return strategyAttempts.sum();
+    }
+
+    @Override
+    public long getUnresolvedMatches() {
+        return unresolvedMatches.sum();
+    }
+
+    @Override
+    public long getBudgetExceeded() {
+        return budgetExceeded.sum();
+    }
+
+    @Override
+    public Map<String, Long> getStageCounts() {
+        return perStage(LatencyHistogram::getCount);
+    }
+
+    @Override
+    public Map<String, Long> getStageTotalNanos() {
+        return perStage(LatencyHistogram::getTotal);
+    }
+
+    @Override
+    public Map<String, Long> getStageP50Nanos() {
+        return perStage(timer -> timer.getValueAtQuantile(0.5));
+    }
+
+    @Override
+    public Map<String, Long> getStageP99Nanos() {
+        return perStage(timer -> timer.getValueAtQuantile(0.99));
+    }
+
+    @Override
+    public Map<String, Long> getStageMaxNanos() {
+        return perStage(LatencyHistogram::getMax);
+    }
+
+    @Override
+    public String getSnapshot() {
+        return snapshot();
+    }
+
+    /**
+     * Register under org.example:type=MaskingMetrics,name=&lt;name&gt; on the platform MBean server
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = objectName(name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, objectName);
+        } catch (InstanceAlreadyExistsException e) {
+            server.unregisterMBean(objectName);
+            server.registerMBean(this, objectName);
+        }
+        return objectName;
+    }
+
+    public void unregister(String name) throws JMException {
+        ObjectName objectName = objectName(name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName(MaskingLog.ROOT + ":type=MaskingMetrics,name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * Plain-text snapshot: one line per counter group and per stage, times in microseconds
+     */
+    public String snapshot() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("documents=%d pages=%d pagesSkipped=%d budgetExceeded=%d%n",
+                getDocuments(), getPages(), getPagesSkipped(), getBudgetExceeded()));
+        text.append("matches ").append(getMatchesPerField()).append(System.lineSeparator());
+        text.append(String.format("strategyWins %s fallbacks=%d unresolved=%d attempts=%d%n",
+                getStrategyWins(), getStrategyFallbacks(), getUnresolvedMatches(), getStrategyAttempts()));
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram timer = timers.get(stage);
+            text.append(String.format("%-7s count=%d total=%.0fus mean=%.1fus p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus%n",
+                    stage, timer.getCount(), timer.getTotal() / 1e3, timer.getMean() / 1e3,
+                    timer.getValueAtQuantile(0.5) / 1e3, timer.getValueAtQuantile(0.99) / 1e3,
+                    timer.getValueAtQuantile(0.999) / 1e3, timer.getMax() / 1e3));
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return snapshot();
+    }
+
+    private Map<String, Long> perStage(ToLongFunction<LatencyHistogram> value) {
+        Map<String, Long> values = new TreeMap<>();
+        timers.forEach((stage, timer) -> values.put(stage.name(), value.applyAsLong(timer)));
+        return values;
+    }
+
+    private static Map<String, Long> sums(Map<String, LongAdder> adders) {
+        Map<String, Long> values = new TreeMap<>();
+        adders.forEach((key, adder) -> values.put(key, adder.sum()));
+        return values;
+    }
+}
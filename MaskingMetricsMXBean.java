@@ -0,0 +1,40 @@
+package org.example;
+
+import java.util.Map;
+
+/**
+ * JMX view of a MaskingMetrics instance; durations are in nanoseconds
+ */
+public interface MaskingMetricsMXBean {
+
+    long getDocuments();
+
+    long getPages();
+
+    long getPagesSkipped();
+
+    Map<String, Long> getMatchesPerField();
+
+    Map<String, Long> getStrategyWins();
+
+    long getStrategyFallbacks();
+
+    long getUnresolvedMatches();
+
+    /**
+     * Rule evaluations abandoned at their matching budget; their pages may be partly unmasked
+     */
+    long getBudgetExceeded();
+
+    Map<String, Long> getStageCounts();
+
+    Map<String, Long> getStageTotalNanos();
+
+    Map<String, Long> getStageP50Nanos();
+
+    Map<String, Long> getStageP99Nanos();
+
+    Map<String, Long> getStageMaxNanos();
+
+    String getSnapshot();
+}
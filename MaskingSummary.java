@@ -0,0 +1,92 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-document totals behind the LogDetail.SUMMARY line; page workers record into it
+ * concurrently. Holds counts per field name, never matched values.
+ */
+final class MaskingSummary {
+
+    private final String operation;
+    private final long startNanos = System.nanoTime();
+    private final LongAdder maskedPages = new LongAdder();
+    private final Map<String, LongAdder> matchesPerField = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> budgetExceededPerField = new ConcurrentHashMap<>();
+    private int pages;
+
+    MaskingSummary(String operation) {
+        this.operation = operation;
+    }
+
+    void setPages(int pages) {
+        this.pages = pages;
+    }
+
+    void recordMaskedPage() {
+        maskedPages.increment();
+    }
+
+    void recordMatches(String fieldName, int count) {
+        if (count > 0) {
+            matchesPerField.computeIfAbsent(fieldName, k -> new LongAdder()).add(count);
+        }
+    }
+
+    /**
+     * A rule of the field was abandoned at its matching budget on one page, which may keep values of it unmasked
+     */
+    void recordBudgetExceeded(String fieldName) {
+        budgetExceededPerField.computeIfAbsent(fieldName, k -> new LongAdder()).increment();
+    }
+
+    long getBudgetExceeded() {
+        long total = 0;
+        for (LongAdder count : budgetExceededPerField.values()) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    Map<String, Long> getBudgetExceededPerField() {
+        Map<String, Long> fields = new TreeMap<>();
+        budgetExceededPerField.forEach((field, count) -> fields.put(field, count.sum()));
+        return fields;
+    }
+
+    /**
+     * Refuse to go on to writing the document when an abandoned rule may have left values unmasked
+     */
+    void requireWithinBudget() throws IOException {
+        if (getBudgetExceeded() > 0) {
+            throw new IOException(operation + ": rules abandoned at their matching budget may have left values"
+                    + " unmasked, so the document was not written: " + getBudgetExceededPerField());
+        }
+    }
+
+    long getMaskedPages() {
+        return maskedPages.sum();
+    }
+
+    long getMatches() {
+        long total = 0;
+        for (LongAdder count : matchesPerField.values()) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        Map<String, Long> fields = new TreeMap<>();
+        matchesPerField.forEach((field, count) -> fields.put(field, count.sum()));
+        String line = String.format("%s: %d pages, %d masked, %d matches %s in %d ms", operation, pages,
+                maskedPages.sum(), getMatches(), fields, (System.nanoTime() - startNanos) / 1_000_000);
+        // Pages per field on which a rule was abandoned; only shown when it happened
+        return getBudgetExceeded() == 0 ? line : line + ", over matching budget " + getBudgetExceededPerField();
+    }
+}
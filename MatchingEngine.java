@@ -0,0 +1,107 @@
+package org.example;
+
+import java.util.regex.Pattern;
+
+/**
+ * Compiles masking rules for the selected MatchingMode.
+ * In LINEAR mode each rule runs on the linear-time engine when its syntax allows;
+ * otherwise it falls back to java.util.regex guarded by a per-match step budget and
+ * timeout, and every fallback is reported to the FallbackListener.
+ * Immutable and safe to share across threads.
+ */
+final class MatchingEngine {
+
+    static final long DEFAULT_STEP_BUDGET = 5_000_000L;
+    static final long DEFAULT_TIMEOUT_MILLIS = 500L;
+
+    static final MatchingEngine BACKTRACKING = new MatchingEngine(MatchingMode.BACKTRACKING,
+            DEFAULT_STEP_BUDGET, DEFAULT_TIMEOUT_MILLIS, FallbackListener.LOGGING);
+    static final MatchingEngine LINEAR = new MatchingEngine(MatchingMode.LINEAR,
+            DEFAULT_STEP_BUDGET, DEFAULT_TIMEOUT_MILLIS, FallbackListener.LOGGING);
+
+    private final MatchingMode mode;
+    private final long stepBudget;
+    private final long timeoutNanos;
+    private final FallbackListener listener;
+
+    MatchingEngine(MatchingMode mode, long stepBudget, long timeoutMillis, FallbackListener listener) {
+        this.mode = mode;
+        this.stepBudget = stepBudget;
+        this.timeoutNanos = timeoutMillis * 1_000_000L;
+        this.listener = listener;
+    }
+
+    static MatchingEngine forMode(MatchingMode mode) {
+        return mode == MatchingMode.LINEAR ? LINEAR : BACKTRACKING;
+    }
+
+    MatchingMode getMode() { return mode; }
+
+    /**
+     * Compile one rule; the Pattern supplies both the regex and its flags
+     */
+    RuleMatcher compile(String ruleName, Pattern pattern) {
+        if (mode == MatchingMode.BACKTRACKING) {
+            return new RuleMatcher.JavaRuleMatcher(ruleName, pattern);
+        }
+        try {
+            return new RuleMatcher.LinearRuleMatcher(ruleName, LinearRegex.compile(pattern.pattern(), pattern.flags()));
+        } catch (LinearRegex.UnsupportedPatternException e) {
+            listener.onFallback(ruleName, e.getMessage());
+            return compileBacktracking(ruleName, pattern);
+        }
+    }
+
+    /**
+     * Whether a rule can run on the linear engine in this mode; reports the fallback when it cannot
+     */
+    boolean acceptsLinear(String ruleName, Pattern pattern) {
+        if (mode == MatchingMode.BACKTRACKING) {
+            return false;
+        }
+        try {
+            LinearRegex.compile(pattern.pattern(), pattern.flags());
+            return true;
+        } catch (LinearRegex.UnsupportedPatternException e) {
+            listener.onFallback(ruleName, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Compile a rule for java.util.regex: unguarded in BACKTRACKING mode, budgeted in LINEAR mode
+     */
+    RuleMatcher compileBacktracking(String ruleName, Pattern pattern) {
+        if (mode == MatchingMode.BACKTRACKING) {
+            return new RuleMatcher.JavaRuleMatcher(ruleName, pattern);
+        }
+        return new RuleMatcher.GuardedRuleMatcher(ruleName, pattern, stepBudget, timeoutNanos, listener);
+    }
+
+    /**
+     * Receives reports about rules that could not use the linear engine
+     */
+    interface FallbackListener {
+
+        FallbackListener LOGGING = new FallbackListener() {
+            private final MaskingLog log = MaskingLog.forClass(MatchingEngine.class);
+
+            @Override
+            public void onFallback(String ruleName, String reason) {
+                log.debug("Rule {0} falls back to java.util.regex with a step budget: {1}", ruleName, reason);
+            }
+
+            @Override
+            public void onBudgetExceeded(String ruleName, int offset, long steps, long elapsedNanos) {
+                log.warn(() -> "Rule '" + ruleName + "' abandoned at offset " + offset + " after " + steps
+                        + " steps (" + (elapsedNanos / 1_000_000) + " ms); skipping it for the rest of the page");
+            }
+        };
+
+        /** A rule uses syntax the linear engine does not support */
+        void onFallback(String ruleName, String reason);
+
+        /** A guarded fallback rule hit its step budget or timeout while matching */
+        void onBudgetExceeded(String ruleName, int offset, long steps, long elapsedNanos);
+    }
+}
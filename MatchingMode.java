@@ -0,0 +1,11 @@
+package org.example;
+
+/**
+ * Regex engine used to evaluate masking rules
+ */
+public enum MatchingMode {
+    /** java.util.regex, unguarded; the historical behaviour */
+    BACKTRACKING,
+    /** Linear-time Pike VM; rules outside its subset fall back to java.util.regex with a step budget and timeout */
+    LINEAR
+}
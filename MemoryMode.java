@@ -0,0 +1,13 @@
+package org.example;
+
+/**
+ * Where a document's bytes live while it is masked
+ */
+public enum MemoryMode {
+    /** Input read through a file buffer, decoded streams and output kept on the heap; the historical behaviour */
+    HEAP_ONLY,
+    /** Decoded streams and output kept on the heap up to the budget, then spilled to temp files */
+    TEMP_FILE,
+    /** Input memory-mapped read-only (off heap, paged by the OS); streams spill to temp files past the budget */
+    MEMORY_MAPPED
+}
@@ -0,0 +1,350 @@
+package org.example;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Single-pass scanner that masks several fields at once.
+ * All rule patterns are combined into one alternation, so the text is scanned
+ * left to right a single time and the masked output is written once.
+ * Overlaps resolve deterministically: the leftmost match wins, and on a tie
+ * the field requested first wins. When every rule starts with a literal label,
+ * a LabelAutomaton prefilter restricts matching to label offsets.
+ * In LINEAR mode the rules the linear engine supports share one linear-time
+ * source and the rest share one guarded java.util.regex source; candidates from
+ * both are merged with the same leftmost-first, rule-order tie-break.
+ */
+final class MultiFieldScanner {
+
+    private final String[] fieldNames;      // one per requested field
+    private final String[] maskValues;      // one per requested field
+    private final int[] alternativeField;   // alternative index -> field index
+    private final Source[] sources;
+    private final LabelAutomaton labelPrefilter; // null when some rule has no literal label
+
+    private MultiFieldScanner(List<String> fieldNames, List<String> maskValues, List<List<Pattern>> fieldPatterns,
+                              MatchingEngine engine) {
+        this.fieldNames = fieldNames.toArray(new String[0]);
+        this.maskValues = maskValues.toArray(new String[0]);
+
+        List<Integer> altField = new ArrayList<>();
+        List<Pattern> altPatterns = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        boolean allLabelled = true;
+
+        for (int field = 0; field < fieldPatterns.size(); field++) {
+            for (Pattern pattern : fieldPatterns.get(field)) {
+                altField.add(field);
+                altPatterns.add(pattern);
+
+                List<String> literals = LabelAutomaton.leadingLiterals(pattern.pattern());
+                if (literals == null) {
+                    allLabelled = false;
+                } else {
+                    labels.addAll(literals);
+                }
+            }
+        }
+
+        // Split alternatives between the linear engine and the (guarded) backtracking engine
+        List<Integer> linear = new ArrayList<>();
+        List<Integer> backtracking = new ArrayList<>();
+        for (int alt = 0; alt < altPatterns.size(); alt++) {
+            String ruleName = this.fieldNames[altField.get(alt)];
+            if (engine.acceptsLinear(ruleName, altPatterns.get(alt))) {
+                linear.add(alt);
+            } else {
+                backtracking.add(alt);
+            }
+        }
+
+        List<Source> built = new ArrayList<>();
+        if (!linear.isEmpty()) {
+            built.add(new Source(linear, altPatterns, altField, engine, true));
+        }
+        if (!backtracking.isEmpty()) {
+            built.add(new Source(backtracking, altPatterns, altField, engine, false));
+        }
+
+        this.sources = built.toArray(new Source[0]);
+        this.alternativeField = altField.stream().mapToInt(Integer::intValue).toArray();
+        this.labelPrefilter = allLabelled && !labels.isEmpty()
+                ? new LabelAutomaton(labels, Collections.nCopies(labels.size(), 0))
+                : null;
+    }
+
+    /**
+     * Build a scanner for the requested fields; unknown fields use the memoized dynamic patterns
+     */
+    static MultiFieldScanner forFields(CompiledRuleSet ruleSet, List<String> fieldsToMask, String defaultMaskValue) {
+        List<String> names = new ArrayList<>();
+        List<String> masks = new ArrayList<>();
+        List<List<Pattern>> patterns = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+
+        for (String fieldName : fieldsToMask) {
+            String fieldKey = fieldName.toLowerCase().trim();
+            if (!seen.add(fieldKey)) {
+                continue;
+            }
+
+            FieldBasedPDFMasker.FieldMaskingRule rule = ruleSet.getRule(fieldKey);
+            if (rule != null) {
+                names.add(rule.getFieldType());
+                masks.add(rule.getMaskValue());
+                patterns.add(Collections.singletonList(rule.getPattern()));
+            } else {
+                names.add(fieldName.trim());
+                masks.add(defaultMaskValue);
+                patterns.add(ruleSet.getDynamicPatterns(fieldName));
+            }
+        }
+
+        return new MultiFieldScanner(names, masks, patterns, ruleSet.getEngine());
+    }
+
+    /**
+     * Build a scanner over every predefined rule, in rule order
+     */
+    static MultiFieldScanner forRules(List<FieldBasedPDFMasker.FieldMaskingRule> rules, MatchingEngine engine) {
+        List<String> names = new ArrayList<>();
+        List<String> masks = new ArrayList<>();
+        List<List<Pattern>> patterns = new ArrayList<>();
+
+        for (FieldBasedPDFMasker.FieldMaskingRule rule : rules) {
+            names.add(rule.getFieldType());
+            masks.add(rule.getMaskValue());
+            patterns.add(Collections.singletonList(rule.getPattern()));
+        }
+
+        return new MultiFieldScanner(names, masks, patterns, engine);
+    }
+
+    /**
+     * Mask all requested fields in one left-to-right pass
+     */
+    ScanResult scan(String text) {
+        int[] counts = new int[fieldNames.length];
+        if (fieldNames.length == 0) {
+            return new ScanResult(text, counts);
+        }
+
+        int[] anchors = null;
+        if (labelPrefilter != null) {
+            LabelAutomaton.Hits hits = labelPrefilter.scan(text);
+            if (hits.isEmpty()) {
+                // No label on the page, nothing can match
+                return new ScanResult(text, counts);
+            }
+            anchors = hits.allStarts();
+        }
+
+        RuleMatcher.Session[] sessions = new RuleMatcher.Session[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            sessions[i] = sources[i].matcher.session(text);
+        }
+
+        StringBuilder result = null;
+        int copiedUpTo = 0;
+        int[] starts = new int[8];
+        int matches = 0;
+        Candidates candidates = new Candidates(sources.length);
+
+        while (anchors != null ? candidates.nextAnchored(sessions, anchors) : candidates.nextUnanchored(sessions)) {
+            int source = candidates.winner;
+            RuleMatcher.Session session = sessions[source];
+            int alternative = candidates.alternative[source];
+            int group = sources[source].wrappingGroup(session);
+            int field = alternativeField[alternative];
+
+            if (result == null) {
+                result = new StringBuilder(text.length());
+            }
+
+            // Preserve the original format structure: label, separator, mask
+            result.append(text, copiedUpTo, session.start(0))
+                    .append(session.group(group + 1))
+                    .append(FieldBasedPDFMasker.extractSeparator(session.group(group)))
+                    .append(maskValues[field]);
+            copiedUpTo = session.end(0);
+            counts[field]++;
+            if (matches == starts.length) {
+                starts = Arrays.copyOf(starts, matches * 2);
+            }
+            starts[matches++] = session.start(0);
+            candidates.advance(session.start(0), session.end(0));
+        }
+
+        // A source over its budget stopped matching early, so the text may hold more values of its fields
+        List<String> abandoned = Collections.emptyList();
+        for (int i = 0; i < sources.length; i++) {
+            if (sessions[i].isAbandoned()) {
+                for (int alternative : sources[i].alternatives) {
+                    String field = fieldNames[alternativeField[alternative]];
+                    if (abandoned.isEmpty()) {
+                        abandoned = new ArrayList<>();
+                    }
+                    if (!abandoned.contains(field)) {
+                        abandoned.add(field);
+                    }
+                }
+            }
+        }
+
+        if (result == null) {
+            return new ScanResult(text, counts, ScanResult.NO_MATCHES, abandoned);
+        }
+        result.append(text, copiedUpTo, text.length());
+        return new ScanResult(result.toString(), counts, Arrays.copyOf(starts, matches), abandoned);
+    }
+
+    int getFieldCount() { return fieldNames.length; }
+    String getFieldName(int field) { return fieldNames[field]; }
+
+    /**
+     * One compiled alternation over a subset of the alternatives
+     */
+    private static final class Source {
+        final RuleMatcher matcher;
+        final int[] alternatives; // local alternative -> global alternative
+        final int[] groups;       // local alternative -> wrapping group number
+
+        Source(List<Integer> members, List<Pattern> altPatterns, List<Integer> altField,
+               MatchingEngine engine, boolean linear) {
+            alternatives = new int[members.size()];
+            groups = new int[members.size()];
+            StringBuilder regex = new StringBuilder();
+            Set<Integer> fields = new TreeSet<>();
+            int nextGroup = 1;
+
+            for (int local = 0; local < members.size(); local++) {
+                Pattern pattern = altPatterns.get(members.get(local));
+                if (regex.length() > 0) {
+                    regex.append('|');
+                }
+                // Wrap every alternative in its own group so the matching rule can be identified
+                regex.append('(').append(pattern.pattern()).append(')');
+                alternatives[local] = members.get(local);
+                groups[local] = nextGroup;
+                nextGroup += 1 + pattern.matcher("").groupCount();
+                fields.add(altField.get(members.get(local)));
+            }
+
+            Pattern combined = Pattern.compile(regex.toString(), CompiledRuleSet.PATTERN_FLAGS);
+            String name = "fields " + fields;
+            matcher = linear ? engine.compile(name, combined) : engine.compileBacktracking(name, combined);
+        }
+
+        int matchedLocal(RuleMatcher.Session session) {
+            for (int i = 0; i < groups.length; i++) {
+                if (session.start(groups[i]) >= 0) {
+                    return i;
+                }
+            }
+            throw new IllegalStateException("Combined match did not belong to any field pattern");
+        }
+
+        int wrappingGroup(RuleMatcher.Session session) {
+            return groups[matchedLocal(session)];
+        }
+    }
+
+    /**
+     * Merges the next match of every source: leftmost start first, then lowest alternative index
+     */
+    private final class Candidates {
+        final int[] start;       // candidate start per source; -1 = none pending
+        final int[] alternative; // candidate global alternative per source
+        final boolean[] exhausted;
+        int cursor;
+        int nextAnchor;
+        int winner;
+
+        Candidates(int sourceCount) {
+            start = new int[sourceCount];
+            alternative = new int[sourceCount];
+            exhausted = new boolean[sourceCount];
+            Arrays.fill(start, -1);
+        }
+
+        boolean nextAnchored(RuleMatcher.Session[] sessions, int[] anchors) {
+            while (nextAnchor < anchors.length) {
+                int anchor = anchors[nextAnchor++];
+                if (anchor < cursor) {
+                    continue;
+                }
+                winner = -1;
+                for (int s = 0; s < sessions.length; s++) {
+                    if (sessions[s].lookingAt(anchor)) {
+                        alternative[s] = sources[s].alternatives[sources[s].matchedLocal(sessions[s])];
+                        if (winner < 0 || alternative[s] < alternative[winner]) {
+                            winner = s;
+                        }
+                    }
+                }
+                if (winner >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean nextUnanchored(RuleMatcher.Session[] sessions) {
+            winner = -1;
+            for (int s = 0; s < sessions.length; s++) {
+                if (exhausted[s]) {
+                    continue;
+                }
+                if (start[s] < cursor) {
+                    // Stale or missing candidate: search again from the cursor
+                    if (cursor > sessions[s].textLength() || !sessions[s].find(cursor)) {
+                        exhausted[s] = true;
+                        continue;
+                    }
+                    start[s] = sessions[s].start(0);
+                    alternative[s] = sources[s].alternatives[sources[s].matchedLocal(sessions[s])];
+                }
+                if (winner < 0 || start[s] < start[winner]
+                        || (start[s] == start[winner] && alternative[s] < alternative[winner])) {
+                    winner = s;
+                }
+            }
+            return winner >= 0;
+        }
+
+        void advance(int matchStart, int matchEnd) {
+            // Step past empty matches the way Matcher.find() does
+            cursor = matchEnd == matchStart ? matchEnd + 1 : matchEnd;
+            start[winner] = -1;
+        }
+    }
+
+    /**
+     * Masked text plus per-field match counts, where each match starts in the scanned text,
+     * and the fields whose rules were abandoned at their matching budget
+     */
+    static final class ScanResult {
+        private static final int[] NO_MATCHES = new int[0];
+
+        private final String maskedText;
+        private final int[] counts;
+        private final int[] matchStarts;
+        private final List<String> abandonedFields;
+
+        ScanResult(String maskedText, int[] counts) {
+            this(maskedText, counts, NO_MATCHES, Collections.emptyList());
+        }
+
+        ScanResult(String maskedText, int[] counts, int[] matchStarts, List<String> abandonedFields) {
+            this.maskedText = maskedText;
+            this.counts = counts;
+            this.matchStarts = matchStarts;
+            this.abandonedFields = abandonedFields;
+        }
+
+        String getMaskedText() { return maskedText; }
+        int getCount(int field) { return counts[field]; }
+        int[] getMatchStarts() { return matchStarts; }
+        List<String> getAbandonedFields() { return abandonedFields; }
+    }
+}
@@ -0,0 +1,142 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Whitespace-free view of a page's glyphs, built once per page, with a mapping
+ * from every normalized character back to the glyph it came from.
+ * Sequence lookups run KMP over the normalized characters, so each query is
+ * O(glyphs + target length) instead of re-normalizing candidate windows.
+ */
+final class NormalizedGlyphStream {
+
+    private char[] chars;
+    private int[] glyphOfChar;
+    private int length;
+    private final boolean foldCase;
+
+    /**
+     * @param glyphCount number of glyphs on the page
+     * @param unicodeOf  text of the glyph with the given ordinal
+     * @param foldCase   lower-case glyphs and targets before comparing
+     */
+    NormalizedGlyphStream(int glyphCount, IntFunction<String> unicodeOf, boolean foldCase) {
+        this.foldCase = foldCase;
+        allocate(glyphCount);
+        for (int glyph = 0; glyph < glyphCount; glyph++) {
+            append(normalize(unicodeOf.apply(glyph), foldCase), glyph);
+        }
+    }
+
+    /**
+     * Stream over a GlyphStore without materializing glyph strings for ASCII glyphs.
+     *
+     * @param glyphs ordinals to include, in order, or null for every glyph in the store;
+     *               find reports positions within this selection
+     * @param count  number of entries of glyphs to use
+     */
+    NormalizedGlyphStream(GlyphStore store, int[] glyphs, int count, boolean foldCase) {
+        this.foldCase = foldCase;
+        allocate(count);
+        for (int i = 0; i < count; i++) {
+            int glyph = glyphs == null ? i : glyphs[i];
+            int cp = store.codepoint(glyph);
+            if (cp >= 0 && cp < 128) {
+                if (!isRegexWhitespace((char) cp)) {
+                    append(foldCase && cp >= 'A' && cp <= 'Z' ? (char) (cp + ('a' - 'A')) : (char) cp, i);
+                }
+            } else {
+                append(normalize(store.unicode(glyph), foldCase), i);
+            }
+        }
+    }
+
+    private void allocate(int glyphCount) {
+        chars = new char[Math.max(16, glyphCount)];
+        glyphOfChar = new int[chars.length];
+    }
+
+    private void append(String normalized, int glyph) {
+        for (int i = 0; i < normalized.length(); i++) {
+            append(normalized.charAt(i), glyph);
+        }
+    }
+
+    private void append(char c, int glyph) {
+        if (length == chars.length) {
+            chars = Arrays.copyOf(chars, length * 2);
+            glyphOfChar = Arrays.copyOf(glyphOfChar, length * 2);
+        }
+        chars[length] = c;
+        glyphOfChar[length] = glyph;
+        length++;
+    }
+
+    /**
+     * Glyph range [first, last] covering the first occurrence of the target, or null if absent
+     */
+    int[] find(String target) {
+        char[] pattern = normalize(target, foldCase).toCharArray();
+        if (pattern.length == 0 || pattern.length > length) {
+            return null;
+        }
+
+        int[] failure = failureFunction(pattern);
+        int matched = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            while (matched > 0 && pattern[matched] != c) {
+                matched = failure[matched - 1];
+            }
+            if (pattern[matched] == c) {
+                matched++;
+            }
+            if (matched == pattern.length) {
+                return new int[]{glyphOfChar[i - pattern.length + 1], glyphOfChar[i]};
+            }
+        }
+        return null;
+    }
+
+    int length() {
+        return length;
+    }
+
+    /**
+     * Strip whitespace (as matched by \s) and optionally lower-case, without regex
+     */
+    static String normalize(String text, boolean foldCase) {
+        StringBuilder normalized = null;
+        for (int i = 0; i < text.length(); i++) {
+            if (isRegexWhitespace(text.charAt(i))) {
+                if (normalized == null) {
+                    normalized = new StringBuilder(text.length()).append(text, 0, i);
+                }
+            } else if (normalized != null) {
+                normalized.append(text.charAt(i));
+            }
+        }
+        String stripped = normalized == null ? text : normalized.toString();
+        return foldCase ? stripped.toLowerCase() : stripped;
+    }
+
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static int[] failureFunction(char[] pattern) {
+        int[] failure = new int[pattern.length];
+        int k = 0;
+        for (int i = 1; i < pattern.length; i++) {
+            while (k > 0 && pattern[k] != pattern[i]) {
+                k = failure[k - 1];
+            }
+            if (pattern[k] == pattern[i]) {
+                k++;
+            }
+            failure[i] = k;
+        }
+        return failure;
+    }
+}
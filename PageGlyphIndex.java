@@ -0,0 +1,158 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Maps every offset of a page's extracted text to the glyph that produced it.
+ * Built once per page while PDFTextStripper writes its output, so offsets line up
+ * with the returned text including the line, word and paragraph separators the
+ * stripper inserts (those map to NO_GLYPH). Range lookups cost O(range length).
+ * Glyphs are identified by their capture ordinal; the index is reused across pages.
+ */
+final class PageGlyphIndex {
+
+    static final int NO_GLYPH = -1;
+
+    private int[] glyphAt = new int[1024]; // text offset -> glyph ordinal
+    private int length;
+
+    void reset() {
+        length = 0;
+    }
+
+    int length() {
+        return length;
+    }
+
+    int glyphAt(int offset) {
+        return offset >= 0 && offset < length ? glyphAt[offset] : NO_GLYPH;
+    }
+
+    /**
+     * Mark text written without glyphs (separators) up to the given offset
+     */
+    void alignTo(int textOffset) {
+        ensureCapacity(textOffset);
+        if (textOffset > length) {
+            Arrays.fill(glyphAt, length, textOffset, NO_GLYPH);
+            length = textOffset;
+        }
+    }
+
+    /**
+     * Record a run of text written for a sequence of glyphs.
+     *
+     * @param textLength    characters the stripper wrote for the run
+     * @param firstGlyph    ordinal of the run's first glyph
+     * @param unicodeLengths characters each glyph contributes, in order
+     */
+    void appendRun(int textLength, int firstGlyph, int[] unicodeLengths, int glyphCount) {
+        ensureCapacity(length + textLength);
+
+        int total = 0;
+        for (int i = 0; i < glyphCount; i++) {
+            total += unicodeLengths[i];
+        }
+
+        if (total == textLength) {
+            for (int i = 0; i < glyphCount; i++) {
+                Arrays.fill(glyphAt, length, length + unicodeLengths[i], firstGlyph + i);
+                length += unicodeLengths[i];
+            }
+        } else if (glyphCount > 0) {
+            // Normalization (ligatures, diacritics, RTL reordering) changed the length;
+            // spread the glyphs evenly over the written characters
+            for (int i = 0; i < textLength; i++) {
+                glyphAt[length + i] = firstGlyph + (int) ((long) i * glyphCount / textLength);
+            }
+            length += textLength;
+        } else {
+            alignTo(length + textLength);
+        }
+    }
+
+    /**
+     * Distinct glyph ordinals covering [start, end), in text order
+     */
+    int[] glyphsInRange(int start, int end) {
+        start = Math.max(0, start);
+        end = Math.min(end, length);
+        if (start >= end) {
+            return new int[0];
+        }
+
+        int[] glyphs = new int[end - start];
+        int count = 0;
+        int previous = NO_GLYPH;
+        for (int i = start; i < end; i++) {
+            int glyph = glyphAt[i];
+            if (glyph != NO_GLYPH && glyph != previous) {
+                glyphs[count++] = glyph;
+                previous = glyph;
+            }
+        }
+        return Arrays.copyOf(glyphs, count);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > glyphAt.length) {
+            glyphAt = Arrays.copyOf(glyphAt, Math.max(capacity, glyphAt.length * 2));
+        }
+    }
+
+    /**
+     * Writer installed in PDFTextStripper that forwards everything to the caller's
+     * writer and keeps a copy of the current page's text; the page buffer is
+     * recycled at every page start, and its length is the current page offset
+     */
+    static final class PageTextCapture extends Writer {
+        private final StringBuilder page = new StringBuilder(8192);
+        private Writer out = Writer.nullWriter();
+
+        void setOut(Writer out) {
+            this.out = out;
+        }
+
+        void startPage() {
+            page.setLength(0);
+        }
+
+        int getCount() {
+            return page.length();
+        }
+
+        String pageText() {
+            return page.toString();
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.write(c);
+            page.append((char) c);
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int len) throws IOException {
+            out.write(buffer, offset, len);
+            page.append(buffer, offset, len);
+        }
+
+        @Override
+        public void write(String str, int offset, int len) throws IOException {
+            out.write(str, offset, len);
+            page.append(str, offset, offset + len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
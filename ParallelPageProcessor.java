@@ -0,0 +1,179 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Extracts and masks pages on a worker pool and hands the results to a single
+ * writer in page order.
+ * Every worker opens its own read-only handle on the input, because a PDDocument
+ * must not be stripped from several threads. Workers claim pages in ascending
+ * order, but only while fewer than window pages are claimed and not yet written,
+ * so at most window masked pages are buffered however slow one page is; that
+ * bound also lets the reorder buffer be a ring of window slots.
+ */
+final class ParallelPageProcessor {
+
+    /**
+     * Turns the extracted text of one page into the text to write; runs on worker threads
+     */
+    interface PageMasker {
+        String mask(int pageIndex, String pageText) throws IOException;
+    }
+
+    /**
+     * Receives masked pages in page order on the calling thread
+     */
+    interface PageWriter {
+        void write(int pageIndex, String maskedText) throws IOException;
+    }
+
+    private final PdfSource input;
+    private final DocumentLoader loader;
+    private final MaskingMetrics metrics;
+    private final int pageCount;
+    private final int workers;
+    private final int window;
+
+    private final String[] slots;
+    private final Semaphore inFlight;
+    private final AtomicInteger nextPage = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pageReady = lock.newCondition();
+    private Throwable failure;
+
+    /**
+     * @param window maximum pages claimed by workers but not yet written
+     */
+    ParallelPageProcessor(PdfSource input, DocumentLoader loader, MaskingMetrics metrics, int pageCount, int workers, int window) {
+        if (workers < 1 || window < 1) {
+            throw new IllegalArgumentException("Workers and window must be at least 1: " + workers + ", " + window);
+        }
+        this.input = input;
+        this.loader = loader;
+        this.metrics = metrics;
+        this.pageCount = pageCount;
+        this.workers = Math.min(workers, Math.max(1, pageCount));
+        this.window = window;
+        this.slots = new String[window];
+        this.inFlight = new Semaphore(window);
+    }
+
+    void run(PageMasker masker, PageWriter writer) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "page-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int i = 0; i < workers; i++) {
+                pool.execute(() -> work(masker));
+            }
+            for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
+                String maskedText = awaitPage(pageIndex);
+                writer.write(pageIndex, maskedText);
+                inFlight.release();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void work(PageMasker masker) {
+        try (PDDocument document = loader.load(input)) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            while (true) {
+                inFlight.acquire();
+                int pageIndex = nextPage.getAndIncrement();
+                if (pageIndex >= pageCount || failed()) {
+                    inFlight.release();
+                    return;
+                }
+                stripper.setStartPage(pageIndex + 1);
+                stripper.setEndPage(pageIndex + 1);
+                long extractStart = System.nanoTime();
+                MaskingEvents.PageExtraction extractEvent = MaskingEvents.beginPageExtraction();
+                String pageText = stripper.getText(document);
+                metrics.recordSince(MaskingMetrics.Stage.EXTRACT, extractStart);
+                MaskingEvents.commit(extractEvent, pageIndex, pageText.length());
+                String maskedText = masker.mask(pageIndex, pageText);
+                publish(pageIndex, maskedText);
+            }
+        } catch (InterruptedException e) {
+            // Pool shut down by the writer
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            fail(t);
+        }
+    }
+
+    private void publish(int pageIndex, String maskedText) {
+        lock.lock();
+        try {
+            slots[pageIndex % window] = maskedText;
+            pageReady.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void fail(Throwable t) {
+        lock.lock();
+        try {
+            if (failure == null) {
+                failure = t;
+            }
+            pageReady.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean failed() {
+        lock.lock();
+        try {
+            return failure != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String awaitPage(int pageIndex) throws IOException {
+        int slot = pageIndex % window;
+        lock.lock();
+        try {
+            while (slots[slot] == null) {
+                if (failure != null) {
+                    throw asIOException(failure);
+                }
+                pageReady.await();
+            }
+            String maskedText = slots[slot];
+            slots[slot] = null;
+            return maskedText;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for page " + (pageIndex + 1));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static IOException asIOException(Throwable t) {
+        if (t instanceof IOException) {
+            return (IOException) t;
+        }
+        if (t instanceof UncheckedIOException) {
+            return ((UncheckedIOException) t).getCause();
+        }
+        return new IOException("Page processing failed", t);
+    }
+}
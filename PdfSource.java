@@ -0,0 +1,176 @@
+package org.example;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.io.RandomAccessReadMemoryMappedFile;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Input PDF for the maskers: a file, bytes already in memory, or a stream or channel.
+ * Streams are read once, on the masking call, into memory when they fit the
+ * in-memory limit and into a temp file otherwise, so small documents never touch
+ * disk. Several read-only handles can then be opened on the same bytes, one per
+ * worker. Closing deletes the temp file, if any; caller streams are never closed.
+ */
+public final class PdfSource implements Closeable {
+
+    private final File file;
+    private final ByteBuffer bytes;
+    private final ReadableByteChannel channel;
+    private final boolean temporary;
+
+    private PdfSource(File file, ByteBuffer bytes, ReadableByteChannel channel, boolean temporary) {
+        this.file = file;
+        this.bytes = bytes;
+        this.channel = channel;
+        this.temporary = temporary;
+    }
+
+    public static PdfSource of(File file) {
+        return new PdfSource(file, null, null, false);
+    }
+
+    public static PdfSource of(Path path) {
+        return of(path.toFile());
+    }
+
+    /**
+     * Bytes between the buffer's position and limit; the buffer itself is not modified
+     */
+    public static PdfSource of(ByteBuffer bytes) {
+        return new PdfSource(null, bytes.slice(), null, false);
+    }
+
+    public static PdfSource of(InputStream in) {
+        return of(Channels.newChannel(in));
+    }
+
+    public static PdfSource of(ReadableByteChannel channel) {
+        return new PdfSource(null, null, channel, false);
+    }
+
+    /**
+     * File backing this source, or null when it is held in memory
+     */
+    File file() {
+        return file;
+    }
+
+    /**
+     * A source whose bytes can be read repeatedly: this one unless it is a stream, which is
+     * drained into memory up to inMemoryLimit bytes and into a temp file beyond that
+     */
+    PdfSource buffered(long inMemoryLimit) throws IOException {
+        if (channel == null) {
+            return this;
+        }
+
+        long limit = Math.max(1, Math.min(inMemoryLimit, Integer.MAX_VALUE - 8));
+        byte[] buffer = new byte[(int) Math.min(64 * 1024, limit)];
+        int size = 0;
+        while (true) {
+            if (size == buffer.length) {
+                if (size >= limit) {
+                    return spill(buffer, size);
+                }
+                buffer = Arrays.copyOf(buffer, (int) Math.min((long) size * 2, limit));
+            }
+            int read = channel.read(ByteBuffer.wrap(buffer, size, buffer.length - size));
+            if (read < 0) {
+                return new PdfSource(null, ByteBuffer.wrap(buffer, 0, size).slice(), null, false);
+            }
+            size += read;
+        }
+    }
+
+    private PdfSource spill(byte[] head, int size) throws IOException {
+        Path spilled = Files.createTempFile("pdf-source", ".pdf");
+        try (FileChannel out = FileChannel.open(spilled, StandardOpenOption.WRITE)) {
+            ByteBuffer buffered = ByteBuffer.wrap(head, 0, size);
+            while (buffered.hasRemaining()) {
+                out.write(buffered);
+            }
+            long position = size;
+            long transferred;
+            while ((transferred = out.transferFrom(channel, position, 1L << 20)) > 0) {
+                position += transferred;
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spilled);
+            throw e;
+        }
+        return new PdfSource(spilled.toFile(), null, null, true);
+    }
+
+    /**
+     * New read-only handle on the bytes; only valid on a buffered source
+     */
+    RandomAccessRead open(boolean memoryMapped) throws IOException {
+        if (bytes != null) {
+            return new RandomAccessReadBuffer(bytes.duplicate());
+        }
+        if (file == null) {
+            throw new IllegalStateException("Stream source must be buffered before it is opened");
+        }
+        return memoryMapped ? new RandomAccessReadMemoryMappedFile(file) : new RandomAccessReadBufferedFile(file);
+    }
+
+    long length() throws IOException {
+        if (bytes != null) {
+            return bytes.remaining();
+        }
+        if (file == null) {
+            throw new IllegalStateException("Stream source must be buffered before its length is known");
+        }
+        return file.length();
+    }
+
+    /**
+     * Copy the bytes unchanged to the target; file to file copies stay in the kernel
+     */
+    void transferTo(WritableByteChannel target) throws IOException {
+        if (bytes != null) {
+            ByteBuffer remaining = bytes.duplicate();
+            while (remaining.hasRemaining()) {
+                target.write(remaining);
+            }
+            return;
+        }
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = in.size();
+            long copied = 0;
+            while (copied < length) {
+                copied += in.transferTo(copied, length - copied, target);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (temporary) {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (file != null) {
+            return file.getPath();
+        }
+        return bytes != null ? "<" + bytes.remaining() + " bytes in memory>" : "<stream>";
+    }
+}
@@ -0,0 +1,105 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Where a masked PDF is written: a file, or a caller's stream or channel.
+ * A file is only created when the document is saved, so a failed run leaves no
+ * output behind. Caller streams and channels are flushed but never closed.
+ */
+public final class PdfTarget {
+
+    private final File file;
+    private final WritableByteChannel channel;
+
+    private PdfTarget(File file, WritableByteChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    public static PdfTarget of(File file) {
+        return new PdfTarget(file, null);
+    }
+
+    public static PdfTarget of(Path path) {
+        return of(path.toFile());
+    }
+
+    public static PdfTarget of(OutputStream out) {
+        return of(Channels.newChannel(out));
+    }
+
+    public static PdfTarget of(WritableByteChannel channel) {
+        return new PdfTarget(null, channel);
+    }
+
+    /**
+     * Target file, or null when writing to a stream or channel
+     */
+    File file() {
+        return file;
+    }
+
+    /**
+     * Re-serialize the whole document to the target
+     */
+    void save(PDDocument document) throws IOException {
+        if (file != null) {
+            document.save(file);
+            return;
+        }
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(new NonClosingChannel(channel)));
+        document.save(out);
+        out.flush();
+    }
+
+    /**
+     * Channel to write raw bytes to; the caller closes it, which closes only a file target
+     */
+    WritableByteChannel openChannel() throws IOException {
+        if (file != null) {
+            return FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        return new NonClosingChannel(channel);
+    }
+
+    @Override
+    public String toString() {
+        return file != null ? file.getPath() : "<stream>";
+    }
+
+    private static final class NonClosingChannel implements WritableByteChannel {
+        private final WritableByteChannel delegate;
+
+        NonClosingChannel(WritableByteChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            return delegate.write(source);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() {
+            // The caller owns the underlying channel
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.example;
+
+/**
+ * Thread counts and queue sizes for the staged extract → match → render
+ * pipeline. Every extract thread loads its own handle on the input, so loading
+ * is spread over the extract stage rather than run as a stage of its own.
+ * Rendering always runs on the calling thread, because pages must be
+ * written to the output document one at a time and in order. Immutable; the
+ * with* methods return modified copies.
+ */
+public final class PipelineConfig {
+
+    private final int extractThreads;
+    private final int matchThreads;
+    private final int queueCapacity;
+
+    public PipelineConfig() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 1, 4);
+    }
+
+    private PipelineConfig(int extractThreads, int matchThreads, int queueCapacity) {
+        this.extractThreads = requirePositive("extract threads", extractThreads);
+        this.matchThreads = requirePositive("match threads", matchThreads);
+        this.queueCapacity = requirePositive("queue capacity", queueCapacity);
+    }
+
+    public PipelineConfig withExtractThreads(int threads) {
+        return new PipelineConfig(threads, matchThreads, queueCapacity);
+    }
+
+    public PipelineConfig withMatchThreads(int threads) {
+        return new PipelineConfig(extractThreads, threads, queueCapacity);
+    }
+
+    /**
+     * Capacity of every queue between two stages
+     */
+    public PipelineConfig withQueueCapacity(int capacity) {
+        return new PipelineConfig(extractThreads, matchThreads, capacity);
+    }
+
+    public int getExtractThreads() { return extractThreads; }
+    public int getMatchThreads() { return matchThreads; }
+    public int getQueueCapacity() { return queueCapacity; }
+
+    /**
+     * Pages allowed in flight: enough to fill every queue and keep every thread busy.
+     * Without a match stage there is one queue and no match threads to feed.
+     */
+    int window(boolean matchStage) {
+        return matchStage
+                ? 2 * queueCapacity + extractThreads + matchThreads
+                : queueCapacity + extractThreads;
+    }
+
+    private static int requirePositive(String what, int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException("Pipeline " + what + " must be at least 1: " + value);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "PipelineConfig{extract=" + extractThreads + ", match=" + matchThreads
+                + ", queue=" + queueCapacity + "}";
+    }
+}
@@ -0,0 +1,282 @@
+package org.example;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled masking rule, independent of the regex engine behind it.
+ * RuleMatchers are immutable and thread-safe; each page gets its own Session.
+ */
+abstract class RuleMatcher {
+
+    private final String ruleName;
+
+    RuleMatcher(String ruleName) {
+        this.ruleName = ruleName;
+    }
+
+    String getRuleName() { return ruleName; }
+
+    abstract int groupCount();
+
+    /**
+     * Start matching against one text; sessions are not thread-safe
+     */
+    abstract Session session(CharSequence text);
+
+    /**
+     * Matching state over one text. After a successful find/lookingAt the group
+     * accessors describe that match; group bounds are -1 when a group did not participate.
+     */
+    abstract static class Session {
+        private final CharSequence text;
+
+        Session(CharSequence text) {
+            this.text = text;
+        }
+
+        /** Leftmost match starting at or after the offset */
+        abstract boolean find(int from);
+
+        /** Match starting exactly at the offset; text outside the offset stays visible to assertions */
+        abstract boolean lookingAt(int at);
+
+        abstract int start(int group);
+
+        abstract int end(int group);
+
+        String group(int group) {
+            int start = start(group);
+            return start < 0 ? null : text.subSequence(start, end(group)).toString();
+        }
+
+        CharSequence text() {
+            return text;
+        }
+
+        /** True once the rule exceeded its matching budget here; it then finds nothing more in this text */
+        boolean isAbandoned() {
+            return false;
+        }
+
+        int textLength() {
+            return text.length();
+        }
+    }
+
+    /**
+     * Plain java.util.regex; used in BACKTRACKING mode
+     */
+    static final class JavaRuleMatcher extends RuleMatcher {
+        private final Pattern pattern;
+
+        JavaRuleMatcher(String ruleName, Pattern pattern) {
+            super(ruleName);
+            this.pattern = pattern;
+        }
+
+        @Override
+        int groupCount() {
+            return pattern.matcher("").groupCount();
+        }
+
+        @Override
+        Session session(CharSequence text) {
+            return new JavaSession(text, pattern.matcher(text));
+        }
+    }
+
+    private static class JavaSession extends Session {
+        final Matcher matcher;
+
+        JavaSession(CharSequence text, Matcher matcher) {
+            super(text);
+            this.matcher = matcher;
+            matcher.useTransparentBounds(true);
+            matcher.useAnchoringBounds(false);
+        }
+
+        @Override
+        boolean find(int from) {
+            return matcher.find(from);
+        }
+
+        @Override
+        boolean lookingAt(int at) {
+            matcher.region(at, textLength());
+            return matcher.lookingAt();
+        }
+
+        @Override
+        int start(int group) { return matcher.start(group); }
+
+        @Override
+        int end(int group) { return matcher.end(group); }
+    }
+
+    /**
+     * java.util.regex behind a per-match step budget and timeout; used for rules
+     * the linear engine cannot run. A rule that exceeds its budget is reported and
+     * skipped for the rest of the text, so one bad page cannot stall a worker.
+     */
+    static final class GuardedRuleMatcher extends RuleMatcher {
+        private final Pattern pattern;
+        private final long stepBudget;
+        private final long timeoutNanos;
+        private final MatchingEngine.FallbackListener listener;
+
+        GuardedRuleMatcher(String ruleName, Pattern pattern, long stepBudget, long timeoutNanos,
+                           MatchingEngine.FallbackListener listener) {
+            super(ruleName);
+            this.pattern = pattern;
+            this.stepBudget = stepBudget;
+            this.timeoutNanos = timeoutNanos;
+            this.listener = listener;
+        }
+
+        @Override
+        int groupCount() {
+            return pattern.matcher("").groupCount();
+        }
+
+        @Override
+        Session session(CharSequence text) {
+            BudgetedCharSequence budgeted = new BudgetedCharSequence(text, stepBudget, timeoutNanos);
+            return new GuardedSession(text, pattern.matcher(budgeted), budgeted);
+        }
+
+        private final class GuardedSession extends JavaSession {
+            private final BudgetedCharSequence budgeted;
+            private boolean abandoned;
+
+            GuardedSession(CharSequence text, Matcher matcher, BudgetedCharSequence budgeted) {
+                super(text, matcher);
+                this.budgeted = budgeted;
+            }
+
+            @Override
+            boolean find(int from) {
+                return guarded(from, false);
+            }
+
+            @Override
+            boolean lookingAt(int at) {
+                return guarded(at, true);
+            }
+
+            @Override
+            boolean isAbandoned() {
+                return abandoned;
+            }
+
+            private boolean guarded(int offset, boolean anchored) {
+                if (abandoned) {
+                    return false;
+                }
+                budgeted.startMatch();
+                try {
+                    return anchored ? super.lookingAt(offset) : super.find(offset);
+                } catch (BudgetedCharSequence.BudgetExceededException e) {
+                    abandoned = true;
+                    listener.onBudgetExceeded(getRuleName(), offset, budgeted.getSteps(), budgeted.getElapsedNanos());
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Linear-time Pike VM; used in LINEAR mode for rules within its subset
+     */
+    static final class LinearRuleMatcher extends RuleMatcher {
+        private final LinearRegex regex;
+
+        LinearRuleMatcher(String ruleName, LinearRegex regex) {
+            super(ruleName);
+            this.regex = regex;
+        }
+
+        @Override
+        int groupCount() {
+            return regex.groupCount();
+        }
+
+        @Override
+        Session session(CharSequence text) {
+            return new Session(text) {
+                private final LinearRegex.Scratch scratch = regex.newScratch();
+                private final int[] groups = new int[2 * (regex.groupCount() + 1)];
+
+                @Override
+                boolean find(int from) {
+                    return from <= textLength() && regex.find(text(), from, groups, scratch);
+                }
+
+                @Override
+                boolean lookingAt(int at) {
+                    return regex.lookingAt(text(), at, groups, scratch);
+                }
+
+                @Override
+                int start(int group) { return groups[2 * group]; }
+
+                @Override
+                int end(int group) { return groups[2 * group + 1]; }
+            };
+        }
+    }
+
+    /**
+     * CharSequence that counts character reads during a match and aborts once the
+     * step budget or the deadline is exceeded
+     */
+    private static final class BudgetedCharSequence implements CharSequence {
+        private static final int CLOCK_CHECK_INTERVAL = 4096;
+
+        private final CharSequence delegate;
+        private final long stepBudget;
+        private final long timeoutNanos;
+        private long steps;
+        private long startedAt;
+
+        BudgetedCharSequence(CharSequence delegate, long stepBudget, long timeoutNanos) {
+            this.delegate = delegate;
+            this.stepBudget = stepBudget;
+            this.timeoutNanos = timeoutNanos;
+        }
+
+        void startMatch() {
+            steps = 0;
+            startedAt = System.nanoTime();
+        }
+
+        long getSteps() { return steps; }
+        long getElapsedNanos() { return System.nanoTime() - startedAt; }
+
+        @Override
+        public char charAt(int index) {
+            if (++steps > stepBudget
+                    || (steps % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() - startedAt > timeoutNanos)) {
+                throw new BudgetExceededException();
+            }
+            return delegate.charAt(index);
+        }
+
+        @Override
+        public int length() { return delegate.length(); }
+
+        @Override
+        public CharSequence subSequence(int start, int end) { return delegate.subSequence(start, end); }
+
+        @Override
+        public String toString() { return delegate.toString(); }
+
+        static final class BudgetExceededException extends RuntimeException {
+            private static final long serialVersionUID = 1L;
+
+            BudgetExceededException() {
+                super(null, null, false, false); // thrown on a hot path, no stack trace
+            }
+        }
+    }
+}
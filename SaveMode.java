@@ -0,0 +1,11 @@
+package org.example;
+
+/**
+ * How a masked document is written
+ */
+public enum SaveMode {
+    /** Re-serialize every object; the historical behaviour */
+    FULL_REWRITE,
+    /** Copy the original bytes unchanged and append only the changed objects as an incremental update */
+    INCREMENTAL
+}
@@ -0,0 +1,192 @@
+package org.example;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Uniform grid over axis-aligned boxes (glyphs or masks on one page).
+ * Items are bucketed into square cells in a compact CSR layout, so a rectangle
+ * query only visits the cells it covers instead of every item on the page.
+ * Coordinates are whatever the caller uses; the grid only compares them.
+ * Immutable after construction except for the scratch used to de-duplicate
+ * items spanning several cells, so one grid must not be queried concurrently.
+ */
+final class SpatialGrid {
+
+    private static final int MAX_CELLS_PER_AXIS = 512;
+
+    private final float[] minX, minY, maxX, maxY;
+    private final int count;
+    private final float originX, originY, cellSize;
+    private final int cols, rows;
+    private final int[] cellStart;  // cell -> first slot in cellItems; length cols * rows + 1
+    private final int[] cellItems;
+    private final int[] seenStamp;  // item -> last query that reported it
+    private int stamp;
+
+    /**
+     * @param cellSize preferred cell edge; enlarged if the extent would need too many cells
+     */
+    SpatialGrid(float[] minX, float[] minY, float[] maxX, float[] maxY, int count, float cellSize) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.count = count;
+
+        float loX = Float.MAX_VALUE, loY = Float.MAX_VALUE, hiX = -Float.MAX_VALUE, hiY = -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            loX = Math.min(loX, minX[i]);
+            loY = Math.min(loY, minY[i]);
+            hiX = Math.max(hiX, maxX[i]);
+            hiY = Math.max(hiY, maxY[i]);
+        }
+        if (count == 0) {
+            loX = loY = hiX = hiY = 0;
+        }
+
+        float extent = Math.max(hiX - loX, hiY - loY);
+        cellSize = Math.max(cellSize, 1f);
+        if (extent / cellSize > MAX_CELLS_PER_AXIS) {
+            cellSize = extent / MAX_CELLS_PER_AXIS;
+        }
+        this.originX = loX;
+        this.originY = loY;
+        this.cellSize = cellSize;
+        this.cols = cellIndex(hiX - loX) + 1;
+        this.rows = cellIndex(hiY - loY) + 1;
+
+        // Counting sort of items into cells
+        cellStart = new int[cols * rows + 1];
+        for (int i = 0; i < count; i++) {
+            for (int row = rowOf(minY[i]); row <= rowOf(maxY[i]); row++) {
+                for (int col = colOf(minX[i]); col <= colOf(maxX[i]); col++) {
+                    cellStart[row * cols + col + 1]++;
+                }
+            }
+        }
+        for (int cell = 0; cell < cols * rows; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        cellItems = new int[cellStart[cols * rows]];
+        int[] fill = Arrays.copyOf(cellStart, cols * rows);
+        for (int i = 0; i < count; i++) {
+            for (int row = rowOf(minY[i]); row <= rowOf(maxY[i]); row++) {
+                for (int col = colOf(minX[i]); col <= colOf(maxX[i]); col++) {
+                    cellItems[fill[row * cols + col]++] = i;
+                }
+            }
+        }
+        seenStamp = new int[count];
+    }
+
+    /**
+     * Grid over the glyph boxes of a page; a glyph spans [x, x + width] and [y - height, y]
+     * (TextPosition coordinates, y growing down the page)
+     */
+    static SpatialGrid forGlyphs(GlyphStore glyphs) {
+        int n = glyphs.size();
+        float[] minX = new float[n], minY = new float[n], maxX = new float[n], maxY = new float[n];
+        float totalHeight = 0;
+        for (int g = 0; g < n; g++) {
+            minX[g] = glyphs.x(g);
+            maxX[g] = glyphs.x(g) + Math.max(0f, glyphs.width(g));
+            maxY[g] = glyphs.y(g);
+            minY[g] = glyphs.y(g) - Math.max(0f, glyphs.height(g));
+            totalHeight += Math.max(0f, glyphs.height(g));
+        }
+        // A cell about two lines tall keeps per-cell buckets short on dense pages
+        float cellSize = n == 0 ? 1f : 2f * totalHeight / n;
+        return new SpatialGrid(minX, minY, maxX, maxY, n, cellSize);
+    }
+
+    /**
+     * Grid over rectangles such as mask bounds
+     */
+    static SpatialGrid forRectangles(List<? extends Rectangle2D> rectangles) {
+        int n = rectangles.size();
+        float[] minX = new float[n], minY = new float[n], maxX = new float[n], maxY = new float[n];
+        float totalSize = 0;
+        for (int i = 0; i < n; i++) {
+            Rectangle2D r = rectangles.get(i);
+            minX[i] = (float) r.getMinX();
+            minY[i] = (float) r.getMinY();
+            maxX[i] = (float) r.getMaxX();
+            maxY[i] = (float) r.getMaxY();
+            totalSize += (float) Math.max(r.getWidth(), r.getHeight());
+        }
+        float cellSize = n == 0 ? 1f : totalSize / n;
+        return new SpatialGrid(minX, minY, maxX, maxY, n, cellSize);
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Items whose box intersects or touches the query box, in ascending item order.
+     * Infinite bounds are allowed, e.g. everything right of x: (x, -inf, +inf, +inf).
+     */
+    int[] query(float qMinX, float qMinY, float qMaxX, float qMaxY) {
+        if (count == 0 || qMinX > qMaxX || qMinY > qMaxY) {
+            return new int[0];
+        }
+        if (++stamp == 0) {
+            Arrays.fill(seenStamp, 0);
+            stamp = 1;
+        }
+
+        int[] found = new int[16];
+        int size = 0;
+        for (int row = rowOf(qMinY); row <= rowOf(qMaxY); row++) {
+            for (int col = colOf(qMinX); col <= colOf(qMaxX); col++) {
+                int cell = row * cols + col;
+                for (int slot = cellStart[cell]; slot < cellStart[cell + 1]; slot++) {
+                    int item = cellItems[slot];
+                    if (seenStamp[item] == stamp) {
+                        continue;
+                    }
+                    seenStamp[item] = stamp;
+                    if (minX[item] <= qMaxX && maxX[item] >= qMinX && minY[item] <= qMaxY && maxY[item] >= qMinY) {
+                        if (size == found.length) {
+                            found = Arrays.copyOf(found, size * 2);
+                        }
+                        found[size++] = item;
+                    }
+                }
+            }
+        }
+        Arrays.sort(found, 0, size);
+        return Arrays.copyOf(found, size);
+    }
+
+    /**
+     * Items whose box has a positive-area overlap with item i, excluding i itself
+     */
+    int[] overlapping(int item) {
+        int[] candidates = query(minX[item], minY[item], maxX[item], maxY[item]);
+        int size = 0;
+        for (int other : candidates) {
+            if (other != item && minX[other] < maxX[item] && minX[item] < maxX[other]
+                    && minY[other] < maxY[item] && minY[item] < maxY[other]) {
+                candidates[size++] = other;
+            }
+        }
+        return Arrays.copyOf(candidates, size);
+    }
+
+    private int cellIndex(float offset) {
+        return (int) (offset / cellSize);
+    }
+
+    private int colOf(float x) {
+        if (!(x > originX)) return 0; // also catches -inf
+        return Math.min(cols - 1, cellIndex(x - originX));
+    }
+
+    private int rowOf(float y) {
+        if (!(y > originY)) return 0;
+        return Math.min(rows - 1, cellIndex(y - originY));
+    }
+}
@@ -0,0 +1,363 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Page pipeline of worker stages connected by bounded queues, ending in an
+ * ordered sink on the calling thread.
+ * The first stage claims page numbers itself; every later stage takes items from
+ * a bounded queue, so a slow stage blocks the stages in front of it instead of
+ * letting work pile up. At most window pages are in flight between the first
+ * stage and the sink, which also bounds the sink's reorder buffer.
+ * Each stage thread gets its own Worker, so per-thread resources such as a
+ * document handle live exactly as long as the thread.
+ */
+public final class StagedPipeline<T> {
+
+    private static final long FAILURE_POLL_MILLIS = 50;
+
+    /**
+     * Per-thread stage logic; closed when its thread leaves the pipeline
+     */
+    interface Worker<I, O> extends AutoCloseable {
+        O process(int page, I item) throws Exception;
+
+        // Narrower than AutoCloseable's Exception, which would include InterruptedException
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    /**
+     * Receives items in page order on the calling thread
+     */
+    interface Sink<T> {
+        void accept(int page, T item) throws IOException;
+    }
+
+    private final List<StageSpec> stages;
+
+    private StagedPipeline(List<StageSpec> stages) {
+        this.stages = stages;
+    }
+
+    /**
+     * First stage; its input is the page number
+     */
+    static <O> StagedPipeline<O> start(String name, int threads, Supplier<? extends Worker<Integer, O>> workers) {
+        List<StageSpec> stages = new ArrayList<>();
+        stages.add(new StageSpec(name, threads, workers));
+        return new StagedPipeline<>(stages);
+    }
+
+    <O> StagedPipeline<O> then(String name, int threads, Supplier<? extends Worker<T, O>> workers) {
+        List<StageSpec> extended = new ArrayList<>(stages);
+        extended.add(new StageSpec(name, threads, workers));
+        return new StagedPipeline<>(extended);
+    }
+
+    /**
+     * Stats for a run with the given sink stage name; pass to run, and read while it runs if needed
+     */
+    Stats newStats(String sinkName) {
+        List<StageStats> stageStats = new ArrayList<>();
+        for (StageSpec stage : stages) {
+            stageStats.add(new StageStats(stage.name, stage.threads));
+        }
+        stageStats.add(new StageStats(sinkName, 1));
+        return new Stats(stageStats);
+    }
+
+    /**
+     * Push pages [0, pageCount) through every stage and into the sink, in page order.
+     *
+     * @param queueCapacity capacity of each queue between stages
+     * @param window        maximum pages claimed by the first stage and not yet sunk
+     */
+    void run(int pageCount, int queueCapacity, int window, Stats stats, Sink<T> sink) throws IOException {
+        if (queueCapacity < 1 || window < 1) {
+            throw new IllegalArgumentException("Queue capacity and window must be at least 1: "
+                    + queueCapacity + ", " + window);
+        }
+        Run run = new Run(pageCount, queueCapacity, window, stats);
+        int totalThreads = stages.stream().mapToInt(stage -> stage.threads).sum();
+        ExecutorService pool = Executors.newFixedThreadPool(totalThreads, runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-stage");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        stats.started = System.nanoTime();
+        try {
+            for (int s = 0; s < stages.size(); s++) {
+                for (int t = 0; t < stages.get(s).threads; t++) {
+                    int stage = s;
+                    pool.execute(() -> run.work(stage));
+                }
+            }
+            run.drain(sink);
+        } finally {
+            stats.finished = System.nanoTime();
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * State of one run: queues, window and the first failure
+     */
+    private final class Run {
+        final int pageCount;
+        final int window;
+        final Stats stats;
+        final List<BlockingQueue<Item>> queues = new ArrayList<>(); // queue i feeds stage i + 1 (the last feeds the sink)
+        final Semaphore inFlight;
+        final AtomicInteger nextPage = new AtomicInteger();
+        volatile Throwable failure;
+
+        Run(int pageCount, int queueCapacity, int window, Stats stats) {
+            this.pageCount = pageCount;
+            this.window = window;
+            this.stats = stats;
+            this.inFlight = new Semaphore(window);
+            for (int i = 0; i < stages.size(); i++) {
+                queues.add(new ArrayBlockingQueue<>(queueCapacity));
+            }
+            for (int i = 0; i < stages.size(); i++) {
+                stats.stages.get(i + 1).queue = queues.get(i);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void work(int stage) {
+            StageSpec spec = stages.get(stage);
+            StageStats stageStats = stats.stages.get(stage);
+            BlockingQueue<Item> in = stage == 0 ? null : queues.get(stage - 1);
+            BlockingQueue<Item> out = queues.get(stage);
+
+            try (Worker<Object, Object> worker = (Worker<Object, Object>) spec.workers.get()) {
+                while (failure == null) {
+                    long waitStarted = System.nanoTime();
+                    Item item;
+                    if (in == null) {
+                        inFlight.acquire();
+                        int page = nextPage.getAndIncrement();
+                        if (page >= pageCount) {
+                            inFlight.release();
+                            return;
+                        }
+                        item = new Item(page, page);
+                    } else {
+                        item = in.take();
+                    }
+                    long workStarted = System.nanoTime();
+                    stageStats.waitingNanos.add(workStarted - waitStarted);
+
+                    Object result = worker.process(item.page, item.payload);
+
+                    long workFinished = System.nanoTime();
+                    stageStats.busyNanos.add(workFinished - workStarted);
+                    stageStats.items.increment();
+
+                    out.put(new Item(item.page, result));
+                    stats.stages.get(stage + 1).recordDepth(out.size());
+                    stageStats.blockedNanos.add(System.nanoTime() - workFinished);
+                }
+            } catch (InterruptedException e) {
+                // Pipeline finished or failed; the pool is being shut down
+                Thread.currentThread().interrupt();
+            } catch (Throwable t) {
+                if (failure == null) {
+                    failure = t;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void drain(Sink<T> sink) throws IOException {
+            StageStats sinkStats = stats.stages.get(stages.size());
+            BlockingQueue<Item> in = queues.get(stages.size() - 1);
+            Item[] reorder = new Item[window];
+
+            try {
+                int next = 0;
+                while (next < pageCount) {
+                    Item ready = reorder[next % window];
+                    if (ready == null || ready.page != next) {
+                        long waitStarted = System.nanoTime();
+                        Item item = in.poll(FAILURE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                        sinkStats.waitingNanos.add(System.nanoTime() - waitStarted);
+                        if (item == null) {
+                            if (failure != null) {
+                                throw asIOException(failure);
+                            }
+                        } else {
+                            reorder[item.page % window] = item;
+                        }
+                        continue;
+                    }
+
+                    reorder[next % window] = null;
+                    long workStarted = System.nanoTime();
+                    sink.accept(next, (T) ready.payload);
+                    sinkStats.busyNanos.add(System.nanoTime() - workStarted);
+                    sinkStats.items.increment();
+                    inFlight.release();
+                    next++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for pipeline output");
+            }
+        }
+    }
+
+    private static IOException asIOException(Throwable t) {
+        if (t instanceof IOException) {
+            return (IOException) t;
+        }
+        if (t instanceof UncheckedIOException) {
+            return ((UncheckedIOException) t).getCause();
+        }
+        return new IOException("Pipeline stage failed", t);
+    }
+
+    private static final class StageSpec {
+        final String name;
+        final int threads;
+        final Supplier<? extends Worker<?, ?>> workers;
+
+        StageSpec(String name, int threads, Supplier<? extends Worker<?, ?>> workers) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("Stage '" + name + "' needs at least one thread: " + threads);
+            }
+            this.name = name;
+            this.threads = threads;
+            this.workers = workers;
+        }
+    }
+
+    private static final class Item {
+        final int page;
+        final Object payload;
+
+        Item(int page, Object payload) {
+            this.page = page;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Live counters of one pipeline run, one entry per stage including the sink
+     */
+    public static final class Stats {
+        private final List<StageStats> stages;
+        private volatile long started;
+        private volatile long finished;
+
+        Stats(List<StageStats> stages) {
+            this.stages = Collections.unmodifiableList(stages);
+        }
+
+        public List<StageStats> getStages() {
+            return stages;
+        }
+
+        /**
+         * Wall time of the run so far, or of the whole run once it finished
+         */
+        public long getElapsedNanos() {
+            if (started == 0) {
+                return 0;
+            }
+            return (finished != 0 ? finished : System.nanoTime()) - started;
+        }
+
+        /**
+         * The stage with the highest utilization, i.e. the one limiting throughput
+         */
+        public StageStats getBottleneck() {
+            StageStats bottleneck = null;
+            for (StageStats stage : stages) {
+                if (bottleneck == null || utilization(stage) > utilization(bottleneck)) {
+                    bottleneck = stage;
+                }
+            }
+            return bottleneck;
+        }
+
+        /**
+         * Share of the stage's thread time spent working, between 0 and 1
+         */
+        public double utilization(StageStats stage) {
+            long elapsed = getElapsedNanos();
+            return elapsed == 0 ? 0 : (double) stage.getBusyNanos() / ((double) elapsed * stage.getThreads());
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder table = new StringBuilder(String.format("%-10s %7s %7s %7s %7s %6s %9s %9s%n",
+                    "stage", "threads", "items", "util%", "queue", "max", "wait ms", "block ms"));
+            for (StageStats stage : stages) {
+                table.append(String.format("%-10s %7d %7d %7.1f %7d %6d %9.1f %9.1f%n",
+                        stage.getName(), stage.getThreads(), stage.getItems(), 100 * utilization(stage),
+                        stage.getQueueDepth(), stage.getMaxQueueDepth(),
+                        stage.getWaitingNanos() / 1e6, stage.getBlockedNanos() / 1e6));
+            }
+            StageStats bottleneck = getBottleneck();
+            if (bottleneck != null) {
+                table.append("bottleneck: ").append(bottleneck.getName());
+            }
+            return table.toString();
+        }
+    }
+
+    /**
+     * Counters of one stage; the queue is the one feeding the stage
+     */
+    public static final class StageStats {
+        private final String name;
+        private final int threads;
+        private final LongAdder items = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private final LongAdder waitingNanos = new LongAdder();
+        private final LongAdder blockedNanos = new LongAdder();
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+        private volatile BlockingQueue<?> queue;
+
+        StageStats(String name, int threads) {
+            this.name = name;
+            this.threads = threads;
+        }
+
+        void recordDepth(int depth) {
+            maxQueueDepth.accumulateAndGet(depth, Math::max);
+        }
+
+        public String getName() { return name; }
+        public int getThreads() { return threads; }
+        public long getItems() { return items.sum(); }
+        public long getBusyNanos() { return busyNanos.sum(); }
+
+        /** Time spent waiting for input (starved) */
+        public long getWaitingNanos() { return waitingNanos.sum(); }
+
+        /** Time spent waiting for room in the next queue (back-pressured) */
+        public long getBlockedNanos() { return blockedNanos.sum(); }
+
+        public int getQueueDepth() {
+            BlockingQueue<?> current = queue;
+            return current == null ? 0 : current.size();
+        }
+
+        public int getMaxQueueDepth() { return maxQueueDepth.get(); }
+    }
+}
@@ -0,0 +1,270 @@
+package org.example;
+
+import java.awt.geom.Rectangle2D;
+import java.util.*;
+
+/**
+ * Advanced configuration and utility classes: positioning strategy names, precision
+ * metrics and the text and geometry helpers used by AdvancedPDFMasker
+ */
+public class UltraPrecisionPDFMaskerConfig {
+
+    private static final MaskingLog LOG = MaskingLog.forClass(UltraPrecisionPDFMaskerConfig.class);
+
+    public static void addCustomPattern(String fieldName, String pattern) {
+        LOG.debug("Custom pattern added: {0} -> {1}", fieldName, pattern);
+    }
+
+    /**
+     * Advanced text positioning algorithms for different scenarios
+     */
+    public static class PositioningStrategy {
+        public static final String INDEX_BASED = "Index-Based";
+        public static final String CHARACTER_SEQUENCE = "Character-Sequence";
+        public static final String CONTEXT_BASED = "Context-Based";
+        public static final String PATTERN_BASED = "Pattern-Based";
+        public static final String FUZZY_MATCH = "Fuzzy-Match";
+        public static final String GEOMETRIC_ANALYSIS = "Geometric-Analysis";
+    }
+
+    /**
+     * Precision metrics for algorithm evaluation
+     */
+    public static class PrecisionMetrics {
+        private double accuracy;
+        private double coverage;
+        private double efficiency;
+        private String algorithm;
+
+        public PrecisionMetrics(double accuracy, double coverage, double efficiency, String algorithm) {
+            this.accuracy = accuracy;
+            this.coverage = coverage;
+            this.efficiency = efficiency;
+            this.algorithm = algorithm;
+        }
+
+        /**
+         * Measured scores: accuracy is the share of located matches accepted at the confidence
+         * threshold, coverage the share of matches located at all, efficiency located matches per
+         * strategy call; the algorithm is the strategy that won most often
+         */
+        static PrecisionMetrics from(MaskingMetrics metrics) {
+            long resolved = metrics.getResolvedMatches();
+            long matches = resolved + metrics.getUnresolvedMatches();
+            long attempts = metrics.getStrategyAttempts();
+            String algorithm = metrics.getStrategyWins().entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .map(Map.Entry::getKey)
+                    .orElse(PositioningStrategy.INDEX_BASED);
+            return new PrecisionMetrics(
+                    resolved == 0 ? 0 : (double) metrics.getConfidentWins() / resolved,
+                    matches == 0 ? 0 : (double) resolved / matches,
+                    attempts == 0 ? 0 : (double) resolved / attempts,
+                    algorithm);
+        }
+
+        public double getOverallScore() {
+            return (accuracy * 0.5) + (coverage * 0.3) + (efficiency * 0.2);
+        }
+
+        // Getters
+        public double getAccuracy() { return accuracy; }
+        public double getCoverage() { return coverage; }
+        public double getEfficiency() { return efficiency; }
+        public String getAlgorithm() { return algorithm; }
+    }
+
+    /**
+     * Advanced coordinate system utilities
+     */
+    public static class CoordinateSystem {
+
+        /**
+         * Convert PDF coordinates (bottom-left origin) to screen coordinates (top-left origin)
+         */
+        public static float pdfToScreen(float pdfY, float pageHeight) {
+            return pageHeight - pdfY;
+        }
+
+        /**
+         * Convert screen coordinates to PDF coordinates
+         */
+        public static float screenToPdf(float screenY, float pageHeight) {
+            return pageHeight - screenY;
+        }
+
+        /**
+         * Calculate baseline offset for proper text positioning
+         */
+        public static float calculateBaselineOffset(float fontSize) {
+            return fontSize * 0.25f; // Approximate descender height
+        }
+
+        /**
+         * Calculate ascender height for text bounds
+         */
+        public static float calculateAscenderHeight(float fontSize) {
+            return fontSize * 0.75f; // Approximate ascender height
+        }
+    }
+
+    /**
+     * Text analysis utilities for better pattern matching
+     */
+    public static class TextAnalyzer {
+
+        /**
+         * Calculate text similarity using Levenshtein distance
+         */
+        public static double calculateSimilarity(String text1, String text2) {
+            int maxLen = Math.max(text1.length(), text2.length());
+            if (maxLen == 0) return 1.0;
+
+            int distance = levenshteinDistance(text1, text2);
+            return 1.0 - ((double) distance / maxLen);
+        }
+
+        private static int levenshteinDistance(String s1, String s2) {
+            int[][] dp = new int[s1.length() + 1][s2.length() + 1];
+
+            for (int i = 0; i <= s1.length(); i++) {
+                for (int j = 0; j <= s2.length(); j++) {
+                    if (i == 0) {
+                        dp[i][j] = j;
+                    } else if (j == 0) {
+                        dp[i][j] = i;
+                    } else {
+                        dp[i][j] = Math.min(
+                                dp[i - 1][j - 1] + (s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1),
+                                Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1)
+                        );
+                    }
+                }
+            }
+
+            return dp[s1.length()][s2.length()];
+        }
+
+        /**
+         * Normalize text for better matching
+         */
+        public static String normalizeText(String text) {
+            return text.toLowerCase()
+                    .replaceAll("\\s+", " ")
+                    .replaceAll("[^\\w\\s@.-]", "")
+                    .trim();
+        }
+
+        /**
+         * Extract word boundaries for better name matching
+         */
+        public static List<String> extractWords(String text) {
+            return Arrays.asList(text.split("\\s+"));
+        }
+    }
+
+    /**
+     * Geometric analysis utilities for text positioning
+     */
+    public static class GeometricAnalyzer {
+
+        /**
+         * Calculate the center point of a text region
+         */
+        public static float[] calculateCenter(List<Float> xCoords, List<Float> yCoords) {
+            float centerX = (float) xCoords.stream().mapToDouble(Float::doubleValue).average().orElse(0);
+            float centerY = (float) yCoords.stream().mapToDouble(Float::doubleValue).average().orElse(0);
+            return new float[]{centerX, centerY};
+        }
+
+        /**
+         * Calculate the bounding box that encompasses all text positions
+         */
+        public static float[] calculateBoundingBox(List<Float> xCoords, List<Float> yCoords,
+                                                   List<Float> widths, List<Float> heights) {
+            float minX = Collections.min(xCoords);
+            float maxX = Collections.max(xCoords.stream()
+                    .mapToInt(i -> xCoords.indexOf(i))
+                    .mapToObj(i -> xCoords.get(i) + widths.get(i))
+                    .collect(ArrayList::new, ArrayList::add, ArrayList::addAll));
+
+            float minY = Collections.min(yCoords.stream()
+                    .mapToInt(i -> yCoords.indexOf(i))
+                    .mapToObj(i -> yCoords.get(i) - heights.get(i))
+                    .collect(ArrayList::new, ArrayList::add, ArrayList::addAll));
+            float maxY = Collections.max(yCoords);
+
+            return new float[]{minX, minY, maxX - minX, maxY - minY};
+        }
+
+        /**
+         * Check if two rectangles overlap
+         */
+        public static boolean rectanglesOverlap(float x1, float y1, float w1, float h1,
+                                                float x2, float y2, float w2, float h2) {
+            return !(x1 + w1 <= x2 || x2 + w2 <= x1 || y1 + h1 <= y2 || y2 + h2 <= y1);
+        }
+
+        /**
+         * All pairs of overlapping rectangles, as index pairs {i, j} with i < j.
+         * Uses a uniform grid, so dense pages are not compared pair by pair.
+         */
+        public static List<int[]> findOverlappingPairs(List<? extends Rectangle2D> rectangles) {
+            List<int[]> pairs = new ArrayList<>();
+            if (rectangles.size() < 2) {
+                return pairs;
+            }
+            SpatialGrid grid = SpatialGrid.forRectangles(rectangles);
+            for (int i = 0; i < rectangles.size(); i++) {
+                for (int j : grid.overlapping(i)) {
+                    if (j > i) {
+                        pairs.add(new int[]{i, j});
+                    }
+                }
+            }
+            return pairs;
+        }
+    }
+
+    public static void demonstrateUsage() {
+        System.out.println("\n=== ULTRA-PRECISE PDF MASKER ===");
+        System.out.println("Advanced masking with multiple precision algorithms");
+        System.out.println("\n1. Basic usage:");
+        System.out.println("   java AdvancedPDFMasker input.pdf output.pdf");
+        System.out.println("\n2. Mask specific fields:");
+        System.out.println("   java AdvancedPDFMasker input.pdf output.pdf Name:,Email:");
+        System.out.println("\n3. Supported field patterns:");
+        System.out.println("   - Name: (names with letters and spaces)");
+        System.out.println("   - Email: (valid email addresses)");
+        System.out.println("   - Phone: (phone numbers with various formats)");
+        System.out.println("   - SSN: (social security numbers)");
+        System.out.println("   - Address: (street addresses)");
+        System.out.println("   - DOB: (dates of birth)");
+        System.out.println("\n=== PRECISION ALGORITHMS ===");
+        System.out.println("This masker uses 6 different precision strategies:");
+        System.out.println("1. Index-Based: Uses exact character positions from regex matches");
+        System.out.println("2. Character-Sequence: Matches exact character sequences");
+        System.out.println("3. Context-Based: Uses surrounding text (labels) for positioning");
+        System.out.println("4. Pattern-Based: Field-specific matching algorithms");
+        System.out.println("5. Fuzzy-Match: Handles OCR errors and formatting variations");
+        System.out.println("6. Geometric-Analysis: Uses spatial relationships between text elements");
+        System.out.println("\n=== MASKING STRATEGIES ===");
+        System.out.println("Multiple coverage layers ensure complete text removal:");
+        System.out.println("- Expanded white rectangle for complete coverage");
+        System.out.println("- Precise white rectangle matching text bounds");
+        System.out.println("- Multiple mask text layers with solid block characters");
+        System.out.println("- Baseline-aware positioning for proper text alignment");
+        System.out.println("\n=== PDFBox 3.0.5 COMPATIBILITY ===");
+        System.out.println("- Full compatibility with Apache PDFBox 3.0.5");
+        System.out.println("- Uses Standard14Fonts enum for font management");
+        System.out.println("- Proper document reference handling");
+        System.out.println("- Enhanced coordinate system management");
+        System.out.println("- Optimized for Java 11+ environments");
+        System.out.println("\n=== LOGGING ===");
+        System.out.println("Call MaskingLog.setDetail(...) or set levels on the org.example logger:");
+        System.out.println("- SUMMARY: one line per document (the default)");
+        System.out.println("- PAGES: per-page progress and strategy statistics");
+        System.out.println("- MATCHES: match positions, strategy attempts and bounds");
+        System.out.println("- Matched values are never logged");
+    }
+}
@@ -0,0 +1,45 @@
+package org.example;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the benchmarks with JMH's GC profiler, so every result carries allocation
+ * rate and bytes allocated per operation (gc.alloc.rate.norm) next to its time,
+ * and writes them as JSON for comparing one run against another.
+ * All inputs are generated from fixed seeds, so runs need no files or network.
+ *
+ * Usage: BenchmarkSuite [include regex] [result file]
+ * e.g. BenchmarkSuite 'TextMasking|FieldAnalysis' results/before.json
+ */
+public final class BenchmarkSuite {
+
+    private BenchmarkSuite() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : ".*Benchmark";
+        String resultFile = args.length > 1 ? args[1] : "jmh-result.json";
+
+        File parent = new File(resultFile).getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IllegalStateException("Cannot create " + parent);
+        }
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .jvmArgsAppend("-Xms2g", "-Xmx2g")
+                .result(resultFile)
+                .resultFormat(ResultFormatType.JSON)
+                .shouldFailOnError(true)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,162 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Scores masking against a SyntheticCorpus's ground truth.
+ * For AdvancedPDFMasker the check is geometric: a value counts as found when a
+ * located bound on its page overlaps it vertically and spans at least
+ * MIN_WIDTH_COVERAGE of its width, and a bound counts as correct when it
+ * overlaps any value. FieldBasedPDFMasker re-renders text, so there a value
+ * counts as masked when it no longer occurs in the output document's text.
+ */
+final class CorpusAccuracy {
+
+    static final double MIN_WIDTH_COVERAGE = 0.9;
+
+    /**
+     * Values found out of the ground truth, and located bounds that hit a value out of all located
+     */
+    static final class Score {
+        private int values;
+        private int found;
+        private int located;
+        private int correct;
+
+        double recall() {
+            return values == 0 ? 1 : (double) found / values;
+        }
+
+        /**
+         * Share of located bounds that cover a value; 1 when nothing was located or it was not measured
+         */
+        double precision() {
+            return located == 0 ? 1 : (double) correct / located;
+        }
+
+        int getValues() { return values; }
+        int getFound() { return found; }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d/%d values found (recall %.4f), %d/%d bounds on a value (precision %.4f)",
+                    found, values, recall(), correct, located, precision());
+        }
+    }
+
+    static Score scoreOverlay(AdvancedPDFMasker masker, List<Path> documents, List<SyntheticCorpus.Truth> truth) throws IOException {
+        Map<String, List<SyntheticCorpus.Truth>> byDocument = byDocument(truth);
+        Score score = new Score();
+        for (Path path : documents) {
+            List<SyntheticCorpus.Truth> values = byDocument.getOrDefault(path.getFileName().toString(), Collections.emptyList());
+            Map<Integer, List<Rectangle2D.Float>> located;
+            try (PDDocument document = DocumentLoader.DEFAULT.load(path.toFile())) {
+                located = masker.locateFieldBounds(document, AdvancedPDFMasker.supportedFields());
+            }
+            score.values += values.size();
+            for (SyntheticCorpus.Truth value : values) {
+                if (covered(value.bounds, located.getOrDefault(value.page, Collections.emptyList()))) {
+                    score.found++;
+                }
+            }
+            for (Map.Entry<Integer, List<Rectangle2D.Float>> page : located.entrySet()) {
+                for (Rectangle2D.Float bound : page.getValue()) {
+                    score.located++;
+                    if (hitsValue(bound, page.getKey(), values)) {
+                        score.correct++;
+                    }
+                }
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Mask every document with maskPDFByFieldNamesPerPage into the output directory and look for surviving values
+     */
+    static Score scoreFieldBased(FieldBasedPDFMasker masker, List<Path> documents, List<SyntheticCorpus.Truth> truth,
+                                 Path outputDirectory) throws IOException {
+        Map<String, List<SyntheticCorpus.Truth>> byDocument = byDocument(truth);
+        List<String> fields = Arrays.asList("name", "email", "phone", "ssn", "address", "dob");
+        Files.createDirectories(outputDirectory);
+        Score score = new Score();
+        for (Path path : documents) {
+            List<SyntheticCorpus.Truth> values = byDocument.getOrDefault(path.getFileName().toString(), Collections.emptyList());
+            Path output = outputDirectory.resolve(path.getFileName());
+            masker.maskPDFByFieldNamesPerPage(path.toString(), output.toString(), fields);
+            String text;
+            try (PDDocument document = DocumentLoader.DEFAULT.load(output.toFile())) {
+                text = new PDFTextStripper().getText(document);
+            }
+            score.values += values.size();
+            for (SyntheticCorpus.Truth value : values) {
+                if (!text.contains(value.value)) {
+                    score.found++;
+                }
+            }
+        }
+        return score;
+    }
+
+    private static Map<String, List<SyntheticCorpus.Truth>> byDocument(List<SyntheticCorpus.Truth> truth) {
+        Map<String, List<SyntheticCorpus.Truth>> byDocument = new HashMap<>();
+        for (SyntheticCorpus.Truth value : truth) {
+            byDocument.computeIfAbsent(value.document, k -> new ArrayList<>()).add(value);
+        }
+        return byDocument;
+    }
+
+    // Widths of the bounds that overlap the value vertically, clipped to it; bounds on one line do not overlap each other
+    private static boolean covered(Rectangle2D.Float value, List<Rectangle2D.Float> bounds) {
+        double width = 0;
+        for (Rectangle2D.Float bound : bounds) {
+            if (overlapsVertically(value, bound)) {
+                width += Math.max(0, Math.min(value.getMaxX(), bound.getMaxX()) - Math.max(value.getMinX(), bound.getMinX()));
+            }
+        }
+        return width >= value.width * MIN_WIDTH_COVERAGE;
+    }
+
+    private static boolean hitsValue(Rectangle2D.Float bound, int page, List<SyntheticCorpus.Truth> values) {
+        for (SyntheticCorpus.Truth value : values) {
+            if (value.page == page && overlapsVertically(value.bounds, bound)
+                    && bound.getMinX() < value.bounds.getMaxX() && value.bounds.getMinX() < bound.getMaxX()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean overlapsVertically(Rectangle2D.Float a, Rectangle2D.Float b) {
+        return a.getMinY() < b.getMaxY() && b.getMinY() < a.getMaxY();
+    }
+
+    /**
+     * Usage: CorpusAccuracy &lt;corpus dir&gt; [masked output dir]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: CorpusAccuracy <corpus dir> [masked output dir]");
+            System.exit(1);
+        }
+        MaskingLog.setDetail(LogDetail.QUIET);
+        Path directory = Paths.get(args[0]);
+        List<Path> documents = SyntheticCorpus.readDocuments(directory);
+        List<SyntheticCorpus.Truth> truth = SyntheticCorpus.readTruth(directory);
+
+        System.out.println("AdvancedPDFMasker:   " + scoreOverlay(new AdvancedPDFMasker(), documents, truth));
+        if (args.length > 1) {
+            Score fieldBased = scoreFieldBased(new FieldBasedPDFMasker(), documents, truth, Paths.get(args[1]));
+            System.out.println(String.format(Locale.ROOT, "FieldBasedPDFMasker: %d/%d values masked (%.4f)",
+                    fieldBased.getFound(), fieldBased.getValues(), fieldBased.recall()));
+        }
+    }
+}
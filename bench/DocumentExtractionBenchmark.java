@@ -0,0 +1,84 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-page extraction overhead: a fresh UltraPreciseTextStripper and getText call
+ * per page against one startPage/endPage-driven pass over the whole document.
+ * With no fields requested the analysis is empty, so the difference is the
+ * per-page stripper setup and document walk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentExtractionBenchmark {
+
+    @Param({"10", "100"})
+    public int pages;
+
+    @Param({"none", "all"})
+    public String fields;
+
+    private PDDocument document;
+    private AdvancedPDFMasker masker;
+    private Set<String> fieldsToMask;
+
+    @Setup
+    public void setUp() throws IOException {
+        document = buildDocument(new Random(42), pages, 40);
+        masker = new AdvancedPDFMasker();
+        fieldsToMask = fields.equals("all")
+                ? new HashSet<>(Arrays.asList("Name:", "Email:", "Phone:", "SSN:", "Address:", "DOB:"))
+                : Collections.emptySet();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        document.close();
+    }
+
+    @Benchmark
+    public int stripperPerPage() throws IOException {
+        return masker.locateFields(document, fieldsToMask, false);
+    }
+
+    @Benchmark
+    public int singlePass() throws IOException {
+        return masker.locateFields(document, fieldsToMask, true);
+    }
+
+    static PDDocument buildDocument(Random random, int pages, int linesPerPage) throws IOException {
+        String[] lines = {"Name: John Smith", "Email: john.smith@example.com", "Phone: 555-123-4567",
+                "SSN: 123-45-6789", "Address: 12 High Street, Leeds", "DOB: 01/02/1980",
+                "Balance brought forward 1,204.55", "Transaction reference 0091827364 posted"};
+        PDDocument document = new PDDocument();
+        PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+        for (int p = 0; p < pages; p++) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.beginText();
+                content.setFont(font, 11);
+                content.newLineAtOffset(50, 740);
+                for (int i = 0; i < linesPerPage; i++) {
+                    content.showText(lines[random.nextInt(lines.length)]);
+                    content.newLineAtOffset(0, -17);
+                }
+                content.endText();
+            }
+        }
+        return document;
+    }
+}
@@ -0,0 +1,97 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-page analysis on glyph-dense pages: three columns of text at most 6pt, about
+ * 5k glyphs at 80 lines per column. The page is extracted once per trial; each
+ * call re-runs field analysis (label scan, regexes, bounds strategy chain) or one
+ * lookup against the page's cached glyph streams.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FieldAnalysisBenchmark {
+
+    @Param({"40", "80", "120"})
+    public int linesPerColumn;
+
+    private PDDocument document;
+    private AdvancedPDFMasker.ExtractedPage page;
+    private String lastValue;
+    private String missingValue;
+
+    @Setup
+    public void setUp() throws IOException {
+        MaskingLog.setDetail(LogDetail.QUIET);
+        document = buildDensePage(new Random(42), linesPerColumn);
+        AdvancedPDFMasker masker = new AdvancedPDFMasker();
+        page = masker.extractPage(document, 0, AdvancedPDFMasker.supportedFields());
+        // Worst case for a sequence search: the value sits at the end of the page
+        lastValue = "Zoe Q. Lastline";
+        missingValue = "Nobody Onthispage";
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        document.close();
+    }
+
+    @Benchmark
+    public int analyzeAndIdentifyFields() {
+        return page.analyze();
+    }
+
+    @Benchmark
+    public boolean findBoundsByCharacterSequence() {
+        return page.findBoundsByCharacterSequence(lastValue);
+    }
+
+    @Benchmark
+    public int findTextSequenceHit() {
+        return page.findTextSequence(lastValue);
+    }
+
+    @Benchmark
+    public int findTextSequenceMiss() {
+        return page.findTextSequence(missingValue);
+    }
+
+    static PDDocument buildDensePage(Random random, int linesPerColumn) throws IOException {
+        String[] lines = {"Name: John Smith", "Email: j.smith@example.com", "Phone: 555-123-4567",
+                "SSN: 123-45-6789", "Address: 12 High Street, Leeds", "DOB: 01/02/1980",
+                "Balance 1,204.55 fwd", "Ref 0091827364 posted"};
+        PDDocument document = new PDDocument();
+        PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+        PDPage page = new PDPage();
+        document.addPage(page);
+        float leading = 740f / linesPerColumn;
+        float fontSize = Math.min(6f, leading * 0.9f);
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            for (int column = 0; column < 3; column++) {
+                content.beginText();
+                content.setFont(font, fontSize);
+                content.newLineAtOffset(30 + column * 190, 760);
+                for (int i = 0; i < linesPerColumn; i++) {
+                    boolean last = column == 2 && i == linesPerColumn - 1;
+                    content.showText(last ? "Name: Zoe Q. Lastline" : lines[random.nextInt(lines.length)]);
+                    content.newLineAtOffset(0, -leading);
+                }
+                content.endText();
+            }
+        }
+        return document;
+    }
+}
@@ -0,0 +1,62 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Glyph sequence lookup on a 20k-glyph page: the per-page normalized stream with
+ * KMP against the window-by-window re-normalizing search it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GlyphSequenceSearchBenchmark {
+
+    private static final int GLYPHS = 20_000;
+
+    private List<String> glyphs;
+    private String target;
+
+    @Setup
+    public void setUp() {
+        String page = MultiFieldScanBenchmark.buildPage(new Random(42), 1_000);
+        glyphs = new ArrayList<>(GLYPHS);
+        for (int i = 0; glyphs.size() < GLYPHS; i = (i + 1) % page.length()) {
+            glyphs.add(String.valueOf(page.charAt(i)));
+        }
+        // A value near the end of the page, the worst case for a front-to-back search
+        glyphs.addAll(Arrays.asList("J", "a", "n", "e", " ", "Q", "u", "i", "n", "n"));
+        target = "Jane Quinn";
+    }
+
+    @Benchmark
+    public int[] normalizedStreamWithKmp() {
+        NormalizedGlyphStream stream = new NormalizedGlyphStream(glyphs.size(), glyphs::get, true);
+        return stream.find(target);
+    }
+
+    @Benchmark
+    public int naiveWindowSearch() {
+        String normalized = normalizeForMatching(target);
+        for (int i = 0; i <= glyphs.size() - normalized.length(); i++) {
+            StringBuilder current = new StringBuilder();
+            for (int j = i; j < glyphs.size() && current.length() < normalized.length() * 2; j++) {
+                current.append(normalizeForMatching(glyphs.get(j)));
+                if (normalizeForMatching(current.toString()).contains(normalized)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // The per-window normalization the stripper used before
+    private static String normalizeForMatching(String text) {
+        return text.replaceAll("\\s+", "").toLowerCase();
+    }
+}
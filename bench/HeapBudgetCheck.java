@@ -0,0 +1,125 @@
+package org.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that one large document masks inside a small heap: generates a single
+ * SyntheticCorpus file of 10,000 pages, then masks it in a child JVM started with
+ * -Xmx512m for every masking path and memory mode. A child that runs out of heap
+ * exits non-zero, so the check fails rather than reporting a number; each passing
+ * child prints the peak heap it used.
+ * TEMP_FILE and MEMORY_MAPPED run with a 32 MB per-document budget; HEAP_ONLY runs
+ * unbudgeted, as the maskers do by default.
+ *
+ * Usage: HeapBudgetCheck [work dir] [pages] [max heap]
+ * e.g. HeapBudgetCheck target/heap-check 10000 512m
+ * Exit status 0 when every run passed, 1 otherwise.
+ */
+public final class HeapBudgetCheck {
+
+    private static final long BUDGET_BYTES = 32L * 1024 * 1024;
+    private static final String[] PATHS = {"maskPDF", "maskPDFByFieldNamesPerPage", "maskPDFByFieldNames"};
+    private static final long CHILD_TIMEOUT_MINUTES = 30;
+
+    private HeapBudgetCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--child")) {
+            runChild(args[1], MemoryMode.valueOf(args[2]), Paths.get(args[3]), Paths.get(args[4]));
+            return;
+        }
+        Path work = Paths.get(args.length > 0 ? args[0] : "heap-check");
+        int pages = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        String maxHeap = args.length > 2 ? args[2] : "512m";
+
+        Path corpus = work.resolve("corpus");
+        // Reuse a corpus left by an earlier run with the same settings; the manifest starts with them
+        SyntheticCorpus generator = new SyntheticCorpus(pages).withPagesPerDocument(pages);
+        Path manifest = corpus.resolve(SyntheticCorpus.MANIFEST_FILE);
+        List<Path> documents = Files.exists(manifest) && Files.readAllLines(manifest).get(0).contains(generator.toString())
+                ? SyntheticCorpus.readDocuments(corpus) : generator.write(corpus);
+        Path input = documents.get(0);
+        System.out.println("Input: " + input + " (" + pages + " pages, " + (Files.size(input) >> 20) + " MB), heap -Xmx" + maxHeap);
+
+        int failures = 0;
+        for (String path : PATHS) {
+            for (MemoryMode mode : MemoryMode.values()) {
+                Path output = work.resolve(path + "-" + mode + ".pdf");
+                if (!runInChildJvm(maxHeap, path, mode, input, output)) {
+                    failures++;
+                }
+                Files.deleteIfExists(output);
+            }
+        }
+        System.out.println(failures == 0 ? "All runs fit in -Xmx" + maxHeap : failures + " run(s) failed");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static boolean runInChildJvm(String maxHeap, String path, MemoryMode mode, Path input, Path output)
+            throws IOException, InterruptedException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = Arrays.asList(java, "-Xmx" + maxHeap, "-XX:+ExitOnOutOfMemoryError",
+                "-cp", System.getProperty("java.class.path"), HeapBudgetCheck.class.getName(),
+                "--child", path, mode.name(), input.toString(), output.toString());
+        Process child = new ProcessBuilder(command).inheritIO().start();
+        if (!child.waitFor(CHILD_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+            child.destroyForcibly();
+            System.out.println(String.format("%-28s %-13s TIMED OUT", path, mode));
+            return false;
+        }
+        if (child.exitValue() != 0) {
+            System.out.println(String.format("%-28s %-13s FAILED (exit %d)", path, mode, child.exitValue()));
+            return false;
+        }
+        return true;
+    }
+
+    private static void runChild(String path, MemoryMode mode, Path input, Path output) throws IOException {
+        MaskingLog.setDetail(LogDetail.QUIET);
+        long budget = mode == MemoryMode.HEAP_ONLY ? 0 : BUDGET_BYTES;
+        long start = System.nanoTime();
+        if (path.equals("maskPDF")) {
+            AdvancedPDFMasker masker = new AdvancedPDFMasker();
+            masker.setMemoryMode(mode);
+            masker.setMemoryBudgetBytes(budget);
+            masker.maskPDF(PdfSource.of(input), PdfTarget.of(output), AdvancedPDFMasker.supportedFields());
+        } else {
+            FieldBasedPDFMasker masker = new FieldBasedPDFMasker();
+            masker.setMemoryMode(mode);
+            masker.setMemoryBudgetBytes(budget);
+            List<String> fields = Arrays.asList("name", "email", "address", "dob");
+            if (path.equals("maskPDFByFieldNamesPerPage")) {
+                masker.maskPDFByFieldNamesPerPage(PdfSource.of(input), PdfTarget.of(output), fields);
+            } else {
+                masker.maskPDFByFieldNames(PdfSource.of(input), PdfTarget.of(output), fields);
+            }
+        }
+        File written = output.toFile();
+        if (!written.isFile() || written.length() == 0) {
+            throw new IOException("No output written to " + output);
+        }
+        System.out.println(String.format("%-28s %-13s OK  %6.1f s  peak heap %4d MB",
+                path, mode, (System.nanoTime() - start) / 1e9, peakHeapBytes() >> 20));
+    }
+
+    // Sum of the heap pools' peaks; pools peak at different moments, so this over-states the true peak
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
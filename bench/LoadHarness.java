@@ -0,0 +1,430 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end load driver: masks the documents of a corpus through maskPDF and
+ * maskPDFByFieldNamesPerPage on a fixed number of threads, first for a warm-up
+ * period whose results are discarded and then for a measured one.
+ * Each run reports pages and documents per second, per-document latency
+ * percentiles, GC time and the process's peak RSS, and all runs are written to
+ * a properties report. Peak RSS is a process-wide high-water mark and heap
+ * committed by one path stays resident, so with more than one path each path
+ * runs in its own child JVM, started with this JVM's options. Given a baseline report, every gated metric that is worse
+ * than the baseline by more than the threshold is listed and the exit status is 2.
+ * Latencies are kept as exact samples: LatencyHistogram's 12.5% buckets are
+ * coarser than the 10% a baseline comparison has to resolve.
+ *
+ * Usage: LoadHarness &lt;corpus dir&gt; [--paths advanced,perpage] [--concurrency N] [--warmup S]
+ *        [--duration S] [--pages N] [--report file] [--baseline file] [--threshold 0.10]
+ * A corpus directory without a manifest is first filled by SyntheticCorpus with --pages pages.
+ */
+public final class LoadHarness {
+
+    static final double DEFAULT_THRESHOLD = 0.10;
+
+    // Higher is better for throughput, lower for the rest; p999 and GC time are too noisy to gate on
+    private static final String[] HIGHER_IS_BETTER = {"pagesPerSecond", "documentsPerSecond"};
+    private static final String[] LOWER_IS_BETTER = {"p50Millis", "p99Millis", "peakRssKb"};
+
+    private final Map<String, BatchMasker.DocumentMasker> paths;
+    private final List<Path> documents;
+    private final int[] pageCounts;
+    private final Path outputDirectory;
+    private final int concurrency;
+
+    LoadHarness(Map<String, BatchMasker.DocumentMasker> paths, List<Path> documents, Path outputDirectory,
+                int concurrency) throws IOException {
+        if (documents.isEmpty() || concurrency < 1) {
+            throw new IllegalArgumentException("Need at least one document and one thread");
+        }
+        this.paths = paths;
+        this.documents = documents;
+        this.outputDirectory = outputDirectory;
+        this.concurrency = concurrency;
+        this.pageCounts = new int[documents.size()];
+        for (int i = 0; i < documents.size(); i++) {
+            try (PDDocument document = DocumentLoader.DEFAULT.load(documents.get(i).toFile())) {
+                pageCounts[i] = document.getNumberOfPages();
+            }
+        }
+    }
+
+    /**
+     * Outcome of one measured run of one masking path
+     */
+    static final class RunResult {
+        final String path;
+        final long documents;
+        final long pages;
+        final long elapsedNanos;
+        final long[] latencies; // sorted nanoseconds, one per document
+        final long gcMillis;
+        final long gcCount;
+        final long peakRssKb;
+
+        RunResult(String path, long documents, long pages, long elapsedNanos, long[] latencies,
+                  long gcMillis, long gcCount, long peakRssKb) {
+            this.path = path;
+            this.documents = documents;
+            this.pages = pages;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies;
+            this.gcMillis = gcMillis;
+            this.gcCount = gcCount;
+            this.peakRssKb = peakRssKb;
+        }
+
+        double pagesPerSecond() {
+            return pages * 1e9 / elapsedNanos;
+        }
+
+        double documentsPerSecond() {
+            return documents * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Nearest-rank quantile (0..1) of the document latencies, in milliseconds
+         */
+        double latencyMillis(double quantile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(quantile * latencies.length);
+            return latencies[Math.max(0, Math.min(latencies.length - 1, rank - 1))] / 1e6;
+        }
+
+        void store(Properties report) {
+            put(report, "documents", documents);
+            put(report, "pages", pages);
+            put(report, "elapsedSeconds", elapsedNanos / 1e9);
+            put(report, "pagesPerSecond", pagesPerSecond());
+            put(report, "documentsPerSecond", documentsPerSecond());
+            put(report, "p50Millis", latencyMillis(0.50));
+            put(report, "p99Millis", latencyMillis(0.99));
+            put(report, "p999Millis", latencyMillis(0.999));
+            put(report, "maxMillis", latencyMillis(1));
+            put(report, "gcMillis", gcMillis);
+            put(report, "gcCount", gcCount);
+            put(report, "peakRssKb", peakRssKb);
+        }
+
+        private void put(Properties report, String key, Object value) {
+            report.setProperty(path + "." + key, value instanceof Double
+                    ? String.format(Locale.ROOT, "%.3f", (Double) value) : String.valueOf(value));
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s: %d docs, %d pages in %.1f s, %.1f pages/s, %.2f docs/s,"
+                            + " p50 %.1f ms, p99 %.1f ms, p999 %.1f ms, GC %d ms (%d), peak RSS %d MB",
+                    path, documents, pages, elapsedNanos / 1e9, pagesPerSecond(), documentsPerSecond(),
+                    latencyMillis(0.50), latencyMillis(0.99), latencyMillis(0.999), gcMillis, gcCount,
+                    peakRssKb < 0 ? -1 : peakRssKb / 1024);
+        }
+    }
+
+    /**
+     * Warm up, then measure, every path in turn
+     */
+    List<RunResult> run(long warmupNanos, long durationNanos) throws IOException, InterruptedException {
+        List<RunResult> results = new ArrayList<>();
+        for (Map.Entry<String, BatchMasker.DocumentMasker> entry : paths.entrySet()) {
+            drive(entry.getKey(), entry.getValue(), warmupNanos);
+            resetPeakRss();
+            results.add(drive(entry.getKey(), entry.getValue(), durationNanos));
+        }
+        return results;
+    }
+
+    private RunResult drive(String name, BatchMasker.DocumentMasker masker, long durationNanos)
+            throws IOException, InterruptedException {
+        Files.createDirectories(outputDirectory);
+        AtomicInteger next = new AtomicInteger();
+        long[][] samples = new long[concurrency][];
+        int[] sampleCounts = new int[concurrency];
+        long[] pages = new long[concurrency];
+
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "load-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long gcMillis = gcMillis();
+        long gcCount = gcCount();
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        List<Future<?>> workers = new ArrayList<>();
+        for (int w = 0; w < concurrency; w++) {
+            int worker = w;
+            workers.add(pool.submit(() -> {
+                long[] latencies = new long[256];
+                int count = 0;
+                File output = outputDirectory.resolve(name + "-" + worker + ".pdf").toFile();
+                // A document that starts before the deadline is finished and counted
+                while (System.nanoTime() < deadline) {
+                    int index = next.getAndIncrement() % documents.size();
+                    long documentStart = System.nanoTime();
+                    masker.mask(documents.get(index).toFile(), output);
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - documentStart;
+                    pages[worker] += pageCounts[index];
+                }
+                samples[worker] = latencies;
+                sampleCounts[worker] = count;
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("Masking failed during the " + name + " run", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long[] latencies = new long[Arrays.stream(sampleCounts).sum()];
+        long totalPages = 0;
+        int offset = 0;
+        for (int w = 0; w < concurrency; w++) {
+            System.arraycopy(samples[w], 0, latencies, offset, sampleCounts[w]);
+            offset += sampleCounts[w];
+            totalPages += pages[w];
+        }
+        Arrays.sort(latencies);
+        return new RunResult(name, latencies.length, totalPages, elapsed, latencies,
+                gcMillis() - gcMillis, gcCount() - gcCount, peakRssKb());
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    /**
+     * High-water mark of the resident set since the process started or the last resetPeakRss,
+     * from /proc; -1 where there is no /proc
+     */
+    static long peakRssKb() {
+        Path status = Paths.get("/proc/self/status");
+        if (!Files.isReadable(status)) {
+            return -1;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(status)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.substring(6).trim().split("\\s+")[0]);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Restart the high-water mark from the current resident set, where /proc/self/clear_refs allows it
+     */
+    static void resetPeakRss() {
+        Path clearRefs = Paths.get("/proc/self/clear_refs");
+        if (Files.isWritable(clearRefs)) {
+            try {
+                Files.write(clearRefs, "5".getBytes(StandardCharsets.US_ASCII));
+            } catch (IOException e) {
+                // Kernel without the reset; the mark then covers the warm-up too
+            }
+        }
+    }
+
+    /**
+     * Run one path in a child JVM with the same options and return the report it wrote
+     */
+    private static Properties runInChildJvm(Path corpus, Map<String, String> options, String path)
+            throws IOException, InterruptedException {
+        Path childReport = Files.createTempFile("load-report-" + path, ".properties");
+        try {
+            String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+            List<String> command = new ArrayList<>();
+            command.add(java);
+            command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+            command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"),
+                    LoadHarness.class.getName(), corpus.toString()));
+            Map<String, String> childOptions = new LinkedHashMap<>(options);
+            childOptions.remove("baseline"); // Gated here, on the merged report
+            childOptions.put("paths", path);
+            childOptions.put("report", childReport.toString());
+            childOptions.forEach((option, value) -> {
+                command.add("--" + option);
+                command.add(value);
+            });
+            Process child = new ProcessBuilder(command).inheritIO().start();
+            int exit = child.waitFor();
+            if (exit != 0) {
+                throw new IOException("The " + path + " run failed (exit " + exit + ")");
+            }
+            Properties report = new Properties();
+            try (Reader reader = Files.newBufferedReader(childReport)) {
+                report.load(reader);
+            }
+            return report;
+        } finally {
+            Files.deleteIfExists(childReport);
+        }
+    }
+
+    /**
+     * Gated metrics of the report that are worse than the baseline by more than the threshold;
+     * metrics missing from either side are skipped
+     */
+    static List<String> regressions(Properties report, Properties baseline, double threshold) {
+        List<String> regressions = new ArrayList<>();
+        for (String key : new TreeSet<>(report.stringPropertyNames())) {
+            String metric = key.substring(key.lastIndexOf('.') + 1);
+            boolean higherIsBetter = Arrays.asList(HIGHER_IS_BETTER).contains(metric);
+            if (!higherIsBetter && !Arrays.asList(LOWER_IS_BETTER).contains(metric)
+                    || baseline.getProperty(key) == null) {
+                continue;
+            }
+            double current = Double.parseDouble(report.getProperty(key));
+            double previous = Double.parseDouble(baseline.getProperty(key));
+            if (previous <= 0 || current < 0) {
+                continue; // Not measured on one side
+            }
+            double change = (current - previous) / previous;
+            if (higherIsBetter ? change < -threshold : change > threshold) {
+                regressions.add(String.format(Locale.ROOT, "%s: %.3f -> %.3f (%+.1f%%)",
+                        key, previous, current, change * 100));
+            }
+        }
+        return regressions;
+    }
+
+    private static void measure(String path, Path corpus, int concurrency, long warmup, long duration,
+                                Properties report) throws IOException, InterruptedException {
+        Map<String, BatchMasker.DocumentMasker> paths = new LinkedHashMap<>();
+        switch (path) {
+            case "advanced":
+                paths.put("advanced", BatchMasker.advanced(new AdvancedPDFMasker(), AdvancedPDFMasker.supportedFields()));
+                break;
+            case "perpage":
+                paths.put("perpage", BatchMasker.fieldBased(new FieldBasedPDFMasker(),
+                        Arrays.asList("name", "email", "phone", "ssn", "address", "dob")));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown path: " + path + " (expected advanced or perpage)");
+        }
+
+        Path outputDirectory = Files.createTempDirectory("load-harness");
+        LoadHarness harness = new LoadHarness(paths, SyntheticCorpus.readDocuments(corpus), outputDirectory, concurrency);
+        try {
+            for (RunResult result : harness.run(warmup, duration)) {
+                System.out.println(result);
+                result.store(report);
+            }
+        } finally {
+            try (Stream<Path> outputs = Files.list(outputDirectory)) {
+                for (Path output : (Iterable<Path>) outputs::iterator) {
+                    Files.deleteIfExists(output);
+                }
+            }
+            Files.deleteIfExists(outputDirectory);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: LoadHarness <corpus dir> [--paths advanced,perpage] [--concurrency N]"
+                    + " [--warmup S] [--duration S] [--pages N] [--report file] [--baseline file] [--threshold 0.10]");
+            System.exit(1);
+        }
+        Path corpus = Paths.get(args[0]);
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        long warmup = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("warmup", "30")));
+        long duration = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "120")));
+        Path reportFile = Paths.get(options.getOrDefault("report", "load-report.properties"));
+        double threshold = Double.parseDouble(options.getOrDefault("threshold", String.valueOf(DEFAULT_THRESHOLD)));
+
+        MaskingLog.setDetail(LogDetail.QUIET);
+        if (!Files.exists(corpus.resolve(SyntheticCorpus.MANIFEST_FILE))) {
+            new SyntheticCorpus(Integer.parseInt(options.getOrDefault("pages", "100"))).write(corpus);
+        }
+
+        String[] pathNames = options.getOrDefault("paths", "advanced,perpage").split(",");
+        Properties report = new Properties();
+        report.setProperty("concurrency", String.valueOf(concurrency));
+        report.setProperty("warmupSeconds", String.valueOf(TimeUnit.NANOSECONDS.toSeconds(warmup)));
+        report.setProperty("durationSeconds", String.valueOf(TimeUnit.NANOSECONDS.toSeconds(duration)));
+        report.setProperty("corpus", corpus.toAbsolutePath().toString());
+        if (pathNames.length > 1) {
+            for (String path : pathNames) {
+                report.putAll(runInChildJvm(corpus, options, path.trim()));
+            }
+        } else {
+            measure(pathNames[0].trim(), corpus, concurrency, warmup, duration, report);
+        }
+
+        if (reportFile.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(reportFile.toAbsolutePath().getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(reportFile)) {
+            report.store(writer, "LoadHarness report");
+        }
+        System.out.println("Report written to " + reportFile);
+
+        String baselineFile = options.get("baseline");
+        if (baselineFile != null) {
+            Properties baseline = new Properties();
+            try (Reader reader = Files.newBufferedReader(Paths.get(baselineFile))) {
+                baseline.load(reader);
+            }
+            List<String> regressions = regressions(report, baseline, threshold);
+            if (!regressions.isEmpty()) {
+                System.err.println("Regressed by more than " + Math.round(threshold * 100) + "% against " + baselineFile + ":");
+                regressions.forEach(regression -> System.err.println("  " + regression));
+                System.exit(2);
+            }
+            System.out.println("No regression beyond " + Math.round(threshold * 100) + "% against " + baselineFile);
+        }
+    }
+}
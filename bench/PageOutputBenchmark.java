@@ -0,0 +1,76 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and output bytes per page for the masking modes that write pages: the
+ * overlay masker and the field-based per-page re-renderer. Output size per page
+ * is printed at the end of each trial, since JMH only reports time.
+ * resourceCacheMegabytes = 0 is PDFBox's own per-document resource cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageOutputBenchmark {
+
+    @Param({"200"})
+    public int pages;
+
+    @Param({"advanced", "fieldBased"})
+    public String masker;
+
+    @Param({"0", "32"})
+    public int resourceCacheMegabytes;
+
+    private byte[] input;
+    private AdvancedPDFMasker advancedMasker;
+    private FieldBasedPDFMasker fieldBasedMasker;
+    private Set<String> advancedFields;
+    private List<String> fieldBasedFields;
+    private long outputBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PDDocument document = DocumentExtractionBenchmark.buildDocument(new Random(42), pages, 40)) {
+            document.save(bytes);
+        }
+        input = bytes.toByteArray();
+        advancedMasker = new AdvancedPDFMasker();
+        advancedMasker.setResourceCacheBytes((long) resourceCacheMegabytes << 20);
+        fieldBasedMasker = new FieldBasedPDFMasker();
+        fieldBasedMasker.setResourceCacheBytes((long) resourceCacheMegabytes << 20);
+        advancedFields = new HashSet<>(Arrays.asList("Name:", "Email:", "Phone:", "SSN:", "Address:", "DOB:"));
+        fieldBasedFields = Arrays.asList("Name", "Email", "Phone");
+
+        // Keep the per-document summary lines out of the measurement
+        MaskingLog.setDetail(LogDetail.QUIET);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%n%s: %d output bytes, %.0f bytes/page%n", masker, outputBytes, (double) outputBytes / pages);
+    }
+
+    @Benchmark
+    public long maskDocument() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(input.length * 4);
+        if (masker.equals("advanced")) {
+            advancedMasker.maskPDF(new ByteArrayInputStream(input), output, advancedFields);
+        } else {
+            fieldBasedMasker.maskPDFByFieldNamesPerPage(new ByteArrayInputStream(input), output, fieldBasedFields);
+        }
+        outputBytes = output.size();
+        return outputBytes;
+    }
+}
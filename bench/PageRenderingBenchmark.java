@@ -0,0 +1,113 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Page writing: the field-based masker's wrapText and addLinesToPage, and the
+ * overlay masker's applyUltraPreciseMasking with and without mask glyphs. The
+ * benchmarks that write a page take a PageTarget, a fresh page of a fresh document
+ * per invocation, so content streams do not grow across calls; its creation is part
+ * of their measured time. wrapText writes no page and runs on trial-scoped state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageRenderingBenchmark {
+
+    private FieldBasedPDFMasker fieldBasedMasker;
+    private List<String> lines;
+    private String longLine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MaskingLog.setDetail(LogDetail.QUIET);
+        fieldBasedMasker = new FieldBasedPDFMasker();
+        lines = Arrays.asList(MultiFieldScanBenchmark.buildPage(new Random(42), 45).split("\n"));
+        StringBuilder line = new StringBuilder();
+        while (line.length() < 400) {
+            line.append(lines.get(line.length() % lines.size())).append(' ');
+        }
+        longLine = line.toString();
+    }
+
+    /**
+     * A fresh one-page document for every invocation
+     */
+    @State(Scope.Thread)
+    public static class PageTarget {
+        PDDocument document;
+        DocumentResources resources;
+        PDPage page;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            document = new PDDocument();
+            resources = new DocumentResources(document);
+            page = resources.addPage(PDRectangle.A4);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws IOException {
+            document.close();
+        }
+    }
+
+    /**
+     * A page extracted and analyzed once, masked in the given style
+     */
+    @State(Scope.Thread)
+    public static class AnalyzedPage {
+        @Param({"RECTANGLES_AND_GLYPHS", "RECTANGLES_ONLY"})
+        public MaskStyle maskStyle;
+
+        private PDDocument source;
+        AdvancedPDFMasker.ExtractedPage page;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            MaskingLog.setDetail(LogDetail.QUIET);
+            AdvancedPDFMasker masker = new AdvancedPDFMasker();
+            masker.setMaskStyle(maskStyle);
+            source = DocumentExtractionBenchmark.buildDocument(new Random(42), 1, 40);
+            page = masker.extractPage(source, 0, AdvancedPDFMasker.supportedFields());
+            page.analyze();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            source.close();
+        }
+    }
+
+    @Benchmark
+    public String[] wrapText() {
+        return fieldBasedMasker.wrapText(longLine, 80);
+    }
+
+    @Benchmark
+    public PDPage addLinesToPage(PageTarget target) throws IOException {
+        try (PDPageContentStream content = new PDPageContentStream(target.document, target.page)) {
+            fieldBasedMasker.addLinesToPage(content, lines, target.page,
+                    target.resources.font(Standard14Fonts.FontName.HELVETICA));
+        }
+        return target.page;
+    }
+
+    @Benchmark
+    public PDPage applyUltraPreciseMasking(PageTarget target, AnalyzedPage analyzed) throws IOException {
+        analyzed.page.applyMasking(target.resources, target.page);
+        return target.page;
+    }
+}
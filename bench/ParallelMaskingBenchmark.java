@@ -0,0 +1,64 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end maskPDF on one document with 1 to 32 page workers.
+ * threads = 1 is the sequential path; higher counts fork-join page analysis
+ * across per-worker document handles while the calling thread writes pages in order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelMaskingBenchmark {
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    public int threads;
+
+    @Param({"200"})
+    public int pages;
+
+    @Param({"none", "all"})
+    public String fields;
+
+    private File input;
+    private File output;
+    private AdvancedPDFMasker masker;
+    private Set<String> fieldsToMask;
+
+    @Setup
+    public void setUp() throws IOException {
+        input = File.createTempFile("parallel-masking-in", ".pdf");
+        output = File.createTempFile("parallel-masking-out", ".pdf");
+        try (PDDocument document = DocumentExtractionBenchmark.buildDocument(new Random(42), pages, 40)) {
+            document.save(input);
+        }
+        masker = new AdvancedPDFMasker();
+        masker.setParallelism(threads);
+        fieldsToMask = fields.equals("all")
+                ? new HashSet<>(Arrays.asList("Name:", "Email:", "Phone:", "SSN:", "Address:", "DOB:"))
+                : Collections.emptySet();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(input.toPath());
+        Files.deleteIfExists(output.toPath());
+    }
+
+    @Benchmark
+    public long maskDocument() throws IOException {
+        masker.maskPDF(input.getPath(), output.getPath(), fieldsToMask);
+        return output.length();
+    }
+}
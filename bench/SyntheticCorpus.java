@@ -0,0 +1,383 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.util.Matrix;
+
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Seeded generator of test PDFs with a ground-truth file giving the page and
+ * user-space box of every sensitive value it wrote.
+ * Pages hold one to three columns of text lines; each line is a label/value pair
+ * for one of the fields AdvancedPDFMasker supports, with probability fieldDensity,
+ * or filler words otherwise. Glyph density follows from linesPerColumn and columns.
+ * A share of pages carries only an image, so it has no text to extract. Large
+ * corpora are split into documents of pagesPerDocument pages, each written and
+ * closed before the next starts, with temp-file stream caches, so 100k pages
+ * need no more heap than one document. The same settings and seed always give
+ * the same pages and ground truth. Immutable; the with* methods return modified copies.
+ */
+final class SyntheticCorpus {
+
+    static final String TRUTH_FILE = "ground-truth.csv";
+    static final String MANIFEST_FILE = "manifest.txt";
+
+    private static final PDRectangle PAGE_SIZE = PDRectangle.LETTER;
+    private static final float MARGIN = 40;
+    private static final float GUTTER = 20;
+    private static final float MAX_FONT_SIZE = 11;
+
+    private static final String[] FIELDS = {"Name:", "Email:", "Phone:", "SSN:", "Address:", "DOB:"};
+    private static final Standard14Fonts.FontName[] FONTS = {
+            Standard14Fonts.FontName.HELVETICA, Standard14Fonts.FontName.TIMES_ROMAN,
+            Standard14Fonts.FontName.COURIER, Standard14Fonts.FontName.HELVETICA_BOLD};
+
+    private static final String[] FIRST_NAMES = {"John", "Maria", "Wei", "Aisha", "Pavel", "Grace", "Tomas", "Priya"};
+    private static final String[] LAST_NAMES = {"Smith", "Garcia", "Chen", "Okafor", "Novak", "Hughes", "Silva", "Patel"};
+    private static final String[] STREETS = {"High Street", "Mill Lane", "Park Road", "Church Way", "Station Road"};
+    private static final String[] TOWNS = {"Leeds", "Bristol", "York", "Derby", "Bath"};
+    private static final String[] DOMAINS = {"example.com", "mail.example.org", "test.example.net"};
+    private static final String[] WORDS = {"balance", "brought", "forward", "transaction", "reference", "posted",
+            "account", "statement", "period", "total", "interest", "charges", "summary", "opening", "closing",
+            "credit", "debit", "payment", "received", "schedule", "policy", "renewal", "premium", "claim"};
+
+    private final long seed;
+    private final int pages;
+    private final int pagesPerDocument;
+    private final int linesPerColumn;
+    private final int columns;
+    private final double fieldDensity;
+    private final boolean mixedFonts;
+    private final double imagePageRatio;
+
+    SyntheticCorpus(int pages) {
+        this(42, pages, 100, 40, 1, 0.15, false, 0);
+    }
+
+    private SyntheticCorpus(long seed, int pages, int pagesPerDocument, int linesPerColumn, int columns,
+                            double fieldDensity, boolean mixedFonts, double imagePageRatio) {
+        if (pages < 1 || pagesPerDocument < 1 || linesPerColumn < 1) {
+            throw new IllegalArgumentException("Pages, pages per document and lines per column must be at least 1");
+        }
+        if (columns < 1 || columns > 3) {
+            throw new IllegalArgumentException("Columns must be between 1 and 3: " + columns);
+        }
+        if (fieldDensity < 0 || fieldDensity > 1 || imagePageRatio < 0 || imagePageRatio > 1) {
+            throw new IllegalArgumentException("Field density and image page ratio must be between 0 and 1");
+        }
+        this.seed = seed;
+        this.pages = pages;
+        this.pagesPerDocument = pagesPerDocument;
+        this.linesPerColumn = linesPerColumn;
+        this.columns = columns;
+        this.fieldDensity = fieldDensity;
+        this.mixedFonts = mixedFonts;
+        this.imagePageRatio = imagePageRatio;
+    }
+
+    SyntheticCorpus withSeed(long seed) {
+        return new SyntheticCorpus(seed, pages, pagesPerDocument, linesPerColumn, columns, fieldDensity, mixedFonts, imagePageRatio);
+    }
+
+    SyntheticCorpus withPagesPerDocument(int pagesPerDocument) {
+        return new SyntheticCorpus(seed, pages, pagesPerDocument, linesPerColumn, columns, fieldDensity, mixedFonts, imagePageRatio);
+    }
+
+    SyntheticCorpus withLinesPerColumn(int linesPerColumn) {
+        return new SyntheticCorpus(seed, pages, pagesPerDocument, linesPerColumn, columns, fieldDensity, mixedFonts, imagePageRatio);
+    }
+
+    SyntheticCorpus withColumns(int columns) {
+        return new SyntheticCorpus(seed, pages, pagesPerDocument, linesPerColumn, columns, fieldDensity, mixedFonts, imagePageRatio);
+    }
+
+    /**
+     * Share of text lines that are a label/value pair
+     */
+    SyntheticCorpus withFieldDensity(double fieldDensity) {
+        return new SyntheticCorpus(seed, pages, pagesPerDocument, linesPerColumn, columns, fieldDensity, mixedFonts, imagePageRatio);
+    }
+
+    /**
+     * Pick each line's font from Helvetica, Times, Courier and Helvetica Bold instead of always Helvetica
+     */
+    SyntheticCorpus withMixedFonts(boolean mixedFonts) {
+        return new SyntheticCorpus(seed, pages, pagesPerDocument, linesPerColumn, columns, fieldDensity, mixedFonts, imagePageRatio);
+    }
+
+    /**
+     * Share of pages that carry a single image and no text
+     */
+    SyntheticCorpus withImagePageRatio(double imagePageRatio) {
+        return new SyntheticCorpus(seed, pages, pagesPerDocument, linesPerColumn, columns, fieldDensity, mixedFonts, imagePageRatio);
+    }
+
+    int getPages() { return pages; }
+    int getDocumentCount() { return (pages + pagesPerDocument - 1) / pagesPerDocument; }
+
+    /**
+     * One sensitive value as written: its document, zero-based page and user-space box
+     */
+    static final class Truth {
+        final String document;
+        final int page;
+        final String field;
+        final Rectangle2D.Float bounds;
+        final String value;
+
+        Truth(String document, int page, String field, Rectangle2D.Float bounds, String value) {
+            this.document = document;
+            this.page = page;
+            this.field = field;
+            this.bounds = bounds;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Write the documents, the ground truth and a BatchMasker manifest into the directory;
+     * returns the document paths in order
+     */
+    List<Path> write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Random random = new Random(seed);
+        List<Path> documents = new ArrayList<>();
+        try (BufferedWriter truth = Files.newBufferedWriter(directory.resolve(TRUTH_FILE))) {
+            truth.write("# document,page,field,x,y,width,height,value");
+            truth.newLine();
+            for (int d = 0; d < getDocumentCount(); d++) {
+                String name = String.format("doc-%05d.pdf", d);
+                int documentPages = Math.min(pagesPerDocument, pages - d * pagesPerDocument);
+                writeDocument(directory.resolve(name), d, documentPages, random, name, truth);
+                documents.add(directory.resolve(name));
+            }
+        }
+        List<String> manifest = new ArrayList<>();
+        manifest.add("# " + this);
+        for (Path document : documents) {
+            manifest.add(document.getFileName().toString());
+        }
+        Files.write(directory.resolve(MANIFEST_FILE), manifest);
+        return documents;
+    }
+
+    private void writeDocument(Path output, int documentIndex, int documentPages, Random random,
+                               String name, BufferedWriter truth) throws IOException {
+        try (PDDocument document = DocumentLoader.DEFAULT.withMode(MemoryMode.TEMP_FILE).create()) {
+            // Fixed ID so the same seed gives byte-identical files
+            document.setDocumentId(seed * 31 + documentIndex);
+            DocumentResources resources = new DocumentResources(document);
+            PDImageXObject image = null;
+            for (int p = 0; p < documentPages; p++) {
+                PDPage page = resources.addPage(PAGE_SIZE);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    if (random.nextDouble() < imagePageRatio) {
+                        if (image == null) {
+                            image = LosslessFactory.createFromImage(document, noise(random));
+                        }
+                        content.drawImage(image, MARGIN, MARGIN,
+                                PAGE_SIZE.getWidth() - 2 * MARGIN, PAGE_SIZE.getHeight() - 2 * MARGIN);
+                    } else {
+                        writeTextPage(content, resources, random, name, p, truth);
+                    }
+                }
+            }
+            document.save(output.toFile());
+        }
+    }
+
+    private void writeTextPage(PDPageContentStream content, DocumentResources resources, Random random,
+                               String name, int pageIndex, BufferedWriter truth) throws IOException {
+        float columnWidth = (PAGE_SIZE.getWidth() - 2 * MARGIN - (columns - 1) * GUTTER) / columns;
+        float leading = (PAGE_SIZE.getHeight() - 2 * MARGIN) / linesPerColumn;
+        float lineFontSize = Math.min(MAX_FONT_SIZE, leading / 1.2f);
+
+        content.beginText();
+        for (int column = 0; column < columns; column++) {
+            float x = MARGIN + column * (columnWidth + GUTTER);
+            for (int line = 0; line < linesPerColumn; line++) {
+                float baseline = PAGE_SIZE.getHeight() - MARGIN - lineFontSize - line * leading;
+                PDFont font = resources.font(mixedFonts ? FONTS[random.nextInt(FONTS.length)] : FONTS[0]);
+
+                String label = null;
+                String value = null;
+                String text;
+                if (random.nextDouble() < fieldDensity) {
+                    label = FIELDS[random.nextInt(FIELDS.length)];
+                    value = value(label, random);
+                    text = label + " " + value;
+                } else {
+                    text = filler(font, lineFontSize, columnWidth * (0.6f + 0.4f * random.nextFloat()), random);
+                }
+
+                // Lines too wide for the column are set smaller rather than clipped
+                float textWidth = width(font, text, lineFontSize);
+                float fontSize = textWidth > columnWidth ? lineFontSize * columnWidth / textWidth : lineFontSize;
+                content.setFont(font, fontSize);
+                content.setTextMatrix(Matrix.getTranslateInstance(x, baseline));
+                content.showText(text);
+
+                if (value != null) {
+                    float valueX = x + width(font, label + " ", fontSize);
+                    float bottom = baseline + descent(font) * fontSize;
+                    float top = baseline + ascent(font) * fontSize;
+                    writeTruth(truth, new Truth(name, pageIndex, label,
+                            new Rectangle2D.Float(valueX, bottom, width(font, value, fontSize), top - bottom), value));
+                }
+            }
+        }
+        content.endText();
+    }
+
+    private static String value(String label, Random random) {
+        switch (label) {
+            case "Name:":
+                return pick(FIRST_NAMES, random) + " " + pick(LAST_NAMES, random);
+            case "Email:":
+                return pick(FIRST_NAMES, random).toLowerCase() + "." + pick(LAST_NAMES, random).toLowerCase()
+                        + "@" + pick(DOMAINS, random);
+            case "Phone:":
+                return String.format("%03d-%03d-%04d", 200 + random.nextInt(800), random.nextInt(1000), random.nextInt(10000));
+            case "SSN:":
+                return String.format("%03d-%02d-%04d", 1 + random.nextInt(899), 1 + random.nextInt(99), 1 + random.nextInt(9999));
+            case "Address:":
+                return (1 + random.nextInt(300)) + " " + pick(STREETS, random) + ", " + pick(TOWNS, random);
+            case "DOB:":
+                return String.format("%02d/%02d/%04d", 1 + random.nextInt(28), 1 + random.nextInt(12), 1940 + random.nextInt(70));
+            default:
+                throw new IllegalArgumentException("Unknown field: " + label);
+        }
+    }
+
+    private static String filler(PDFont font, float fontSize, float targetWidth, Random random) throws IOException {
+        StringBuilder line = new StringBuilder(pick(WORDS, random));
+        while (true) {
+            String word = random.nextInt(5) == 0 ? String.valueOf(random.nextInt(100000)) : pick(WORDS, random);
+            if (width(font, line + " " + word, fontSize) > targetWidth) {
+                return line.toString();
+            }
+            line.append(' ').append(word);
+        }
+    }
+
+    private static BufferedImage noise(Random random) {
+        BufferedImage image = new BufferedImage(128, 160, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int gray = 128 + random.nextInt(128);
+                image.setRGB(x, y, gray << 16 | gray << 8 | gray);
+            }
+        }
+        return image;
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static float width(PDFont font, String text, float fontSize) throws IOException {
+        return font.getStringWidth(text) / 1000f * fontSize;
+    }
+
+    private static float ascent(PDFont font) {
+        PDFontDescriptor descriptor = font.getFontDescriptor();
+        return descriptor != null && descriptor.getAscent() > 0 ? descriptor.getAscent() / 1000f : 0.75f;
+    }
+
+    private static float descent(PDFont font) {
+        PDFontDescriptor descriptor = font.getFontDescriptor();
+        return descriptor != null && descriptor.getDescent() < 0 ? descriptor.getDescent() / 1000f : -0.25f;
+    }
+
+    private static void writeTruth(BufferedWriter truth, Truth entry) throws IOException {
+        Rectangle2D.Float b = entry.bounds;
+        // The value goes last: addresses contain commas
+        truth.write(String.format(Locale.ROOT, "%s,%d,%s,%.2f,%.2f,%.2f,%.2f,%s",
+                entry.document, entry.page, entry.field, b.x, b.y, b.width, b.height, entry.value));
+        truth.newLine();
+    }
+
+    /**
+     * Document paths listed in the manifest written by write
+     */
+    static List<Path> readDocuments(Path directory) throws IOException {
+        List<Path> documents = new ArrayList<>();
+        for (String line : Files.readAllLines(directory.resolve(MANIFEST_FILE))) {
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                documents.add(directory.resolve(line.trim()));
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Ground truth written by write, in file order
+     */
+    static List<Truth> readTruth(Path directory) throws IOException {
+        List<Truth> truth = new ArrayList<>();
+        for (String line : Files.readAllLines(directory.resolve(TRUTH_FILE))) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split(",", 8);
+            truth.add(new Truth(parts[0], Integer.parseInt(parts[1]), parts[2],
+                    new Rectangle2D.Float(Float.parseFloat(parts[3]), Float.parseFloat(parts[4]),
+                            Float.parseFloat(parts[5]), Float.parseFloat(parts[6])), parts[7]));
+        }
+        return truth;
+    }
+
+    @Override
+    public String toString() {
+        return "SyntheticCorpus{seed=" + seed + ", pages=" + pages + ", pagesPerDocument=" + pagesPerDocument
+                + ", linesPerColumn=" + linesPerColumn + ", columns=" + columns + ", fieldDensity=" + fieldDensity
+                + ", mixedFonts=" + mixedFonts + ", imagePageRatio=" + imagePageRatio + "}";
+    }
+
+    /**
+     * Usage: SyntheticCorpus &lt;output dir&gt; [pages] [seed] [columns] [field density] [image page ratio] [--mixed-fonts]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: SyntheticCorpus <output dir> [pages] [seed] [columns] [field density]"
+                    + " [image page ratio] [--mixed-fonts]");
+            System.exit(1);
+        }
+        List<String> positional = new ArrayList<>();
+        boolean mixed = false;
+        for (String arg : args) {
+            if (arg.equals("--mixed-fonts")) {
+                mixed = true;
+            } else {
+                positional.add(arg);
+            }
+        }
+        SyntheticCorpus corpus = new SyntheticCorpus(positional.size() > 1 ? Integer.parseInt(positional.get(1)) : 100)
+                .withMixedFonts(mixed);
+        if (positional.size() > 2) corpus = corpus.withSeed(Long.parseLong(positional.get(2)));
+        if (positional.size() > 3) corpus = corpus.withColumns(Integer.parseInt(positional.get(3)));
+        if (positional.size() > 4) corpus = corpus.withFieldDensity(Double.parseDouble(positional.get(4)));
+        if (positional.size() > 5) corpus = corpus.withImagePageRatio(Double.parseDouble(positional.get(5)));
+
+        Path directory = Paths.get(positional.get(0));
+        long start = System.nanoTime();
+        List<Path> documents = corpus.write(directory);
+        System.out.println("Wrote " + corpus.getPages() + " pages in " + documents.size() + " documents to "
+                + directory + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
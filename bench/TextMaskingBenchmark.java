@@ -0,0 +1,61 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Field-based text masking on one 60-line page at 1, 4, 16 and 64 requested fields:
+ * the single-pass maskFieldsInText, and maskDynamicField called once per field the
+ * way maskSpecificField masks one field at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextMaskingBenchmark {
+
+    private static final String[] PREDEFINED = {"name", "email", "address", "dob"};
+
+    @Param({"1", "4", "16", "64"})
+    public int fieldCount;
+
+    private FieldBasedPDFMasker masker;
+    private List<String> fields;
+    private String pageText;
+    private MaskingSummary summary;
+
+    @Setup
+    public void setUp() {
+        MaskingLog.setDetail(LogDetail.QUIET);
+        masker = new FieldBasedPDFMasker();
+        fields = new ArrayList<>();
+        for (int i = 0; i < fieldCount; i++) {
+            fields.add(i < PREDEFINED.length ? PREDEFINED[i] : "Field " + i);
+        }
+        pageText = MultiFieldScanBenchmark.buildPage(new Random(42), 60);
+        summary = new MaskingSummary("benchmark");
+        // Build and memoize the scanner and dynamic matchers outside the measured region
+        masker.maskFieldsInText(pageText, fields, summary);
+        for (String field : fields) {
+            masker.maskDynamicField(0, pageText, field, CompiledRuleSet.DEFAULT_MASK_VALUE, summary);
+        }
+    }
+
+    @Benchmark
+    public String maskFieldsInText() {
+        return masker.maskFieldsInText(pageText, fields, summary);
+    }
+
+    @Benchmark
+    public String maskDynamicField() {
+        String maskedText = pageText;
+        for (String field : fields) {
+            maskedText = masker.maskDynamicField(0, maskedText, field, CompiledRuleSet.DEFAULT_MASK_VALUE, summary);
+        }
+        return maskedText;
+    }
+}